@@ -1,5 +1,6 @@
 package edu.ksu.cis.macr.aasis.agent.cc_message;
 
+import edu.ksu.cis.macr.aasis.agent.cc_message.codec.MessageCodecs;
 import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -184,11 +185,7 @@ public class BaseMessage<T extends Enum<T>> implements Serializable, IBaseMessag
      * @throws Exception - if an exception occurs.
      */
     public synchronized Object deserialize(final byte[] bytes) throws Exception {
-        try (ByteArrayInputStream b = new ByteArrayInputStream(bytes)) {
-            try (ObjectInput o = new ObjectInputStream(b)) {
-                return o.readObject();
-            }
-        }
+        return MessageCodecs.decode(bytes);
     }
 
     @Override
@@ -227,11 +224,6 @@ public class BaseMessage<T extends Enum<T>> implements Serializable, IBaseMessag
      */
     @Override
     public synchronized byte[] serialize() throws IOException {
-        try (ByteArrayOutputStream b = new ByteArrayOutputStream()) {
-            try (ObjectOutput o = new ObjectOutputStream(b)) {
-                o.writeObject(this);
-            }
-            return b.toByteArray();
-        }
+        return MessageCodecs.encode(this);
     }
 }
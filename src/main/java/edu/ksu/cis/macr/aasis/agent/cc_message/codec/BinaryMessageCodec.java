@@ -0,0 +1,292 @@
+package edu.ksu.cis.macr.aasis.agent.cc_message.codec;
+
+import edu.ksu.cis.macr.aasis.agent.cc_message.BaseMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.connect.ConnectMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.connect.ConnectMessageContent;
+import edu.ksu.cis.macr.aasis.agent.cc_message.connect.ConnectPerformative;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.CustomMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.CustomMessageContent;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.EquipmentStatus;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.Performative;
+import edu.ksu.cis.macr.aasis.agent.cc_message.participate.ParticipateMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.participate.ParticipatePerformative;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact binary codec for remote messages. Lengths and numbers are varints, performatives and other enums are
+ * written as ordinals, and each distinct string (mostly agent abbreviations) is written once per message and referred
+ * to by index after that. Decoded abbreviations are interned so repeated names share one instance.
+ * <p>
+ * Layout: magic, version, kind, then for messages the performative ordinal, remote sender, remote receiver, and content.
+ * Content that is not a known type is embedded as Java serialization bytes. Messages with local identifiers and
+ * subclasses of the known message classes are not handled here and fall back to Java serialization.
+ */
+public enum BinaryMessageCodec implements IMessageCodec {
+    /**
+     * Singleton instance of the binary codec.
+     */
+    INSTANCE;
+
+    private static final int MAGIC = 0xB1;
+    private static final int VERSION = 1;
+    private static final int KIND_CONTENT = 0;
+    private static final int KIND_CONNECT = 1;
+    private static final int KIND_PARTICIPATE = 2;
+    private static final int KIND_CUSTOM = 3;
+    private static final int CONTENT_NULL = 0;
+    private static final int CONTENT_CONNECT = 1;
+    private static final int CONTENT_CUSTOM = 2;
+    private static final int CONTENT_STRING = 3;
+    private static final int CONTENT_SERIALIZED = 127;
+    /**
+     * Strings longer than this are not worth interning.
+     */
+    private static final int MAX_INTERNED_LENGTH = 64;
+    private static final int MAX_INTERNED_COUNT = 100000;
+    private static final Map<String, String> interned = new ConcurrentHashMap<>();
+
+    private static int kindOf(final Object object) {
+        final Class<?> c = object.getClass();
+        if (c == ConnectMessage.class) return KIND_CONNECT;
+        if (c == ParticipateMessage.class) return KIND_PARTICIPATE;
+        if (c == CustomMessage.class) return KIND_CUSTOM;
+        return -1;
+    }
+
+    private static boolean isKnownContent(final Object content) {
+        return content == null || content instanceof String || content.getClass() == ConnectMessageContent.class ||
+                content.getClass() == CustomMessageContent.class;
+    }
+
+    private static String intern(final String s) {
+        if (s.length() > MAX_INTERNED_LENGTH) return s;
+        final String existing = interned.get(s);
+        if (existing != null) return existing;
+        if (interned.size() >= MAX_INTERNED_COUNT) return s;
+        final String previous = interned.putIfAbsent(s, s);
+        return (previous == null) ? s : previous;
+    }
+
+    @Override
+    public boolean canEncode(final Object object) {
+        if (object == null) return false;
+        final int kind = kindOf(object);
+        if (kind < 0) return object.getClass() == ConnectMessageContent.class || object.getClass() == CustomMessageContent.class;
+        final BaseMessage<?> message = (BaseMessage<?>) object;
+        if (message.getLocalSender() != null || message.getLocalReceiver() != null) return false;
+        final Object content = message.getContent();
+        return isKnownContent(content) || content instanceof Serializable;
+    }
+
+    @Override
+    public byte[] encode(final Object object) throws IOException {
+        if (!canEncode(object)) throw new IOException("Binary codec cannot encode " + object);
+        final Writer w = new Writer();
+        w.writeByte(MAGIC);
+        w.writeByte(VERSION);
+        final int kind = kindOf(object);
+        if (kind < 0) {
+            w.writeByte(KIND_CONTENT);
+            writeContent(w, object);
+        } else {
+            final BaseMessage<?> message = (BaseMessage<?>) object;
+            w.writeByte(kind);
+            w.writeVarint(message.getPerformativeType().ordinal());
+            w.writeString(message.getRemoteSender());
+            w.writeString(message.getRemoteReceiver());
+            writeContent(w, message.getContent());
+        }
+        return w.toByteArray();
+    }
+
+    private static void writeContent(final Writer w, final Object content) throws IOException {
+        if (content == null) {
+            w.writeByte(CONTENT_NULL);
+        } else if (content.getClass() == ConnectMessageContent.class) {
+            final ConnectMessageContent c = (ConnectMessageContent) content;
+            w.writeByte(CONTENT_CONNECT);
+            w.writeString(c.getSenderAgentAbbrev());
+            w.writeString(c.getReceiverAgentAbbrev());
+            w.writeString(c.getOrganizationAbbrev());
+            w.writeString(c.getExpectedMasterAbbrev());
+            w.writeString(c.getMessage());
+        } else if (content.getClass() == CustomMessageContent.class) {
+            final CustomMessageContent c = (CustomMessageContent) content;
+            w.writeByte(CONTENT_CUSTOM);
+            w.writeString(c.getSampleText());
+            w.writeVarint((c.getSampleValue() << 1) ^ (c.getSampleValue() >> 31));
+            w.writeVarint(c.getEquipmentStatus() == null ? 0 : c.getEquipmentStatus().ordinal() + 1);
+        } else if (content instanceof String) {
+            w.writeByte(CONTENT_STRING);
+            w.writeString((String) content);
+        } else {
+            final byte[] serialized = JavaSerializationCodec.INSTANCE.encode(content);
+            w.writeByte(CONTENT_SERIALIZED);
+            w.writeVarint(serialized.length);
+            w.writeBytes(serialized);
+        }
+    }
+
+    @Override
+    public Object decode(final byte[] bytes) throws Exception {
+        if (!isEncodedBy(bytes)) throw new IOException("Not a binary encoded message.");
+        final Reader r = new Reader(bytes, 1);
+        final int version = r.readByte();
+        if (version != VERSION) throw new IOException("Unsupported binary message version " + version);
+        final int kind = r.readByte();
+        if (kind == KIND_CONTENT) return readContent(r);
+        final int performative = r.readVarint();
+        final String sender = r.readString();
+        final String receiver = r.readString();
+        final Object content = readContent(r);
+        switch (kind) {
+            case KIND_CONNECT:
+                return ConnectMessage.createRemoteConnectMessage(sender, receiver, ConnectPerformative.values()[performative], content);
+            case KIND_PARTICIPATE:
+                return ParticipateMessage.createRemoteParticipateMessage(sender, receiver, ParticipatePerformative.values()[performative], content);
+            case KIND_CUSTOM:
+                return new CustomMessage(sender, receiver, Performative.values()[performative], content);
+            default:
+                throw new IOException("Unknown binary message kind " + kind);
+        }
+    }
+
+    private static Object readContent(final Reader r) throws Exception {
+        final int tag = r.readByte();
+        switch (tag) {
+            case CONTENT_NULL:
+                return null;
+            case CONTENT_CONNECT:
+                return ConnectMessageContent.createConnectMessageContent(r.readString(), r.readString(), r.readString(),
+                        r.readString(), r.readString());
+            case CONTENT_CUSTOM:
+                final String sampleText = r.readString();
+                final int zigzag = r.readVarint();
+                final int sampleValue = (zigzag >>> 1) ^ -(zigzag & 1);
+                final int status = r.readVarint();
+                return new CustomMessageContent(sampleText, sampleValue, status == 0 ? null : EquipmentStatus.values()[status - 1]);
+            case CONTENT_STRING:
+                return r.readString();
+            case CONTENT_SERIALIZED:
+                return JavaSerializationCodec.INSTANCE.decode(r.readBytes(r.readVarint()));
+            default:
+                throw new IOException("Unknown binary content tag " + tag);
+        }
+    }
+
+    @Override
+    public boolean isEncodedBy(final byte[] bytes) {
+        return bytes.length > 0 && (bytes[0] & 0xFF) == MAGIC;
+    }
+
+    /**
+     * A growable buffer with varint and string-table support. Strings are written as a varint reference: 0 for null, 1
+     * for a new string that follows as varint length plus UTF-8 bytes, and n + 2 for the n-th string already written.
+     */
+    private static class Writer {
+        private final List<String> strings = new ArrayList<>();
+        private byte[] buffer = new byte[128];
+        private int size = 0;
+
+        void writeByte(final int b) {
+            ensure(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void writeBytes(final byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeString(final String s) {
+            if (s == null) {
+                writeVarint(0);
+                return;
+            }
+            final int index = strings.indexOf(s);
+            if (index >= 0) {
+                writeVarint(index + 2);
+                return;
+            }
+            strings.add(s);
+            final byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(1);
+            writeVarint(utf8.length);
+            writeBytes(utf8);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(final int extra) {
+            if (size + extra > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static class Reader {
+        private final List<String> strings = new ArrayList<>();
+        private final byte[] bytes;
+        private int position;
+
+        Reader(final byte[] bytes, final int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        int readByte() throws IOException {
+            if (position >= bytes.length) throw new IOException("Truncated binary message.");
+            return bytes[position++] & 0xFF;
+        }
+
+        byte[] readBytes(final int length) throws IOException {
+            if (length < 0 || position + length > bytes.length) throw new IOException("Truncated binary message.");
+            final byte[] out = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return out;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed varint in binary message.");
+        }
+
+        String readString() throws IOException {
+            final int ref = readVarint();
+            if (ref == 0) return null;
+            if (ref > 1) {
+                if (ref - 2 >= strings.size()) throw new IOException("Bad string reference in binary message.");
+                return strings.get(ref - 2);
+            }
+            final int length = readVarint();
+            if (length < 0 || position + length > bytes.length) throw new IOException("Truncated binary message.");
+            final String s = intern(new String(bytes, position, length, StandardCharsets.UTF_8));
+            position += length;
+            strings.add(s);
+            return s;
+        }
+    }
+}
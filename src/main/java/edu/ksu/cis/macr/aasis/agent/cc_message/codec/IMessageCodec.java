@@ -0,0 +1,43 @@
+package edu.ksu.cis.macr.aasis.agent.cc_message.codec;
+
+import java.io.IOException;
+
+/**
+ * Interface for a codec that turns messages and message contents into bytes for remote sends and back again.
+ */
+public interface IMessageCodec {
+
+    /**
+     * Returns whether this codec can encode the given object. Objects it cannot encode are passed to the fallback codec.
+     *
+     * @param object - the message or message content.
+     * @return - true if encode() will accept the object.
+     */
+    boolean canEncode(Object object);
+
+    /**
+     * Encode the given message or message content.
+     *
+     * @param object - the message or message content.
+     * @return - the encoded bytes.
+     * @throws IOException - if the object cannot be encoded.
+     */
+    byte[] encode(Object object) throws IOException;
+
+    /**
+     * Decode bytes produced by encode().
+     *
+     * @param bytes - the encoded bytes.
+     * @return - the decoded message or message content.
+     * @throws Exception - if the bytes cannot be decoded.
+     */
+    Object decode(byte[] bytes) throws Exception;
+
+    /**
+     * Returns whether the given bytes were produced by this codec.
+     *
+     * @param bytes - the encoded bytes.
+     * @return - true if the bytes start with this codec's header.
+     */
+    boolean isEncodedBy(byte[] bytes);
+}
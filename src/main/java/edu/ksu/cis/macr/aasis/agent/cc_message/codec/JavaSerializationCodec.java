@@ -0,0 +1,49 @@
+package edu.ksu.cis.macr.aasis.agent.cc_message.codec;
+
+import java.io.*;
+
+/**
+ * The original message format: standard Java serialization. It can encode any {@code Serializable} object and is the
+ * fallback for anything the binary codec does not know.
+ */
+public enum JavaSerializationCodec implements IMessageCodec {
+    /**
+     * Singleton instance of the Java serialization codec.
+     */
+    INSTANCE;
+
+    /**
+     * The first two bytes of every Java serialization stream.
+     */
+    private static final int STREAM_MAGIC_0 = 0xAC;
+    private static final int STREAM_MAGIC_1 = 0xED;
+
+    @Override
+    public boolean canEncode(final Object object) {
+        return object instanceof Serializable;
+    }
+
+    @Override
+    public byte[] encode(final Object object) throws IOException {
+        try (ByteArrayOutputStream b = new ByteArrayOutputStream()) {
+            try (ObjectOutput o = new ObjectOutputStream(b)) {
+                o.writeObject(object);
+            }
+            return b.toByteArray();
+        }
+    }
+
+    @Override
+    public Object decode(final byte[] bytes) throws Exception {
+        try (ByteArrayInputStream b = new ByteArrayInputStream(bytes)) {
+            try (ObjectInput o = new ObjectInputStream(b)) {
+                return o.readObject();
+            }
+        }
+    }
+
+    @Override
+    public boolean isEncodedBy(final byte[] bytes) {
+        return bytes.length > 1 && (bytes[0] & 0xFF) == STREAM_MAGIC_0 && (bytes[1] & 0xFF) == STREAM_MAGIC_1;
+    }
+}
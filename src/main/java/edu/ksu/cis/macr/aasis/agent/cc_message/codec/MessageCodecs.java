@@ -0,0 +1,80 @@
+package edu.ksu.cis.macr.aasis.agent.cc_message.codec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * The {@code MessageCodecs} singleton selects the codec used to encode messages for remote sends. Decoding recognizes
+ * the format from the leading bytes, so agents using different codecs can still read each other's messages. Anything the
+ * selected codec cannot encode is written with Java serialization.
+ */
+public enum MessageCodecs {
+    /**
+     * Singleton instance of the codec registry (one per JVM).
+     */
+    INSTANCE;
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageCodecs.class);
+    private static final boolean debug = false;
+    private static final IMessageCodec[] known = {BinaryMessageCodec.INSTANCE, JavaSerializationCodec.INSTANCE};
+    private static volatile IMessageCodec defaultCodec = JavaSerializationCodec.INSTANCE;
+
+    public static IMessageCodec getDefaultCodec() {
+        return defaultCodec;
+    }
+
+    public static void setDefaultCodec(final IMessageCodec codec) {
+        MessageCodecs.defaultCodec = codec;
+    }
+
+    /**
+     * Select the default codec by name.
+     *
+     * @param name - "binary" or "java".
+     * @return - true if the name was recognized.
+     */
+    public static boolean setDefaultCodec(final String name) {
+        switch (name.trim().toLowerCase()) {
+            case "binary":
+                setDefaultCodec(BinaryMessageCodec.INSTANCE);
+                return true;
+            case "java":
+                setDefaultCodec(JavaSerializationCodec.INSTANCE);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Encode a message or message content with the default codec, falling back to Java serialization.
+     *
+     * @param object - the message or message content.
+     * @return - the encoded bytes.
+     * @throws IOException - if no codec can encode the object.
+     */
+    public static byte[] encode(final Object object) throws IOException {
+        final IMessageCodec codec = defaultCodec;
+        if (codec.canEncode(object)) return codec.encode(object);
+        if (debug) LOG.debug("Falling back to Java serialization for {}", object);
+        return JavaSerializationCodec.INSTANCE.encode(object);
+    }
+
+    /**
+     * Decode bytes produced by any known codec.
+     *
+     * @param bytes - the encoded bytes.
+     * @return - the decoded message or message content.
+     * @throws Exception - if the bytes are not in a known format or cannot be decoded.
+     */
+    public static Object decode(final byte[] bytes) throws Exception {
+        for (IMessageCodec codec : known) {
+            if (codec.isEncodedBy(bytes)) return codec.decode(bytes);
+        }
+        final IMessageCodec codec = defaultCodec;
+        if (codec.isEncodedBy(bytes)) return codec.decode(bytes);
+        throw new IOException("Unrecognized message encoding.");
+    }
+}
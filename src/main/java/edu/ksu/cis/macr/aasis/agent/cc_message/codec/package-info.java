@@ -0,0 +1,2 @@
+/** Provides the message codecs used to encode messages for remote sends: Java serialization by default, and a compact binary codec that can be selected with {@code messagecodec=binary}. */
+package edu.ksu.cis.macr.aasis.agent.cc_message.codec;
\ No newline at end of file
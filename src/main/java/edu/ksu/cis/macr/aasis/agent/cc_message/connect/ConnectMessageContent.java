@@ -59,6 +59,20 @@ public final class ConnectMessageContent implements Serializable, IConnectMessag
         return message;
     }
 
+    /**
+     * @return the receiverAgentAbbrev
+     */
+    public String getReceiverAgentAbbrev() {
+        return receiverAgentAbbrev;
+    }
+
+    /**
+     * @return the senderAgentAbbrev
+     */
+    public String getSenderAgentAbbrev() {
+        return senderAgentAbbrev;
+    }
+
     /**
      * @return the organizationAbbrev
      */
@@ -16,6 +16,8 @@
 package edu.ksu.cis.macr.aasis.agent.cc_message.custom;
 
 
+import edu.ksu.cis.macr.aasis.agent.cc_message.codec.MessageCodecs;
+
 import java.io.*;
 
 /**
@@ -76,11 +78,7 @@ public class CustomMessageContent implements Serializable, ICustomMessageContent
      */
     @Override
     public Object deserialize(final byte[] bytes) throws Exception {
-        try (ByteArrayInputStream b = new ByteArrayInputStream(bytes)) {
-            try (ObjectInput o = new ObjectInputStream(b)) {
-                return o.readObject();
-            }
-        }
+        return MessageCodecs.decode(bytes);
     }
 
     /**
@@ -91,12 +89,7 @@ public class CustomMessageContent implements Serializable, ICustomMessageContent
      */
     @Override
     public byte[] serialize() throws IOException {
-        try (ByteArrayOutputStream b = new ByteArrayOutputStream()) {
-            try (ObjectOutput o = new ObjectOutputStream(b)) {
-                o.writeObject(this);
-            }
-            return b.toByteArray();
-        }
+        return MessageCodecs.encode(this);
     }
 
     private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
@@ -1,6 +1,7 @@
 package edu.ksu.cis.macr.aasis.agent.cc_message.participate;
 
 import edu.ksu.cis.macr.aasis.agent.cc_message.BaseMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.codec.MessageCodecs;
 import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,11 +83,7 @@ public class ParticipateMessage extends BaseMessage<ParticipatePerformative> imp
      */
     @Override
     public Object deserialize(final byte[] bytes) throws Exception {
-        try (ByteArrayInputStream b = new ByteArrayInputStream(bytes)) {
-            try (ObjectInput o = new ObjectInputStream(b)) {
-                return o.readObject();
-            }
-        }
+        return MessageCodecs.decode(bytes);
     }
 
     /**
@@ -97,11 +94,6 @@ public class ParticipateMessage extends BaseMessage<ParticipatePerformative> imp
      */
     @Override
     public byte[] serialize() throws IOException {
-        try (ByteArrayOutputStream b = new ByteArrayOutputStream()) {
-            try (ObjectOutput o = new ObjectOutputStream(b)) {
-                o.writeObject(this);
-            }
-            return b.toByteArray();
-        }
+        return MessageCodecs.encode(this);
     }
 }
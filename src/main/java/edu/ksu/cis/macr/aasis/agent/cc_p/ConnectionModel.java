@@ -1,11 +1,22 @@
 package edu.ksu.cis.macr.aasis.agent.cc_p;
 
+import edu.ksu.cis.macr.aasis.common.AgentLink;
+import edu.ksu.cis.macr.aasis.common.AgentSymbolTable;
 import edu.ksu.cis.macr.aasis.simulator.clock.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * The domain model that keeps track of the established connections between agent self organizations.
@@ -14,25 +25,42 @@ public enum ConnectionModel {
     INSTANCE;
     private static final Logger LOG = LoggerFactory.getLogger(ConnectionModel.class);
     private static final boolean debug = false;
-    private static TreeSet<String> connectionSet = new TreeSet<>();
+    /**
+     * The established connections, keyed on the pair key of the two agents' symbols, with the text of each connection.
+     */
+    private static final ConcurrentMap<Long, String> connections = new ConcurrentHashMap<>();
+    /**
+     * The number of connections whose first agent is a home, neighborhood, lateral, or feeder agent.
+     */
+    private static final AtomicIntegerArray levelCounts = new AtomicIntegerArray(4);
+    private static final String LEVELS = "HNLF";
+    private static final List<IConnectionListener> listeners =
+            new CopyOnWriteArrayList<>(Collections.singletonList(ConnectivityTracker.INSTANCE));
     private static int countTotalInitialConnections;
     private static int numberOfAgents;
     private static GregorianCalendar simulationTime;
     private static int simulationTimeSlices;
 
-    public synchronized static String getConnectionList() {
+    public static String getConnectionList() {
         StringBuilder s = new StringBuilder();
-        ConnectionModel.connectionSet.forEach(s::append);
+        ConnectionModel.getConnectionSet().forEach(s::append);
         return s.toString();
     }
 
+    /**
+     * @return - the number of initial connections, counted as pairs of agents like the established connections: the
+     * number set, or else the number of distinct pairs in the guidelines registered with the
+     * {@code ConnectivityTracker}.
+     */
     public static int getCountTotalInitialConnections() {
-        // two parallel organizations - everyone except the top has exactly one parent.
-        //TODO: refactor initial connection count to be scaleable
-        countTotalInitialConnections = 2 * (ConnectionModel.getNumberOfAgents() - 1);
-        return countTotalInitialConnections;
+        return (countTotalInitialConnections > 0) ? countTotalInitialConnections :
+                ConnectivityTracker.INSTANCE.getExpectedCount();
     }
 
+    /**
+     * @param countTotalInitialConnections - the number of pairs of agents to be connected initially, or zero to count
+     *                                     the pairs in the registered guidelines.
+     */
     public static void setCountTotalInitialConnections(int countTotalInitialConnections) {
         ConnectionModel.countTotalInitialConnections = countTotalInitialConnections;
     }
@@ -47,8 +75,15 @@ public enum ConnectionModel {
         return numberOfAgents;
     }
 
+    /**
+     * Set the number of agents in the run, and tell the {@code ConnectivityTracker} how many agents must register their
+     * guidelines before it can report the system connected.
+     *
+     * @param numberOfAgents - the number of agents.
+     */
     public static void setNumberOfAgents(int numberOfAgents) {
         ConnectionModel.numberOfAgents = numberOfAgents;
+        ConnectivityTracker.INSTANCE.setExpectedAgents(numberOfAgents);
     }
 
     public static GregorianCalendar getSimulationTime() {
@@ -75,55 +110,155 @@ public enum ConnectionModel {
         int Nnum = ConnectionModel.getCountNeighborhoodConnections();
         int Lnum = ConnectionModel.getCountLateralConnections();
         int Fnum = ConnectionModel.getCountFeederConnections();
-        int num = ConnectionModel.getConnectionSet().size();
+        int num = ConnectionModel.getCountConnections();
         int missing = parents - num;
         return num + " of " + parents + " connections established. Missing " + missing + ". H/N/L/F=" + Hnum + "-" + Nnum + "-" + Lnum + "-" + Fnum;
     }
 
     public static int getCountHomeConnections() {
-        int count = 0;
-        for (String s : ConnectionModel.getConnectionSet()) {
-            if (s.startsWith("H")) count += 1;
-        }
-        return count;
+        return levelCounts.get(0);
     }
 
+    /**
+     * @return - a sorted copy of the established connections.
+     */
     public static TreeSet<String> getConnectionSet() {
-        return ConnectionModel.connectionSet;
+        return new TreeSet<>(ConnectionModel.connections.values());
+    }
+
+    public static int getCountConnections() {
+        return ConnectionModel.connections.size();
     }
 
     public static int getCountNeighborhoodConnections() {
-        int count = 0;
-        for (String s : ConnectionModel.getConnectionSet()) {
-            if (s.startsWith("N")) count += 1;
-        }
-        return count;
+        return levelCounts.get(1);
     }
 
     public static int getCountLateralConnections() {
-        int count = 0;
-        for (String s : ConnectionModel.getConnectionSet()) {
-            if (s.startsWith("L")) count += 1;
-        }
-        return count;
+        return levelCounts.get(2);
     }
 
     public static int getCountFeederConnections() {
-        int count = 0;
-        for (String s : ConnectionModel.getConnectionSet()) {
-            if (s.startsWith("F")) count += 1;
-        }
-        return count;
+        return levelCounts.get(3);
     }
 
+    /**
+     * Check whether a connection, written as {@code "first - second"}, has been established.
+     *
+     * @param connection - the connection.
+     * @return - true if it has been established.
+     */
     public static boolean includes(final String connection) {
-        LOG.debug("Checking to see if connection list already has {}.", connection);
-        return ConnectionModel.getConnectionList().contains(connection);
+        if (debug) LOG.debug("Checking to see if connection list already has {}.", connection);
+        return ConnectionModel.connections.containsKey(parse(connection).getPairKey());
+    }
+
+    /**
+     * Check whether two agents are connected, in either order.
+     *
+     * @param agent - one agent's identifier.
+     * @param other - the other agent's identifier.
+     * @return - true if the connection has been established.
+     */
+    public static boolean includes(final String agent, final String other) {
+        return ConnectionModel.connections.containsKey(AgentSymbolTable.link(agent, other).getPairKey());
     }
 
-    public synchronized static void insertNewConnection(final String connection) {
+    /**
+     * Record a connection, written as {@code "first - second"}. Recording a connection again has no effect.
+     *
+     * @param connection - the connection.
+     */
+    public static void insertNewConnection(final String connection) {
+        insert(parse(connection), connection);
+    }
+
+    /**
+     * Record a connection between two agents, in either order. Recording a connection again has no effect.
+     *
+     * @param agent - one agent's identifier.
+     * @param other - the other agent's identifier.
+     */
+    public static void insertNewConnection(final String agent, final String other) {
+        final AgentLink link = AgentSymbolTable.link(agent, other);
+        insert(link, link.getFirst() + " - " + link.getSecond() + "\n");
+    }
+
+    private static boolean insert(final AgentLink link, final String connection) {
+        if (ConnectionModel.connections.putIfAbsent(link.getPairKey(), connection) != null) return false;
+        final String first = link.getFirst().getName();
+        final String second = link.getSecond().getName();
+        final int level = LEVELS.indexOf(first.isEmpty() ? ' ' : first.charAt(0));
+        if (level >= 0) levelCounts.incrementAndGet(level);
         LOG.info("UPDATE: CONNECTION established: {}.", connection);
-        ConnectionModel.connectionSet.add(connection);
+        for (IConnectionListener listener : listeners) {
+            listener.connectionEstablished(first, second);
+        }
+        return true;
+    }
+
+    /**
+     * Be told of each new connection from now on.
+     *
+     * @param listener - the listener to add.
+     */
+    public static void addConnectionListener(final IConnectionListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeConnectionListener(final IConnectionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Forget every established connection, e.g. before connecting a new set of agents in the same JVM. Listeners are
+     * kept and told.
+     */
+    public synchronized static void clearConnections() {
+        connections.clear();
+        for (int level = 0; level < levelCounts.length(); level++) levelCounts.set(level, 0);
+        for (IConnectionListener listener : listeners) {
+            listener.connectionsCleared();
+        }
+    }
+
+    /**
+     * Write the established connections to a checkpoint.
+     *
+     * @param out - the checkpoint section for the connection model.
+     * @throws IOException - if the state cannot be written.
+     */
+    public synchronized static void writeState(final DataOutput out) throws IOException {
+        out.writeInt(numberOfAgents);
+        out.writeInt(simulationTimeSlices);
+        final TreeSet<String> connectionSet = getConnectionSet();
+        out.writeInt(connectionSet.size());
+        for (String connection : connectionSet) {
+            out.writeUTF(connection);
+        }
+    }
+
+    /**
+     * Replace the established connections with those in a checkpoint written by {@code writeState}.
+     *
+     * @param in - the checkpoint section for the connection model.
+     * @throws IOException - if the state cannot be read.
+     */
+    public synchronized static void readState(final DataInput in) throws IOException {
+        final int agents = in.readInt();
+        final int timeSlices = in.readInt();
+        final int count = in.readInt();
+        final TreeSet<String> restored = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            restored.add(in.readUTF());
+        }
+        numberOfAgents = agents;
+        simulationTimeSlices = timeSlices;
+        clearConnections();
+        for (String connection : restored) {
+            insert(parse(connection), connection);
+        }
+        LOG.info("Restored {} connections.", count);
     }
 
     public synchronized static void updateConnectionModel() {
@@ -132,4 +267,15 @@ public enum ConnectionModel {
         setSimulationTimeSlices(Clock.getTimeSlicesElapsedSinceStart());
         LOG.debug("update connection model complete.");
     }
+
+    /**
+     * @param connection - a connection written as {@code "first - second"}, with or without a trailing newline.
+     * @return - the link between the two agents.
+     */
+    private static AgentLink parse(final String connection) {
+        final String trimmed = connection.trim();
+        final int dash = trimmed.indexOf(" - ");
+        if (dash < 0) return AgentSymbolTable.link(trimmed, "");
+        return AgentSymbolTable.link(trimmed.substring(0, dash).trim(), trimmed.substring(dash + 3).trim());
+    }
 }
@@ -0,0 +1,360 @@
+package edu.ksu.cis.macr.aasis.agent.cc_p;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of connectivity as the {@code ConnectionModel} records connections. Each agent's capability registers the
+ * connections in its guidelines with the tracker; the tracker keeps how many of them are still outstanding for each
+ * agent, and joins the agents of every recorded connection in a union-find structure. Whether an agent, or the whole
+ * system, is fully connected can then be answered without walking guideline lists or the connection set, and listeners
+ * are told when the fraction of expected connections established reaches each threshold.
+ * <p>
+ * Connections are counted as unordered pairs of agents, as the {@code ConnectionModel} records them, and the number
+ * expected is the number of distinct pairs in the registered guidelines. The {@code ConnectionModel} tells
+ * {@code INSTANCE} of its connections; each tracker has its own state and lock, so another can be created, e.g. to
+ * follow connections made outside a run.
+ */
+public class ConnectivityTracker implements IConnectionListener {
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectivityTracker.class);
+    private static final boolean debug = false;
+    /**
+     * The tracker the {@code ConnectionModel} tells of every connection.
+     */
+    public static final ConnectivityTracker INSTANCE = createConnectivityTracker();
+    private final List<IConnectivityListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<String> agents = new ArrayList<>();
+    /**
+     * The union-find parent and component size of each agent, by index.
+     */
+    private int[] parent = new int[64];
+    private int[] size = new int[64];
+    /**
+     * The number of expected connections not yet established for each agent, by index.
+     */
+    private int[] outstanding = new int[64];
+    /**
+     * Whether each agent, by index, has registered the connections in its guidelines.
+     */
+    private boolean[] registered = new boolean[64];
+    private final Set<Long> expected = new HashSet<>();
+    private final Set<Long> established = new HashSet<>();
+    private final TreeSet<Double> thresholds = new TreeSet<>(Arrays.asList(1.0));
+    private final TreeSet<Double> thresholdsPending = new TreeSet<>(thresholds);
+    private int components = 0;
+    private int registeredAgents = 0;
+    /**
+     * The number of agents the run expects, so the tracker does not report the system connected while only some agents
+     * have registered their guidelines.
+     */
+    private int expectedAgents = 0;
+    private int lastTotal = 0;
+    private int expectedEstablished = 0;
+    private int outstandingTotal = 0;
+    private boolean systemConnected = false;
+
+    private ConnectivityTracker() {
+    }
+
+    /**
+     * Create a tracker with no agents, connections, or listeners. It is told of connections once added with
+     * {@code ConnectionModel.addConnectionListener}.
+     *
+     * @return - the ConnectivityTracker created
+     */
+    public static ConnectivityTracker createConnectivityTracker() {
+        return new ConnectivityTracker();
+    }
+
+    /**
+     * Register the connections in an agent's guidelines. Registering a connection again has no effect.
+     *
+     * @param agent  - the agent's identifier.
+     * @param others - the identifiers of the agents its guidelines connect it to.
+     */
+    public void expectConnections(final String agent, final Collection<String> others) {
+        final List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            final int a = indexOf(agent);
+            if (!registered[a]) {
+                registered[a] = true;
+                registeredAgents++;
+            }
+            for (String other : others) expect(a, indexOf(other));
+            progressed(events);
+        }
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Expect a connection between two agents, in either order. Expecting a connection again has no effect.
+     *
+     * @param agent - one agent's identifier.
+     * @param other - the other agent's identifier.
+     */
+    public void expectConnection(final String agent, final String other) {
+        final List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            expect(indexOf(agent), indexOf(other));
+            progressed(events);
+        }
+        events.forEach(Runnable::run);
+    }
+
+    @Override
+    public void connectionEstablished(final String first, final String second) {
+        final List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            final int a = indexOf(first);
+            final int b = indexOf(second);
+            final long key = key(a, b);
+            if (!established.add(key)) return;
+            union(a, b);
+            if (expected.contains(key)) {
+                expectedEstablished++;
+                outstandingTotal--;
+                if (--outstanding[a] == 0) events.add(agentEvent(agents.get(a)));
+                if (--outstanding[b] == 0) events.add(agentEvent(agents.get(b)));
+            }
+            progressed(events);
+        }
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Set how many agents the run expects. Until that many agents are known and every one of them has registered its
+     * guidelines, the system is not reported connected.
+     *
+     * @param agents - the number of agents, or zero if not known.
+     */
+    public void setExpectedAgents(final int agents) {
+        final List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            expectedAgents = Math.max(0, agents);
+            systemConnected = false;
+            progressed(events);
+        }
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Forget the established connections, keeping the expected ones, so every expected connection is outstanding again.
+     */
+    @Override
+    public synchronized void connectionsCleared() {
+        established.clear();
+        for (int i = 0; i < agents.size(); i++) {
+            parent[i] = i;
+            size[i] = 1;
+            outstanding[i] = 0;
+        }
+        components = agents.size();
+        for (long key : expected) {
+            outstanding[(int) (key >>> 32)]++;
+            outstanding[(int) key]++;
+        }
+        outstandingTotal = expected.size();
+        expectedEstablished = 0;
+        systemConnected = false;
+        thresholdsPending.clear();
+        thresholdsPending.addAll(thresholds);
+        lastTotal = 0;
+    }
+
+    /**
+     * Forget every agent, expected connection, established connection, and the expected number of agents. Listeners
+     * and thresholds are kept.
+     */
+    public synchronized void clear() {
+        index.clear();
+        agents.clear();
+        expected.clear();
+        Arrays.fill(registered, false);
+        registeredAgents = 0;
+        expectedAgents = 0;
+        connectionsCleared();
+    }
+
+    /**
+     * Tell the listener when a threshold is reached, when an agent is fully connected, and when the system is.
+     *
+     * @param listener - the listener to add.
+     */
+    public void addConnectivityListener(final IConnectivityListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeConnectivityListener(final IConnectivityListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Add a fraction of the expected connections at which listeners are told. 1.0 is always a threshold.
+     *
+     * @param fraction - the fraction, greater than zero and at most one.
+     */
+    public synchronized void addThreshold(final double fraction) {
+        if (fraction <= 0 || fraction > 1 || !thresholds.add(fraction)) return;
+        if (expectedEstablished < Math.ceil(fraction * expected.size()) || expected.isEmpty()) {
+            thresholdsPending.add(fraction);
+        }
+    }
+
+    /**
+     * @param agent - the agent's identifier.
+     * @return - true if the agent is known and none of its expected connections is outstanding.
+     */
+    public synchronized boolean isAgentFullyConnected(final String agent) {
+        final Integer i = index.get(agent);
+        return (i != null) && outstanding[i] == 0;
+    }
+
+    /**
+     * @return - true if the expected number of agents has been set, that many agents are known and every known agent
+     * has registered its guidelines, all expected connections are established, and all agents are joined.
+     */
+    public synchronized boolean isSystemConnected() {
+        return systemConnected;
+    }
+
+    /**
+     * @param agent - the agent's identifier.
+     * @return - the number of the agent's expected connections not yet established.
+     */
+    public synchronized int getOutstandingConnections(final String agent) {
+        final Integer i = index.get(agent);
+        return (i == null) ? 0 : outstanding[i];
+    }
+
+    public synchronized int getOutstandingTotal() {
+        return outstandingTotal;
+    }
+
+    /**
+     * @return - the number of distinct pairs of agents in the registered guidelines.
+     */
+    public synchronized int getExpectedCount() {
+        return expected.size();
+    }
+
+    /**
+     * @return - the number of expected connections established.
+     */
+    public synchronized int getEstablishedCount() {
+        return expectedEstablished;
+    }
+
+    /**
+     * @return - the number of separate groups of agents joined by established connections.
+     */
+    public synchronized int getComponentCount() {
+        return components;
+    }
+
+    public synchronized String getSummaryString() {
+        return expectedEstablished + " of " + expected.size() + " expected connections. Agents=" + agents.size() +
+                " registered=" + registeredAgents + " components=" + components + " system connected=" +
+                systemConnected;
+    }
+
+    private void expect(final int a, final int b) {
+        final long key = key(a, b);
+        if (!expected.add(key)) return;
+        if (established.contains(key)) {
+            expectedEstablished++;
+        } else {
+            outstanding[a]++;
+            outstanding[b]++;
+            outstandingTotal++;
+            systemConnected = false;
+        }
+    }
+
+    private int indexOf(final String agent) {
+        Integer i = index.get(agent);
+        if (i != null) return i;
+        i = agents.size();
+        if (i == parent.length) {
+            parent = Arrays.copyOf(parent, 2 * i);
+            size = Arrays.copyOf(size, 2 * i);
+            outstanding = Arrays.copyOf(outstanding, 2 * i);
+            registered = Arrays.copyOf(registered, 2 * i);
+        }
+        parent[i] = i;
+        size[i] = 1;
+        outstanding[i] = 0;
+        registered[i] = false;
+        agents.add(agent);
+        index.put(agent, i);
+        components++;
+        return i;
+    }
+
+    private static long key(final int a, final int b) {
+        return (a < b) ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(final int a, final int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) return;
+        if (size[ra] < size[rb]) {
+            final int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        components--;
+    }
+
+    /**
+     * Collects the events for thresholds reached and for the system becoming connected. When more connections are
+     * expected than before, thresholds above the new fraction are armed again. Must hold the lock.
+     */
+    private void progressed(final List<Runnable> events) {
+        final int total = expected.size();
+        if (total == 0) return;
+        final double fraction = (double) expectedEstablished / total;
+        if (total > lastTotal) {
+            thresholds.stream().filter(t -> t > fraction).forEach(thresholdsPending::add);
+            lastTotal = total;
+        }
+        while (!thresholdsPending.isEmpty() && thresholdsPending.first() <= fraction) {
+            final double threshold = thresholdsPending.pollFirst();
+            final int count = expectedEstablished;
+            if (debug) LOG.debug("Connectivity threshold {} reached: {} of {}.", threshold, count, total);
+            events.add(() -> listeners.forEach(l -> l.thresholdCrossed(threshold, count, total)));
+        }
+        if (!systemConnected && expectedAgents > 0 && agents.size() >= expectedAgents &&
+                registeredAgents == agents.size() && outstandingTotal == 0 && components == 1) {
+            systemConnected = true;
+            LOG.info("All {} expected connections established among {} agents.", total, agents.size());
+            events.add(() -> listeners.forEach(IConnectivityListener::systemConnected));
+        }
+    }
+
+    private Runnable agentEvent(final String agent) {
+        return () -> listeners.forEach(l -> l.agentFullyConnected(agent));
+    }
+}
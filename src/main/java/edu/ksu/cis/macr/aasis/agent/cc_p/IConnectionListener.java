@@ -0,0 +1,22 @@
+package edu.ksu.cis.macr.aasis.agent.cc_p;
+
+/**
+ * {@code IConnectionListener} provides an interface for being told when the {@code ConnectionModel} records a new
+ * connection. Listeners are called on the thread that recorded the connection, so they should return quickly.
+ */
+public interface IConnectionListener {
+
+    /**
+     * Called once for each new connection, not when a connection is recorded again.
+     *
+     * @param first  - the agent that comes first alphabetically.
+     * @param second - the other agent.
+     */
+    void connectionEstablished(String first, String second);
+
+    /**
+     * Called when the {@code ConnectionModel} forgets every connection, before any restored connections are recorded.
+     */
+    default void connectionsCleared() {
+    }
+}
@@ -0,0 +1,32 @@
+package edu.ksu.cis.macr.aasis.agent.cc_p;
+
+/**
+ * {@code IConnectivityListener} provides an interface for being told when connectivity tracked by the
+ * {@code ConnectivityTracker} passes a milestone. Listeners are called on the thread that recorded the connection, after
+ * the tracker is updated, so they may query it.
+ */
+public interface IConnectivityListener {
+
+    /**
+     * Called once when the fraction of expected connections established reaches a threshold.
+     *
+     * @param fraction    - the threshold reached.
+     * @param established - the number of expected connections established.
+     * @param expected    - the number of connections expected.
+     */
+    void thresholdCrossed(double fraction, int established, int expected);
+
+    /**
+     * Called once when every connection expected for an agent has been established.
+     *
+     * @param agent - the agent's identifier.
+     */
+    default void agentFullyConnected(String agent) {
+    }
+
+    /**
+     * Called once when every expected connection is established and all agents form one connected group.
+     */
+    default void systemConnected() {
+    }
+}
@@ -0,0 +1,152 @@
+package edu.ksu.cis.macr.aasis.agent.cc_p;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long the agents take to connect: from start to the first connection, to the initial connection threshold,
+ * and to the system being connected. Counts the connections the {@code ConnectionModel} records after {@code start()},
+ * and takes the threshold and the system being connected from a {@code ConnectivityTracker}, so the expected
+ * connections are those of the registered guidelines. The timeline is logged when the system is connected.
+ * <p>
+ * The {@code RunManager} keeps one for the run, started when the first organization loads its persona.
+ */
+public class StartupTimeline implements IConnectionListener, IConnectivityListener {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupTimeline.class);
+    private static final boolean debug = false;
+    private final ConnectivityTracker tracker;
+    private final double thresholdFraction;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong firstNanos = new AtomicLong(-1);
+    private final AtomicLong thresholdNanos = new AtomicLong(-1);
+    private final AtomicLong fullNanos = new AtomicLong(-1);
+    private final CountDownLatch fullyConnected = new CountDownLatch(1);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile long startNanos;
+
+    private StartupTimeline(final ConnectivityTracker tracker, final double thresholdFraction) {
+        this.tracker = tracker;
+        this.thresholdFraction = thresholdFraction;
+    }
+
+    /**
+     * Create a startup timeline.
+     *
+     * @param tracker           - the tracker whose expected connections are counted, e.g.
+     *                          {@code ConnectivityTracker.INSTANCE}.
+     * @param thresholdFraction - the fraction of them that counts as initially connected, e.g.
+     *                          {@code RunManager.INITIAL_CONNECTION_THRESHOLD_FRACTION}.
+     * @return - the StartupTimeline created
+     */
+    public static StartupTimeline createStartupTimeline(final ConnectivityTracker tracker,
+                                                        final double thresholdFraction) {
+        return new StartupTimeline(tracker, thresholdFraction);
+    }
+
+    /**
+     * Start the clock and begin counting connections. Starting again has no effect.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        startNanos = System.nanoTime();
+        tracker.addThreshold(thresholdFraction);
+        tracker.addConnectivityListener(this);
+        ConnectionModel.addConnectionListener(this);
+        if (tracker.isSystemConnected()) systemConnected();
+    }
+
+    /**
+     * Stop counting connections.
+     */
+    public void stop() {
+        ConnectionModel.removeConnectionListener(this);
+        tracker.removeConnectivityListener(this);
+    }
+
+    @Override
+    public void connectionEstablished(final String first, final String second) {
+        final long now = System.nanoTime();
+        final int count = connections.incrementAndGet();
+        if (debug) LOG.debug("Connection {}: {} - {}.", count, first, second);
+        firstNanos.compareAndSet(-1, now);
+    }
+
+    /**
+     * Records the latest time the threshold was reached, as the tracker reaches it again when more connections are
+     * registered.
+     */
+    @Override
+    public void thresholdCrossed(final double fraction, final int established, final int expected) {
+        if (fraction >= thresholdFraction) thresholdNanos.set(System.nanoTime());
+    }
+
+    @Override
+    public void systemConnected() {
+        if (!fullNanos.compareAndSet(-1, System.nanoTime())) return;
+        fullyConnected.countDown();
+        LOG.info("Startup: {}", getSummaryString());
+    }
+
+    /**
+     * Wait until the tracker reports the system connected.
+     *
+     * @param timeout - the longest time to wait.
+     * @param unit    - the unit of the timeout.
+     * @return - true if fully connected, false if the time ran out.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public boolean awaitFullyConnected(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return fullyConnected.await(timeout, unit);
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @return - the milliseconds from start to the first connection, or -1 if none yet.
+     */
+    public double getMillisToFirstConnection() {
+        return millisSinceStart(firstNanos.get());
+    }
+
+    /**
+     * @return - the milliseconds from start to the initial connection threshold, or -1 if not reached yet.
+     */
+    public double getMillisToThreshold() {
+        return millisSinceStart(thresholdNanos.get());
+    }
+
+    /**
+     * @return - the milliseconds from start to the system being connected, or -1 if not reached yet.
+     */
+    public double getMillisToFullyConnected() {
+        return millisSinceStart(fullNanos.get());
+    }
+
+    private double millisSinceStart(final long nanos) {
+        return (nanos < 0) ? -1 : (nanos - startNanos) / 1000000.0;
+    }
+
+    public String getSummaryString() {
+        return String.format("%d of %d expected connections (%d recorded). First after %.1f ms, %.0f%% (threshold) " +
+                        "after %.1f ms, all after %.1f ms.", tracker.getEstablishedCount(), tracker.getExpectedCount(),
+                connections.get(), getMillisToFirstConnection(), 100 * thresholdFraction, getMillisToThreshold(),
+                getMillisToFullyConnected());
+    }
+
+    @Override
+    public String toString() {
+        return "StartupTimeline{" +
+                "connections=" + connections.get() +
+                ", thresholdFraction=" + thresholdFraction +
+                ", fullyConnected=" + (fullNanos.get() >= 0) +
+                '}';
+    }
+}
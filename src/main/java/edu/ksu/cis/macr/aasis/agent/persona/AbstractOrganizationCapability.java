@@ -237,5 +237,13 @@ public abstract class AbstractOrganizationCapability extends CapabilityImpl impl
         organization.notifyDisplayChanges(displayInformation);
     }
 
+    /**
+     * Updates the change list with the owner's {@code DisplayInformation}, built only if a viewer reads it.
+     */
+    protected void updateChangeList() {
+        final IPersona persona = getOwner();
+        organization.notifyDisplayChanges(persona.getObjectIdentifier(), persona::toDisplayInformation);
+    }
+
 
 }
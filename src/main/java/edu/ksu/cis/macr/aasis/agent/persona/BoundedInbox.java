@@ -0,0 +1,243 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A lock-free queue with a capacity and an {@code InboxOverflowPolicy} for messages offered while it is full. The depth
+ * is kept in a counter, so size() is constant time, and the deepest the queue has been is kept as a high-water mark for
+ * sizing the capacity. A capacity of zero or less means unbounded.
+ * <p>
+ * Only senders using {@code BLOCK_SENDER} take a lock, and only while the queue is full. A blocked sender gives up after
+ * the wait time, because it may hold a lock the receiver needs to make room. The first message each inbox drops or
+ * refuses is logged as a warning; later ones are only counted.
+ *
+ * @param <E> - the type of element held.
+ */
+public class BoundedInbox<E> extends AbstractQueue<E> {
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedInbox.class);
+    private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicBoolean warned = new AtomicBoolean();
+    private final AtomicInteger waitingSenders = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final int capacity;
+    private final InboxOverflowPolicy policy;
+    private final long waitMillis;
+    private volatile String name = "inbox";
+
+    private BoundedInbox(final int capacity, final InboxOverflowPolicy policy, final long waitMillis) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Create a bounded inbox.
+     *
+     * @param capacity   - the most elements held, or zero or less for unbounded.
+     * @param policy     - what to do with an element offered while full.
+     * @param waitMillis - how long a {@code BLOCK_SENDER} offer waits for room.
+     * @param <E>        - the type of element held.
+     * @return - the BoundedInbox created
+     */
+    public static <E> BoundedInbox<E> createBoundedInbox(final int capacity, final InboxOverflowPolicy policy,
+                                                         final long waitMillis) {
+        return new BoundedInbox<>(capacity, policy, waitMillis);
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        if (e == null) throw new NullPointerException();
+        if (capacity <= 0) {
+            enqueue(e);
+            return true;
+        }
+        while (true) {
+            final int d = depth.get();
+            if (d < capacity) {
+                if (depth.compareAndSet(d, d + 1)) {
+                    queue.add(e);
+                    highWaterMark.accumulateAndGet(d + 1, Math::max);
+                    return true;
+                }
+                continue;
+            }
+            switch (policy) {
+                case DROP_OLDEST:
+                    if (poll() != null) overflowed(dropped, "dropped its oldest message");
+                    break;
+                case DROP_NEWEST:
+                    overflowed(dropped, "dropped a new message");
+                    return true;
+                case BLOCK_SENDER:
+                    if (!awaitRoom()) {
+                        overflowed(rejected, "refused a message after " + waitMillis + " ms");
+                        return false;
+                    }
+                    break;
+                default:
+                    overflowed(rejected, "refused a message");
+                    return false;
+            }
+        }
+    }
+
+    private void overflowed(final AtomicLong counter, final String what) {
+        if (!warned.get() && warned.compareAndSet(false, true)) {
+            LOG.warn("{} is full at {} messages and {} ({}). Later overflows are only counted.", name, capacity, what,
+                    policy);
+        }
+        counter.incrementAndGet();
+    }
+
+    private void enqueue(final E e) {
+        queue.add(e);
+        highWaterMark.accumulateAndGet(depth.incrementAndGet(), Math::max);
+    }
+
+    private boolean awaitRoom() {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        waitingSenders.incrementAndGet();
+        lock.lock();
+        try {
+            while (depth.get() >= capacity) {
+                if (nanos <= 0) return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+            waitingSenders.decrementAndGet();
+        }
+    }
+
+    @Override
+    public E poll() {
+        final E e = queue.poll();
+        if (e != null) removed();
+        return e;
+    }
+
+    private void removed() {
+        depth.decrementAndGet();
+        if (waitingSenders.get() > 0) {
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * @return - the number of elements queued, without walking the queue.
+     */
+    @Override
+    public int size() {
+        return Math.max(0, depth.get());
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final Iterator<E> it = queue.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                removed();
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name - the name used when the inbox logs its first overflow, e.g. the owning agent's.
+     */
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public InboxOverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return - the greatest depth reached.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * @return - the number of elements discarded by the drop policies.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return - the number of offers refused by the reject and block policies.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedInbox{" +
+                "name=" + name +
+                ", depth=" + size() +
+                ", capacity=" + capacity +
+                ", policy=" + policy +
+                ", highWaterMark=" + highWaterMark.get() +
+                ", dropped=" + dropped.get() +
+                ", rejected=" + rejected.get() +
+                '}';
+    }
+}
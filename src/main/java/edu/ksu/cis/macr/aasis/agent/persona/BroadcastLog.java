@@ -0,0 +1,160 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A shared ring log for broadcasts within one {@code Organization}. A broadcast is appended once as an immutable entry
+ * and every recipient reads it through its own cursor, so the sender does constant work and takes no lock no matter
+ * how many persona there are. The ring holds the most recent {@code capacity} entries; a reader that falls further
+ * behind than that skips the overwritten entries and is told how many it missed.
+ * <p>
+ * A log created with a capacity of zero or less starts in direct delivery: senders do not publish to it but hand each
+ * broadcast to every recipient themselves, as organizations did before the log. This is the default, since the ring can
+ * lose broadcasts a reader has not caught up with. A log with a ring switches to direct delivery when any reader misses
+ * entries, while readers drain what is left in the ring.
+ *
+ * @param <E> - the type of payload broadcast.
+ */
+public class BroadcastLog<E> {
+    private final AtomicReferenceArray<Entry<E>> slots;
+    private final int mask;
+    /**
+     * The sequence number the next entry will get.
+     */
+    private final AtomicLong next = new AtomicLong();
+    /**
+     * Whether broadcasts are delivered directly instead of through the ring.
+     */
+    private final AtomicBoolean directDelivery = new AtomicBoolean();
+
+    private BroadcastLog(final int capacity) {
+        int size = 1;
+        while (size < capacity) size <<= 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.directDelivery.set(capacity <= 0);
+    }
+
+    /**
+     * Create a broadcast log.
+     *
+     * @param capacity - the number of entries kept, rounded up to a power of two, or zero for direct delivery.
+     * @param <E>      - the type of payload broadcast.
+     * @return - the BroadcastLog created
+     */
+    public static <E> BroadcastLog<E> createBroadcastLog(final int capacity) {
+        return new BroadcastLog<>(capacity);
+    }
+
+    /**
+     * Append a broadcast.
+     *
+     * @param sender      - the sender of the broadcast.
+     * @param includeSelf - whether the sender also receives it.
+     * @param payload     - the immutable payload shared by every recipient.
+     */
+    public void publish(final UniqueIdentifier sender, final boolean includeSelf, final E payload) {
+        final long sequence = next.getAndIncrement();
+        slots.set((int) (sequence & mask), new Entry<>(sequence, sender, includeSelf, payload));
+    }
+
+    /**
+     * @return - the cursor a new reader starts from, so it only sees broadcasts made after it joined.
+     */
+    public long getHead() {
+        return next.get();
+    }
+
+    /**
+     * Hand every broadcast from the cursor on to the reader, skipping the reader's own broadcasts unless they include
+     * self. Stops at the first entry still being written.
+     *
+     * @param cursor   - the reader's position.
+     * @param receiver - the reader's identifier.
+     * @param reader   - receives each payload.
+     * @return - the reader's new position.
+     */
+    public long read(long cursor, final UniqueIdentifier receiver, final IReader<? super E> reader) {
+        final long end = next.get();
+        final int capacity = mask + 1;
+        if (end - cursor > capacity) {
+            reader.missed(end - capacity - cursor);
+            cursor = end - capacity;
+        }
+        while (cursor < end) {
+            final Entry<E> entry = slots.get((int) (cursor & mask));
+            if (entry == null || entry.sequence < cursor) break;
+            if (entry.sequence > cursor) {
+                reader.missed(entry.sequence - cursor);
+                cursor = entry.sequence;
+                continue;
+            }
+            if (entry.includeSelf || !entry.sender.equals(receiver)) reader.accept(entry.payload);
+            cursor++;
+        }
+        return cursor;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Stop using the ring for new broadcasts, e.g. after a reader missed entries.
+     *
+     * @return - true if this call made the switch, false if broadcasts were already delivered directly.
+     */
+    public boolean switchToDirectDelivery() {
+        return directDelivery.compareAndSet(false, true);
+    }
+
+    /**
+     * @return - true if senders should deliver broadcasts directly rather than publish them.
+     */
+    public boolean isDirectDelivery() {
+        return directDelivery.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BroadcastLog{" +
+                "capacity=" + (mask + 1) +
+                ", published=" + next.get() +
+                ", directDelivery=" + directDelivery.get() +
+                '}';
+    }
+
+    /**
+     * Receives broadcasts read from a {@code BroadcastLog}.
+     *
+     * @param <E> - the type of payload broadcast.
+     */
+    public interface IReader<E> {
+        void accept(E payload);
+
+        /**
+         * Called when the ring overwrote entries before they were read.
+         *
+         * @param count - the number of broadcasts missed.
+         */
+        void missed(long count);
+    }
+
+    private static class Entry<E> {
+        private final long sequence;
+        private final UniqueIdentifier sender;
+        private final boolean includeSelf;
+        private final E payload;
+
+        Entry(final long sequence, final UniqueIdentifier sender, final boolean includeSelf, final E payload) {
+            this.sequence = sequence;
+            this.sender = sender;
+            this.includeSelf = includeSelf;
+            this.payload = payload;
+        }
+    }
+}
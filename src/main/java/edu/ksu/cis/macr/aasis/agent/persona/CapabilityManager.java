@@ -9,18 +9,46 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Holds the capabilities of one {@code IAgent}. Lookups by capability class go through a per-class slot number shared by
+ * all managers, so after the first lookup of a class a manager answers from an array without hashing or allocating.
+ * The slot array and the collection views are rebuilt lazily after {@code addCapability}.
+ */
 public class CapabilityManager implements IEquippable {
     private static final Logger LOG = LoggerFactory.getLogger(CapabilityManager.class);
+    private static final AtomicInteger slotCount = new AtomicInteger();
+    /**
+     * The slot number and identifier of each capability class looked up.
+     */
+    private static final ClassValue<Slot> slotsByClass = new ClassValue<Slot>() {
+        @Override
+        protected Slot computeValue(final Class<?> type) {
+            return new Slot(slotCount.getAndIncrement(), new ClassIdentifier(type));
+        }
+    };
+    /**
+     * Marks a slot looked up and found empty.
+     */
+    private static final Object ABSENT = new Object();
     /**
      * The set of {@code ICapability} that the {@code IAgent} possesses.
      */
     public final Map<UniqueIdentifier, CapabilityWrapper> capabilities = new HashMap<>();
     private UniqueIdentifier agentIdentifier;
+    /**
+     * Resolved lookups by slot number: the capability, {@code ABSENT}, or null if not yet looked up.
+     */
+    private volatile Object[] resolved = new Object[0];
+    private volatile Collection<ICapability> capabilitiesView;
+    private volatile Map<UniqueIdentifier, ICapability> mappingView;
 
 
     public CapabilityManager(UniqueIdentifier agentIdentifier) {
@@ -49,31 +77,60 @@ public class CapabilityManager implements IEquippable {
 
     @Override
     public Collection<ICapability> getCapabilities() {
-        final Collection<ICapability> result = capabilities.values().stream().map(CapabilityWrapper::getCapability).collect(Collectors.toList());
-        return result;
+        Collection<ICapability> view = capabilitiesView;
+        if (view == null) {
+            view = Collections.unmodifiableList(capabilities.values().stream().map(CapabilityWrapper::getCapability).collect(Collectors.toList()));
+            capabilitiesView = view;
+        }
+        return view;
     }
 
     @Override
     public Map<UniqueIdentifier, ICapability> getCapabilitiesMapping() {
-        final Map<UniqueIdentifier, ICapability> result = new HashMap<>();
-        for (final Map.Entry<UniqueIdentifier, CapabilityWrapper> entry : capabilities
-                .entrySet()) {
-            result.put(entry.getKey(), entry.getValue().getCapability());
+        Map<UniqueIdentifier, ICapability> view = mappingView;
+        if (view == null) {
+            final Map<UniqueIdentifier, ICapability> result = new HashMap<>();
+            for (final Map.Entry<UniqueIdentifier, CapabilityWrapper> entry : capabilities
+                    .entrySet()) {
+                result.put(entry.getKey(), entry.getValue().getCapability());
+            }
+            view = Collections.unmodifiableMap(result);
+            mappingView = view;
         }
-        return result;
+        return view;
     }
 
     @Override
     public <CapabilityType extends Capability> CapabilityType getCapability(
             final Class<CapabilityType> capabilityClass) {
-        final ClassIdentifier capabilityIdentifier = new ClassIdentifier(
-                capabilityClass);
-        final CapabilityWrapper capabilityWrapper = capabilities
-                .get(capabilityIdentifier);
-        if (capabilityWrapper == null) {
-            return null;
-        }
-        return capabilityClass.cast(capabilityWrapper.getCapability());
+        final Slot slot = slotsByClass.get(capabilityClass);
+        final Object[] current = resolved;
+        Object found = (slot.index < current.length) ? current[slot.index] : null;
+        if (found == null) found = resolve(slot);
+        return (found == ABSENT) ? null : capabilityClass.cast(found);
+    }
+
+    /**
+     * Look the slot's class up in the map and remember the answer.
+     */
+    private synchronized Object resolve(final Slot slot) {
+        Object[] current = resolved;
+        if (slot.index < current.length && current[slot.index] != null) return current[slot.index];
+        final CapabilityWrapper capabilityWrapper = capabilities.get(slot.identifier);
+        final Object found = (capabilityWrapper == null) ? ABSENT : capabilityWrapper.getCapability();
+        current = Arrays.copyOf(current, Math.max(current.length, slot.index + 1));
+        current[slot.index] = found;
+        resolved = current;
+        return found;
+    }
+
+    /**
+     * Forget resolved lookups and views after the capabilities change.
+     */
+    private synchronized void invalidate() {
+        resolved = new Object[0];
+        capabilitiesView = null;
+        mappingView = null;
     }
 
     @Override
@@ -132,6 +189,20 @@ public class CapabilityManager implements IEquippable {
         }
         capabilities.put(capability.getIdentifier(), new CapabilityWrapper(
                 capability));
+        invalidate();
+    }
+
+    /**
+     * The slot number and identifier of one capability class.
+     */
+    private static class Slot {
+        private final int index;
+        private final ClassIdentifier identifier;
+
+        Slot(final int index, final ClassIdentifier identifier) {
+            this.index = index;
+            this.identifier = identifier;
+        }
     }
 
     /**
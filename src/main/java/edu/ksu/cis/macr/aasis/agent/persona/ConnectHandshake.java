@@ -0,0 +1,113 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.aasis.common.IConnectionGuidelines;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The state of the connect handshake for one {@code IConnectionGuidelines}: a future completed when the connection is
+ * established, and when the next hello may be sent. Each hello not yet answered doubles the wait before the next one, up
+ * to a maximum, with a random jitter so agents that started together do not resend together.
+ */
+public class ConnectHandshake {
+    private static volatile long defaultBackoffMillis = 250;
+    private static volatile long defaultMaxBackoffMillis = 8000;
+    private final IConnectionGuidelines guidelines;
+    private final CompletableFuture<IConnectionGuidelines> connected = new CompletableFuture<>();
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private int attempts = 0;
+    private long nextAttemptMillis = 0;
+
+    private ConnectHandshake(final IConnectionGuidelines guidelines, final long backoffMillis,
+                             final long maxBackoffMillis) {
+        this.guidelines = guidelines;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        // completed however the guidelines come to be marked connected
+        guidelines.addConnectedListener(() -> connected.complete(guidelines));
+    }
+
+    /**
+     * Create the handshake for a connection, using the default backoff. A connection already marked connected starts
+     * complete.
+     *
+     * @param guidelines - the connection.
+     * @return - the ConnectHandshake created
+     */
+    public static ConnectHandshake createConnectHandshake(final IConnectionGuidelines guidelines) {
+        return new ConnectHandshake(guidelines, defaultBackoffMillis, defaultMaxBackoffMillis);
+    }
+
+    /**
+     * Set the backoff for handshakes created after this call.
+     *
+     * @param backoffMillis    - the wait after the first unanswered hello.
+     * @param maxBackoffMillis - the longest wait between hellos.
+     */
+    public static void setDefaultBackoff(final long backoffMillis, final long maxBackoffMillis) {
+        defaultBackoffMillis = Math.max(1, backoffMillis);
+        defaultMaxBackoffMillis = Math.max(defaultBackoffMillis, maxBackoffMillis);
+    }
+
+    /**
+     * Mark the connection established and complete the future.
+     *
+     * @return - true if this call completed it, false if it was already complete.
+     */
+    public boolean complete() {
+        final boolean completed = connected.complete(guidelines);
+        guidelines.setConnected(true);
+        return completed;
+    }
+
+    public boolean isConnected() {
+        return connected.isDone();
+    }
+
+    /**
+     * @param nowMillis - the current time.
+     * @return - true if the connection is not established and the wait since the last hello has passed.
+     */
+    public synchronized boolean isRetryDue(final long nowMillis) {
+        return !connected.isDone() && nowMillis >= nextAttemptMillis;
+    }
+
+    /**
+     * Record that a hello was sent and set when the next may be sent: half the backoff for this attempt plus a random
+     * part of the other half.
+     *
+     * @param nowMillis - the time the hello was sent.
+     */
+    public synchronized void attempted(final long nowMillis) {
+        final long backoff = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts, 20));
+        attempts++;
+        final long half = backoff / 2;
+        nextAttemptMillis = nowMillis + half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return - a future completed with the guidelines when the connection is established.
+     */
+    public CompletableFuture<IConnectionGuidelines> getFuture() {
+        return connected;
+    }
+
+    public IConnectionGuidelines getGuidelines() {
+        return guidelines;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConnectHandshake{" +
+                "other=" + guidelines.getOtherAgentAbbrev() +
+                ", connected=" + connected.isDone() +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -0,0 +1,135 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connects the persona of an organization concurrently. Each persona's connect capability sends its first hellos up and
+ * down, then runs rounds of connectToParents and connectToChildren on a bounded pool until it is fully connected. A
+ * persona that is not yet connected gives its thread back between rounds, so one waiting on a slow peer does not hold
+ * up the others, and its hello resends are paced by its handshakes' backoff.
+ * <p>
+ * When {@code connectbootstrap} in run.properties gives a number of threads, each {@code Organization} connects its
+ * persona with the {@code RunManager}'s bootstrap as soon as they are loaded.
+ */
+public class ConnectionBootstrap {
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionBootstrap.class);
+    private static final boolean debug = false;
+    private final int parallelism;
+    private final long roundMillis;
+
+    private ConnectionBootstrap(final int parallelism, final long roundMillis) {
+        this.parallelism = parallelism;
+        this.roundMillis = roundMillis;
+    }
+
+    /**
+     * Create a bootstrap coordinator.
+     *
+     * @param parallelism - the number of threads connecting persona at once.
+     * @param roundMillis - the pause between one persona's rounds of connection checks.
+     * @return - the ConnectionBootstrap created
+     */
+    public static ConnectionBootstrap createConnectionBootstrap(final int parallelism, final long roundMillis) {
+        return new ConnectionBootstrap(Math.max(1, parallelism), Math.max(0, roundMillis));
+    }
+
+    /**
+     * Connect every capability to its parents and children.
+     *
+     * @param capabilities  - the connect capability of each persona.
+     * @param timeoutMillis - the longest time to wait for all of them.
+     * @return - true if every capability is fully connected, false if the time ran out first.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public boolean connectAll(final Collection<? extends IHierarchicalConnectConnectCapability> capabilities,
+                              final long timeoutMillis) throws InterruptedException {
+        final CountDownLatch remaining = new CountDownLatch(capabilities.size());
+        final AtomicInteger threads = new AtomicInteger();
+        final ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(parallelism,
+                r -> new Thread(r, "bootstrap-" + threads.incrementAndGet()));
+        pool.setRemoveOnCancelPolicy(true);
+        try {
+            for (IHierarchicalConnectConnectCapability capability : capabilities) {
+                pool.execute(() -> {
+                    try {
+                        capability.connectUp();
+                        capability.connectDown();
+                    } catch (RuntimeException e) {
+                        LOG.error("ERROR: could not start connecting {}. {}", capability, e.toString());
+                        remaining.countDown();
+                        return;
+                    }
+                    round(pool, capability, remaining);
+                });
+            }
+            final boolean connected = remaining.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (!connected) LOG.error("ERROR: {} of {} persona not connected after {} ms.", remaining.getCount(),
+                    capabilities.size(), timeoutMillis);
+            return connected;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Connect every capability to its parents and children on a background thread, without waiting.
+     *
+     * @param capabilities  - the connect capability of each persona.
+     * @param timeoutMillis - the longest time to wait for all of them.
+     * @return - completes with true if every capability connected, or false if the time ran out first or the thread
+     * was interrupted.
+     */
+    public CompletableFuture<Boolean> connectAllInBackground(
+            final Collection<? extends IHierarchicalConnectConnectCapability> capabilities, final long timeoutMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return connectAll(capabilities, timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }, r -> {
+            final Thread thread = new Thread(r, "bootstrap-coordinator");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    private void round(final ScheduledThreadPoolExecutor pool, final IHierarchicalConnectConnectCapability capability,
+                       final CountDownLatch remaining) {
+        try {
+            capability.connectToParents();
+            capability.connectToChildren();
+            if (capability.isAllConnected()) {
+                if (debug) LOG.debug("Connected: {}.", capability);
+                remaining.countDown();
+                return;
+            }
+        } catch (RuntimeException e) {
+            LOG.error("ERROR: connecting {} failed. {}", capability, e.toString());
+            remaining.countDown();
+            return;
+        }
+        if (!pool.isShutdown()) pool.schedule(() -> round(pool, capability, remaining), roundMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionBootstrap{" +
+                "parallelism=" + parallelism +
+                ", roundMillis=" + roundMillis +
+                '}';
+    }
+}
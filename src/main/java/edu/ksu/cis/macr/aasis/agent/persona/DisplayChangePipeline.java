@@ -0,0 +1,106 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.obaa_pp.objects.IDisplayInformation;
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collects display changes for a viewer, keeping only the latest change per identifier until the viewer drains them.
+ * Changes are offered as suppliers, so a display object is only built for the changes the viewer actually reads, and
+ * it then shows the state at drain time. Identifiers are drained in the order they first changed.
+ */
+public class DisplayChangePipeline {
+    private final Map<UniqueIdentifier, Supplier<IDisplayInformation>> latest = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<UniqueIdentifier> order = new LinkedBlockingQueue<>();
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong built = new AtomicLong();
+
+    private DisplayChangePipeline() {
+    }
+
+    public static DisplayChangePipeline createDisplayChangePipeline() {
+        return new DisplayChangePipeline();
+    }
+
+    /**
+     * Record a change, replacing any change to the same identifier not yet drained.
+     *
+     * @param identifier         - the identifier of the changed object.
+     * @param displayInformation - builds the display object when the change is drained.
+     */
+    public void offer(final UniqueIdentifier identifier, final Supplier<IDisplayInformation> displayInformation) {
+        offered.incrementAndGet();
+        if (latest.put(identifier, displayInformation) == null) order.add(identifier);
+    }
+
+    /**
+     * Build and return every pending change without waiting.
+     *
+     * @return - the display objects, one per changed identifier.
+     */
+    public Collection<IDisplayInformation> drain() {
+        final List<UniqueIdentifier> identifiers = new ArrayList<>();
+        order.drainTo(identifiers);
+        return build(identifiers);
+    }
+
+    /**
+     * Wait for at least one change, then build and return every pending change.
+     *
+     * @return - the display objects, one per changed identifier.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public Collection<IDisplayInformation> take() throws InterruptedException {
+        while (true) {
+            final List<UniqueIdentifier> identifiers = new ArrayList<>();
+            identifiers.add(order.take());
+            order.drainTo(identifiers);
+            final Collection<IDisplayInformation> result = build(identifiers);
+            if (!result.isEmpty()) return result;
+        }
+    }
+
+    private Collection<IDisplayInformation> build(final List<UniqueIdentifier> identifiers) {
+        final Collection<IDisplayInformation> result = new ArrayList<>(identifiers.size());
+        for (UniqueIdentifier identifier : identifiers) {
+            final Supplier<IDisplayInformation> supplier = latest.remove(identifier);
+            if (supplier == null) continue;
+            final IDisplayInformation displayInformation = supplier.get();
+            if (displayInformation != null) result.add(displayInformation);
+        }
+        built.addAndGet(result.size());
+        return result;
+    }
+
+    /**
+     * Discard every pending change.
+     */
+    public void clear() {
+        order.clear();
+        latest.clear();
+    }
+
+    /**
+     * @return - the number of changes offered that were replaced by a later change before being built.
+     */
+    public long getCoalescedCount() {
+        return offered.get() - built.get() - latest.size();
+    }
+
+    @Override
+    public String toString() {
+        return "DisplayChangePipeline{" +
+                "pending=" + latest.size() +
+                ", offered=" + offered.get() +
+                ", built=" + built.get() +
+                '}';
+    }
+}
@@ -0,0 +1,308 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs each persona's turn as a task in one bounded work-stealing pool shared by every organization in the JVM. A
+ * single driver thread takes part in each organization's turn barrier on behalf of that organization's persona. Each
+ * round it submits one task per persona, calling its execute(), for every organization whose barrier has passed the
+ * turn the driver last arrived at; then it waits for those tasks to finish and arrives at each barrier without waiting.
+ * The persona's own run() loop is not used, so execute() must perform one turn without waiting on the turn barrier
+ * itself. The thread count is the pool's parallelism plus the driver, however many organizations and persona there
+ * are.
+ * <p>
+ * When every organization is waiting for its barrier to advance, the driver blocks in {@code awaitAdvance} on the first
+ * of them; starting a persona interrupts that wait. Each organization's turns are advanced by its own scheduler, as the
+ * simulation clock does, so the driver does not need to hear of them in the order they happen.
+ * <p>
+ * Each organization uses the view returned by {@code forTurnBarrier}. A view registers with its barrier when its first
+ * persona starts and deregisters when its last one stops, so an organization with nothing to run does not hold up or
+ * drive its turns.
+ */
+public class ForkJoinPersonaExecutor implements IPersonaExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(ForkJoinPersonaExecutor.class);
+    private static final boolean debug = false;
+    private final ForkJoinPool pool;
+    private final List<OrganizationTurns> organizations = new CopyOnWriteArrayList<>();
+    private final Map<TurnBarrier, OrganizationTurns> byBarrier = new ConcurrentHashMap<>();
+    private Thread driver;
+    private volatile boolean shutdown = false;
+
+    private ForkJoinPersonaExecutor(final int parallelism) {
+        final AtomicInteger workers = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            worker.setName("persona-worker-" + workers.incrementAndGet());
+            return worker;
+        }, null, false);
+    }
+
+    /**
+     * Create an executor that runs persona turns in a work-stealing pool. One is created per JVM, by the
+     * {@code RunManager}.
+     *
+     * @param parallelism - the number of pool threads.
+     * @return - the ForkJoinPersonaExecutor created
+     */
+    public static ForkJoinPersonaExecutor createForkJoinPersonaExecutor(final int parallelism) {
+        return new ForkJoinPersonaExecutor(parallelism);
+    }
+
+    /**
+     * @param turnBarrier - an organization's turn barrier.
+     * @return - the view that runs that organization's persona in the shared pool.
+     */
+    @Override
+    public IOrganizationPersonaExecutor forTurnBarrier(final TurnBarrier turnBarrier) {
+        return byBarrier.computeIfAbsent(turnBarrier, b -> {
+            final OrganizationTurns turns = new OrganizationTurns(b);
+            organizations.add(turns);
+            return turns;
+        });
+    }
+
+    /**
+     * Stops every persona, lets each organization's driver party leave its barrier at the end of the current turn, and
+     * then shuts the pool down.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        organizations.forEach(OrganizationTurns::stopAll);
+        synchronized (this) {
+            if (driver == null) pool.shutdown();
+            else LockSupport.unpark(driver);
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        int count = 0;
+        for (OrganizationTurns o : organizations) count += o.getActiveCount();
+        return count;
+    }
+
+    @Override
+    public PersonaExecutionMode getMode() {
+        return PersonaExecutionMode.FORKJOIN;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    private synchronized void wake() {
+        if (driver == null && !shutdown) {
+            driver = new Thread(this::drive, "persona-turns");
+            driver.setDaemon(true);
+            driver.start();
+        } else if (driver != null && driver != Thread.currentThread()) {
+            LockSupport.unpark(driver);
+            driver.interrupt();
+        }
+    }
+
+    /**
+     * Drives every organization's turns in rounds until shut down and every driver party has left its barrier. When no
+     * organization can start a turn, waits for the first one waiting on its barrier to advance, or with none
+     * registered, parks until a persona starts.
+     */
+    private void drive() {
+        long rounds = 0;
+        while (true) {
+            Thread.interrupted(); // a wake-up from before this scan
+            boolean started = false;
+            for (OrganizationTurns o : organizations) started |= o.beginTurn();
+            if (started) {
+                for (OrganizationTurns o : organizations) o.endTurn();
+                rounds++;
+                continue;
+            }
+            OrganizationTurns waiting = null;
+            for (OrganizationTurns o : organizations) {
+                if (o.isRegistered()) {
+                    waiting = o;
+                    break;
+                }
+            }
+            if (waiting != null) {
+                waiting.awaitAdvance();
+            } else if (shutdown) {
+                break;
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        pool.shutdown();
+        if (debug) LOG.debug("Persona turn driver ran {} rounds.", rounds);
+    }
+
+    private void runTurn(final OrganizationTurns turns, final IPersona persona) {
+        final String name = persona.getUniqueIdentifier().toString();
+        MDC.put(PERSONA_KEY, name);
+        try {
+            persona.execute();
+        } catch (RuntimeException e) {
+            LOG.error("ERROR: {} failed its turn and was stopped. {}", name, e.toString());
+            turns.stop(persona);
+        } finally {
+            MDC.remove(PERSONA_KEY);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ForkJoinPersonaExecutor{" +
+                "organizations=" + organizations.size() +
+                ", active=" + getActiveCount() +
+                ", parallelism=" + pool.getParallelism() +
+                ", steals=" + pool.getStealCount() +
+                '}';
+    }
+
+    /**
+     * One organization's persona and where its driver party is in the current turn. Turns are begun and ended only by
+     * the driver thread; starting and stopping persona may happen on any thread.
+     */
+    private final class OrganizationTurns implements IOrganizationPersonaExecutor {
+        private final TurnBarrier turnBarrier;
+        private final Map<UniqueIdentifier, IPersona> active = new ConcurrentHashMap<>();
+        private TurnBarrier.Party party;
+        private CompletableFuture<Void> turn;
+        private int arrivedPhase = -1;
+        private boolean stopped = false;
+
+        OrganizationTurns(final TurnBarrier turnBarrier) {
+            this.turnBarrier = turnBarrier;
+        }
+
+        @Override
+        public void start(final IPersona persona) {
+            synchronized (this) {
+                stopped = false;
+                active.put(persona.getUniqueIdentifier(), persona);
+                if (party == null && !shutdown) {
+                    party = turnBarrier.register();
+                    turn = null;
+                    arrivedPhase = -1;
+                }
+            }
+            wake();
+        }
+
+        @Override
+        public void stop(final IPersona persona) {
+            active.remove(persona.getUniqueIdentifier());
+        }
+
+        synchronized void stopAll() {
+            stopped = true;
+            active.clear();
+        }
+
+        synchronized boolean isRegistered() {
+            return party != null;
+        }
+
+        /**
+         * Submits a task for each persona if the barrier has passed the turn the driver party last arrived at. Leaves
+         * the barrier instead when there is nothing left to run.
+         *
+         * @return - true if a turn was started.
+         */
+        synchronized boolean beginTurn() {
+            if (party == null || turn != null) return false;
+            if (party.getPhase() < 0) {
+                party = null;
+                return false;
+            }
+            if (arrivedPhase >= 0 && party.getPhase() == arrivedPhase) return false;
+            if (active.isEmpty() || stopped) {
+                party.arriveAndDeregister();
+                party = null;
+                return false;
+            }
+            final CompletableFuture<?>[] tasks = new CompletableFuture<?>[active.size()];
+            int i = 0;
+            try {
+                for (IPersona persona : active.values()) {
+                    if (i == tasks.length) break;
+                    tasks[i++] = CompletableFuture.runAsync(() -> runTurn(this, persona), pool);
+                }
+            } catch (RejectedExecutionException e) {
+                stopped = true; // pool shut down while submitting
+            }
+            turn = CompletableFuture.allOf(Arrays.copyOf(tasks, i));
+            return true;
+        }
+
+        /**
+         * Waits for the barrier to pass the turn the driver party last arrived at, or for the driver to be woken.
+         */
+        void awaitAdvance() {
+            final TurnBarrier.Party current;
+            final int phase;
+            synchronized (this) {
+                current = party;
+                phase = arrivedPhase;
+            }
+            if (current == null || phase < 0) return;
+            try {
+                // outside the lock, so persona can be started and stopped while the driver waits
+                current.awaitAdvanceInterruptibly(phase);
+            } catch (InterruptedException e) {
+                if (debug) LOG.debug("Persona turn driver woken while waiting on {}.", turnBarrier);
+            }
+        }
+
+        /**
+         * Waits for the persona tasks of the turn begun last to finish and arrives at the barrier without waiting.
+         */
+        void endTurn() {
+            final CompletableFuture<Void> current;
+            synchronized (this) {
+                current = turn;
+                turn = null;
+            }
+            if (current == null) return;
+            current.handle((v, e) -> null).join();
+            synchronized (this) {
+                arrivedPhase = party.arrive();
+            }
+        }
+
+        @Override
+        public int getActiveCount() {
+            return active.size();
+        }
+
+        @Override
+        public PersonaExecutionMode getMode() {
+            return PersonaExecutionMode.FORKJOIN;
+        }
+
+        @Override
+        public String toString() {
+            return "ForkJoinPersonaExecutor.OrganizationTurns{" +
+                    "active=" + active.size() +
+                    ", registered=" + (party != null) +
+                    ", arrivedPhase=" + arrivedPhase +
+                    '}';
+        }
+    }
+}
@@ -6,27 +6,54 @@ import com.rabbitmq.client.ConsumerCancelledException;
 import com.rabbitmq.client.ShutdownSignalException;
 import edu.ksu.cis.macr.aasis.agent.cc_message.connect.*;
 import edu.ksu.cis.macr.aasis.agent.cc_p.ConnectionModel;
+import edu.ksu.cis.macr.aasis.agent.cc_p.ConnectivityTracker;
+import edu.ksu.cis.macr.aasis.common.AgentLink;
+import edu.ksu.cis.macr.aasis.common.AgentSymbolTable;
 import edu.ksu.cis.macr.aasis.common.IConnectionGuidelines;
 import edu.ksu.cis.macr.aasis.common.IConnections;
 import edu.ksu.cis.macr.aasis.messaging.IMessagingFocus;
+import edu.ksu.cis.macr.aasis.messaging.MessagingFocus;
+import edu.ksu.cis.macr.aasis.messaging.MessagingManager;
 import edu.ksu.cis.macr.obaa_pp.objects.IDisplayInformation;
 import edu.ksu.cis.macr.organization.model.InstanceGoal;
 import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 /**
  * The {@code ConnectCapability} implements communication capabilities needed to establish initial connections. To monitor
  * RabbitMQ, point a browser to (the final slash is required): http://localhost:15672/ and login with: guest / guest
  */
-public class HierarchicalConnectCapability extends AbstractOrganizationCapability implements IHierarchicalConnectConnectCapability {
+public class HierarchicalConnectCapability extends AbstractOrganizationCapability implements IHierarchicalConnectConnectCapability, ISnapshotCapability {
   private static IMessagingFocus messagingFocus ;
  protected static String COMMUNICATION_CHANNEL_ID = "HierarchicalConnectCommunicationChannel";
     private static final Logger LOG = LoggerFactory.getLogger(HierarchicalConnectCapability.class);
     private static final boolean debug = false;
+    /**
+     * The handshakes not yet complete, by the agent and the other agent, so a connection recorded by either side
+     * completes the handshakes of both.
+     */
+    private static final Map<AgentLink, ConnectHandshake> awaiting = new ConcurrentHashMap<>();
+
+    static {
+        ConnectionModel.addConnectionListener((first, second) -> {
+            completeAwaiting(first, second);
+            completeAwaiting(second, first);
+        });
+    }
+
+    /**
+     * @deprecated A single channel shared by every persona is not safe for concurrent publishing. Use
+     * {@code MessagingManager.getChannel(focus)}, which returns a channel owned by the calling thread.
+     */
+    @Deprecated
     protected static Channel channel;
     protected final UniqueIdentifier myID;
     protected IPersona ec;
@@ -37,7 +64,21 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
     protected IConnections childConnections = null;
     protected IConnections parentConnections = null;
     protected boolean allConnected = false;
-
+    /**
+     * The handshake for each connection, created when the connection is first checked or sent a hello.
+     */
+    protected final Map<IConnectionGuidelines, ConnectHandshake> handshakes = new ConcurrentHashMap<>();
+    /**
+     * The parent and child connections not yet established. A connection leaves its set when its handshake completes,
+     * which it does however the guidelines come to be marked connected, e.g. by {@code setConnected(true)}.
+     */
+    protected final Set<IConnectionGuidelines> unconnectedParents = ConcurrentHashMap.newKeySet();
+    protected final Set<IConnectionGuidelines> unconnectedChildren = ConcurrentHashMap.newKeySet();
+    private CompletableFuture<Void> allConnectedFuture;
+    private List<?> trackedParents;
+    private List<?> trackedChildren;
+    private int trackedParentCount;
+    private int trackedChildCount;
 
 
     /**
@@ -89,18 +130,8 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         return "TEMP";
     }
 
-    protected synchronized static boolean alreadyInConnectionList(final String myPersona, final String other) {
-        // assume I'm before other alphabetically
-        String first = myPersona;
-        String second = other;
-
-        // if instead, receiver comes before sender alphabetically, adjust
-        if (other.compareTo(myPersona) < 0) {
-            first = other;
-            second = myPersona;
-        }
-        final String connection = first + " - " + second;
-        return ConnectionModel.includes(connection);
+    protected static boolean alreadyInConnectionList(final String myPersona, final String other) {
+        return ConnectionModel.includes(myPersona, other);
     }
 
     protected void sendREMOTE(final IConnectMessage message) {
@@ -110,7 +141,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
     }
 
     public static String buildQueueLinkFromSenderAndReceiver(final String remoteSender, final String remoteReceiver) {
-        return remoteSender + "-" + remoteReceiver;
+        return AgentSymbolTable.link(remoteSender, remoteReceiver).getQueueLink();
     }
 
 
@@ -122,11 +153,150 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
     public synchronized void setChildConnections(final IConnections childConnections) {
         this.childConnections = childConnections;
+        expectConnections(childConnections);
     }
 
+    /**
+     * Register the connections in the guidelines with the {@code ConnectivityTracker} as soon as they are loaded, so
+     * it knows the whole set before any handshake starts.
+     */
+    private void expectConnections(final IConnections guidelines) {
+        if (ec == null || guidelines == null || guidelines.getListConnectionGuidelines() == null) return;
+        final List<String> others = new ArrayList<>();
+        for (IConnectionGuidelines cg : guidelines.getListConnectionGuidelines()) {
+            others.add(cg.getOtherAgentAbbrev().trim());
+        }
+        ConnectivityTracker.INSTANCE.expectConnections(ec.getUniqueIdentifier().toString(), others);
+    }
+
+    /**
+     * As before, a connection counts as established when its guidelines are marked connected or the
+     * {@code ConnectionModel} already has it, and checking completes its handshake; only the connections not yet
+     * established are checked.
+     *
+     * @return - true once every parent and child connection is established.
+     */
     @Override
     public boolean isAllConnected() {
-        return ((parentConnectionsStillNeeded()+childConnectionsStillNeeded())<1);
+        return (parentConnectionsStillNeeded() + childConnectionsStillNeeded()) < 1;
+    }
+
+    /**
+     * @return - a future completed when the handshake with every current parent and child has completed.
+     */
+    public CompletableFuture<Void> getAllConnectedFuture() {
+        trackGuidelines();
+        return allConnectedFuture;
+    }
+
+    /**
+     * Rebuilds the unconnected sets and the all-connected future when the parent or child guidelines have been replaced.
+     */
+    private synchronized void trackGuidelines() {
+        final List<?> parents = (getParentConnections() == null) ? null : getParentConnections().getListConnectionGuidelines();
+        final List<?> children = (getChildConnections() == null) ? null : getChildConnections().getListConnectionGuidelines();
+        if (allConnectedFuture != null && parents == trackedParents && children == trackedChildren
+                && size(parents) == trackedParentCount && size(children) == trackedChildCount) return;
+        unconnectedParents.clear();
+        unconnectedChildren.clear();
+        final List<CompletableFuture<?>> futures = new ArrayList<>();
+        if (!noParents()) getParentConnections().getListConnectionGuidelines().forEach(cg -> track(cg, unconnectedParents, futures));
+        if (!noChildren()) getChildConnections().getListConnectionGuidelines().forEach(cg -> track(cg, unconnectedChildren, futures));
+        allConnectedFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+        trackedParents = parents;
+        trackedChildren = children;
+        trackedParentCount = size(parents);
+        trackedChildCount = size(children);
+    }
+
+    private static int size(final List<?> guidelines) {
+        return (guidelines == null) ? 0 : guidelines.size();
+    }
+
+    /**
+     * Completes the handshake of each connection in the set whose guidelines are marked connected or that the
+     * {@code ConnectionModel} already has.
+     *
+     * @return - the number of connections in the set still not established.
+     */
+    private int stillNeeded(final Set<IConnectionGuidelines> unconnected) {
+        final String myPersona = ec.getUniqueIdentifier().toString();
+        for (IConnectionGuidelines cg : unconnected) {
+            if (cg.isConnected() || alreadyInConnectionList(myPersona, cg.getOtherAgentAbbrev().trim())) {
+                handshake(cg).complete();
+            }
+        }
+        return unconnected.size();
+    }
+
+    private void track(final IConnectionGuidelines cg, final Set<IConnectionGuidelines> unconnected,
+                       final List<CompletableFuture<?>> futures) {
+        unconnected.add(cg);
+        final CompletableFuture<IConnectionGuidelines> future = handshake(cg).getFuture();
+        future.thenRun(() -> unconnected.remove(cg));
+        futures.add(future);
+    }
+
+    private static void completeAwaiting(final String agent, final String other) {
+        final ConnectHandshake handshake = awaiting.get(AgentSymbolTable.link(agent, other));
+        if (handshake != null) handshake.complete();
+    }
+
+    /**
+     * @param cg - a parent or child connection.
+     * @return - a future completed with the guidelines when the connection is established.
+     */
+    public CompletableFuture<IConnectionGuidelines> getConnectedFuture(final IConnectionGuidelines cg) {
+        return handshake(cg).getFuture();
+    }
+
+    /**
+     * Get the handshake for a connection, creating it and telling the {@code ConnectivityTracker} to expect the
+     * connection the first time. A handshake not yet complete is completed when the {@code ConnectionModel} records the
+     * connection, whichever side records it.
+     */
+    protected ConnectHandshake handshake(final IConnectionGuidelines cg) {
+        return handshakes.computeIfAbsent(cg, g -> {
+            final String myPersona = ec.getUniqueIdentifier().toString();
+            final String other = g.getOtherAgentAbbrev().trim();
+            ConnectivityTracker.INSTANCE.expectConnection(myPersona, other);
+            final ConnectHandshake handshake = ConnectHandshake.createConnectHandshake(g);
+            if (!handshake.isConnected()) {
+                final AgentLink key = AgentSymbolTable.link(myPersona, other);
+                awaiting.put(key, handshake);
+                handshake.getFuture().thenRun(() -> awaiting.remove(key, handshake));
+                // recorded before we started waiting
+                if (alreadyInConnectionList(myPersona, other)) handshake.complete();
+            }
+            return handshake;
+        });
+    }
+
+    /**
+     * Mark a connection established and complete its handshake.
+     *
+     * @param cg - the connection.
+     * @return - true if the connection was not already marked established.
+     */
+    protected boolean markConnected(final IConnectionGuidelines cg) {
+        return handshake(cg).complete();
+    }
+
+    /**
+     * Send a hello for a connection not yet established, if its backoff has passed since the last one.
+     *
+     * @param cg        - the connection.
+     * @param myPersona - the agent sending the hello.
+     * @return - true if a hello was sent.
+     */
+    protected boolean sendHelloIfDue(final IConnectionGuidelines cg, final String myPersona) {
+        final ConnectHandshake handshake = handshake(cg);
+        final long now = System.currentTimeMillis();
+        if (!handshake.isRetryDue(now)) return false;
+        handshake.attempted(now);
+        sendRemoteHelloMessage(cg.getOtherAgentAbbrev().trim(), cg.getOrganizationAbbrev().trim(),
+                cg.getExpectedMasterAbbrev().trim(), myPersona);
+        return true;
     }
 
     @Override
@@ -153,6 +323,68 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
     public void reset() {
     }
 
+    /**
+     * Writes which child and parent connections are established, by the other agent's abbreviation.
+     *
+     * @param out - the checkpoint section for this capability.
+     * @throws IOException - if the state cannot be written.
+     */
+    @Override
+    public synchronized void writeState(final DataOutput out) throws IOException {
+        out.writeBoolean(this.allConnected);
+        writeGuidelines(out, this.childConnections);
+        writeGuidelines(out, this.parentConnections);
+    }
+
+    /**
+     * Marks the child and parent connections established when the checkpoint was written. Guidelines not yet initialized
+     * from their goal are marked from the restored {@code ConnectionModel} when they are first checked.
+     *
+     * @param in - the checkpoint section for this capability.
+     * @throws IOException - if the state cannot be read.
+     */
+    @Override
+    public synchronized void readState(final DataInput in) throws IOException {
+        this.allConnected = in.readBoolean();
+        readGuidelines(in, this.childConnections);
+        readGuidelines(in, this.parentConnections);
+    }
+
+    private static void writeGuidelines(final DataOutput out, final IConnections connections) throws IOException {
+        if (connections == null || connections.getListConnectionGuidelines() == null) {
+            out.writeInt(0);
+            return;
+        }
+        final List<? extends IConnectionGuidelines> list = connections.getListConnectionGuidelines();
+        out.writeInt(list.size());
+        for (IConnectionGuidelines cg : list) {
+            out.writeUTF(cg.getOtherAgentAbbrev());
+            out.writeBoolean(cg.isConnected());
+            out.writeBoolean(cg.isRegistered());
+        }
+    }
+
+    private void readGuidelines(final DataInput in, final IConnections connections) throws IOException {
+        final Map<String, IConnectionGuidelines> byOther = new HashMap<>();
+        if (connections != null && connections.getListConnectionGuidelines() != null) {
+            for (IConnectionGuidelines cg : connections.getListConnectionGuidelines()) {
+                byOther.put(cg.getOtherAgentAbbrev(), cg);
+            }
+        }
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final String other = in.readUTF();
+            final boolean connected = in.readBoolean();
+            final boolean registered = in.readBoolean();
+            final IConnectionGuidelines cg = byOther.get(other);
+            if (cg == null) continue;
+            cg.setConnected(connected);
+            cg.setRegistered(registered);
+            if (connected) markConnected(cg);
+            setIsConnected(cg, connected);
+        }
+    }
+
     @Override
     public void channelContent(final Object content) {
         localMessages.add((IConnectMessage) content);
@@ -165,7 +397,13 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
     }
 
     @Override
-    public synchronized boolean checkUpConnections() {
+    public boolean checkUpConnections() {
+        final boolean connected = checkUpConnectionsRound();
+        flushRemoteMessages();
+        return connected;
+    }
+
+    private synchronized boolean checkUpConnectionsRound() {
         if (debug) LOG.debug("Beginning attempts to connect to all brokers.");
         int tot = 0;
         if (noParents()) {
@@ -178,7 +416,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             if (parentConnectionsStillNeeded() == 0) {
                 this.allConnected = true;
             } else {
-                this.getParentConnections().getListConnectionGuidelines().stream().filter(cg -> !cg.isConnected()).forEach(cg -> {
+                unconnectedParents.forEach(cg -> {
                     try {
                         boolean parentConnected = connectToParent(cg);
                         if (debug)
@@ -191,7 +429,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             }
         }
         this.allConnected = (parentConnectionsStillNeeded() == 0);
-        if (parentConnectionsStillNeeded()>0) {LOG.info("{} of {} connections to fully connect to brokers.",this.parentConnectionsStillNeeded(), tot);}
+        if (debug && parentConnectionsStillNeeded()>0) {LOG.debug("{} of {} connections to fully connect to brokers.",this.parentConnectionsStillNeeded(), tot);}
         return this.allConnected;
     }
 
@@ -201,29 +439,74 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         connectUp();
     }
 
+    /**
+     * Receive the next connect message on the queue without blocking, from the exchange for {@code getConnectFocus()}.
+     */
     @Override
     public IConnectMessage remoteRECEIVE(final String queueLink) throws IOException, ShutdownSignalException, InterruptedException {
-        LOG.error("remoteRECEIVE() too general - do not use. ");
-        System.exit(-99);
-        return null;
+        return receiveConnectMessage(getConnectFocus(), queueLink);
     }
 
-    @Override
-    public List<? extends IConnectionGuidelines> getUnconnectedChildren() {
-        List<IConnectionGuidelines> unconnected = new ArrayList<>();
-        if (noChildren()) {
-            return unconnected;
+    /**
+     * @return - the messaging focus of the exchange carrying this capability's connect messages. Specialized capabilities
+     * using another exchange override this.
+     */
+    protected IMessagingFocus getConnectFocus() {
+        return MessagingFocus.GENERAL;
+    }
+
+    /**
+     * Receive the next connect message on the given queue without blocking. When asynchronous consumers are enabled in
+     * the {@code MessagingManager}, this is a poll of the local inbox and does not contact the broker. The base
+     * {@code remoteRECEIVE} delegates here.
+     *
+     * @param focus     - the messaging focus of the queue.
+     * @param queueLink - the sender-receiver link identifying the queue.
+     * @return - the connect message received, or null if none is waiting.
+     * @throws IOException - if the broker could not be reached.
+     */
+    protected IConnectMessage receiveConnectMessage(final IMessagingFocus focus, final String queueLink) throws IOException {
+        final byte[] body = MessagingManager.receive(focus, queueLink);
+        if (body == null) return null;
+        try {
+            return (IConnectMessage) ConnectMessage.createEmptyConnectMessage().deserialize(body);
+        } catch (Exception e) {
+            LOG.error("ERROR: could not deserialize connect message on {}. {}", queueLink, e.getMessage());
+            return null;
         }
+    }
+
+    /**
+     * Publish a remote connect message to its receiver's queue. Specialized capabilities can implement {@code sendREMOTE}
+     * by delegating here. When batch publishing is enabled, the message is held until the current round of connection
+     * checks ends.
+     *
+     * @param focus   - the messaging focus of the queue.
+     * @param message - the remote connect message.
+     * @throws IOException - if the message could not be encoded or the broker could not be reached.
+     */
+    protected void publishConnectMessage(final IMessagingFocus focus, final IConnectMessage message) throws IOException {
+        final String queueLink = buildQueueLinkFromSenderAndReceiver(message.getRemoteSender(), message.getRemoteReceiver());
+        MessagingManager.publish(focus, queueLink, message.serialize());
+    }
 
-        List<? extends IConnectionGuidelines> listConnectionGuidelines = getChildConnections().getListConnectionGuidelines();
-        for (IConnectionGuidelines cg : listConnectionGuidelines){
-            if (!cg.isConnected()){           unconnected.add(cg);        }
+    /**
+     * Publish the remote messages held back during this round of connection checks. The synchronized rounds call this
+     * after releasing the capability's lock, as publishing may wait for room in the publish window.
+     */
+    protected void flushRemoteMessages() {
+        try {
+            MessagingManager.flush();
+        } catch (IOException e) {
+            LOG.error("ERROR: flushing remote connect messages ({})", e.getMessage());
         }
+    }
 
-        //  unconnected.addAll(listConnectionGuidelines.stream().filter(cg -> !cg.isConnected()).collect(Collectors.toList()));
-        final int tot = getChildConnections().getListConnectionGuidelines().size();
-        int connectionsStillNeeded = unconnected.size();
-        if (debug) LOG.debug("Need {} of {} auction connections to fully connect.", connectionsStillNeeded, tot);
+    @Override
+    public List<? extends IConnectionGuidelines> getUnconnectedChildren() {
+        trackGuidelines();
+        final List<IConnectionGuidelines> unconnected = new ArrayList<>(unconnectedChildren);
+        if (debug) LOG.debug("Need {} auction connections to fully connect.", unconnected.size());
         return unconnected;
     }
 
@@ -235,19 +518,9 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
     @Override
     public List<? extends IConnectionGuidelines> getUnconnectedParents() {
-        List<IConnectionGuidelines> unconnected = new ArrayList<>();
-        if (noParents()) {
-            return unconnected;
-        }
-
-        List<? extends IConnectionGuidelines> listConnectionGuidelines = getParentConnections().getListConnectionGuidelines();
-        for (IConnectionGuidelines cg : listConnectionGuidelines){
-            if (!cg.isConnected()){           unconnected.add(cg);        }
-        }
-        //  unconnected.addAll(listConnectionGuidelines.stream().filter(cg -> !cg.isConnected()).collect(Collectors.toList()));
-        final int tot = getParentConnections().getListConnectionGuidelines().size();
-        int connectionsStillNeeded = unconnected.size();
-        if (debug) LOG.debug("Need {} of {} connections to fully connect to brokers.", connectionsStillNeeded, tot);
+        trackGuidelines();
+        final List<IConnectionGuidelines> unconnected = new ArrayList<>(unconnectedParents);
+        if (debug) LOG.debug("Need {} connections to fully connect to brokers.", unconnected.size());
         return unconnected;
     }
 
@@ -340,7 +613,12 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
 
     @Override
-    public synchronized void connectDown() {
+    public void connectDown() {
+        connectDownRound();
+        flushRemoteMessages();
+    }
+
+    private synchronized void connectDownRound() {
         if (noChildren()) {
             LOG.info("Can't setup and send connects to subs as there are no children. {}", this.getChildConnections());
             return;
@@ -355,6 +633,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
             // send a hello message to this authorized connection
             sendRemoteHelloMessage(other, org, master, myPersona);
+            handshake(g).attempted(System.currentTimeMillis());
         }
     }
 
@@ -365,7 +644,12 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
     }
 
     @Override
-    public synchronized void connectUp() {
+    public void connectUp() {
+        connectUpRound();
+        flushRemoteMessages();
+    }
+
+    private synchronized void connectUpRound() {
         LOG.info("Entering connectUp()");
         if (noParents()) {
             LOG.info("No parents. {}", this.getParentConnections());
@@ -379,6 +663,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             final String myPersona = ec.getUniqueIdentifier().toString();
            LOG.info("Setting up messaging for agent {} connecting to parent {}.", myPersona, other);
             sendRemoteHelloMessage(other, org, master, myPersona);
+            handshake(g).attempted(System.currentTimeMillis());
         }
     }
 
@@ -389,6 +674,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
     public synchronized void setParentConnections(IConnections parentConnections) {
         this.parentConnections = parentConnections;
+        expectConnections(parentConnections);
     }
 
     @Override
@@ -398,7 +684,13 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         return s;
     }
 
-    public synchronized boolean checkDownConnections() {
+    public boolean checkDownConnections() {
+        final boolean connected = checkDownConnectionsRound();
+        flushRemoteMessages();
+        return connected;
+    }
+
+    private synchronized boolean checkDownConnectionsRound() {
         if (debug) LOG.debug("Beginning attempts to connect to all participants.");
         int tot = 0;
         if (noChildren()) {
@@ -410,7 +702,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             if (childConnectionsStillNeeded() == 0) {
                 this.allConnected = true;
             } else {
-                for (IConnectionGuidelines cg : getChildConnections().getListConnectionGuidelines()) {
+                for (IConnectionGuidelines cg : unconnectedChildren) {
                     try {
                         boolean isConnected = connectToChild(cg);
                         if (debug)
@@ -426,7 +718,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             }
         }
 
-        if (childConnectionsStillNeeded() > 0) LOG.info("Exiting checkDownConnections. ALL_CONNECTED={}, Need {} of {} connections to fully connect.", this.allConnected, this.childConnectionsStillNeeded(), tot);
+        if (debug && childConnectionsStillNeeded() > 0) LOG.debug("Exiting checkDownConnections. ALL_CONNECTED={}, Need {} of {} connections to fully connect.", this.allConnected, this.childConnectionsStillNeeded(), tot);
         return this.allConnected;
     }
 
@@ -455,7 +747,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             if (childConnectionsStillNeeded() == 0) {
                 this.allConnected = true;
             } else {
-                for (IConnectionGuidelines cg : getChildConnections().getListConnectionGuidelines()) {
+                for (IConnectionGuidelines cg : unconnectedChildren) {
                     try {
                         boolean isConnected = connectToChild(cg);
                         if (debug)
@@ -466,20 +758,28 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
                     }
                 }
                 resendToUnconnectedChildren();
+                flushRemoteMessages();
                 // check again and if no additional connections are still needed return true (completely connected)
                 this.allConnected = (childConnectionsStillNeeded() == 0);
             }
         }
-        if (childConnectionsStillNeeded() > 0){LOG.info("Need {} of {} child connections to fully connect.", childConnectionsStillNeeded(), tot);}
+        if (debug && childConnectionsStillNeeded() > 0){LOG.debug("Need {} of {} child connections to fully connect.", childConnectionsStillNeeded(), tot);}
 
         return this.allConnected;
     }
 
     @Override
-    public synchronized boolean connectToParents() {
+    public boolean connectToParents() {
+        final boolean connected = connectToParentsRound();
+        flushRemoteMessages();
+        return connected;
+    }
+
+    private synchronized boolean connectToParentsRound() {
         if (debug) LOG.debug("Beginning attempts to connect to all super holons.");
         if (noParents()) {
             this.allConnected = true;
+            return true;
         }
         final int tot = this.getParentConnections().getListConnectionGuidelines().size();
         if (this.parentConnectionsStillNeeded() > 0)
@@ -487,7 +787,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         if (parentConnectionsStillNeeded() == 0) {
             this.allConnected = true;
         }
-        for (IConnectionGuidelines cg : this.getParentConnections().getListConnectionGuidelines()) {
+        for (IConnectionGuidelines cg : unconnectedParents) {
             try {
                 boolean parentConnected = connectToParent(cg);
                 if (debug)
@@ -509,31 +809,12 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         return MIN_FAILURE;
     }
 
-    protected synchronized int childConnectionsStillNeeded() {
-        if (noChildren()) return 0;
-        final String myPersona = ec.getUniqueIdentifier().toString();
-        int connectionsStillNeeded = 0;
-
-        List<? extends IConnectionGuidelines> listConnectionGuidelines = getChildConnections().getListConnectionGuidelines();
-        for (IConnectionGuidelines cg : listConnectionGuidelines) {
-            if (alreadyInConnectionList(myPersona, cg.getOtherAgentAbbrev())) {
-                cg.setConnected(true);
-                LOG.info("Already in list: {}.",cg.getOtherAgentAbbrev());
-            }
-            else {
-                LOG.debug("NOT already in list: me={} other={}.",myPersona, cg.getOtherAgentAbbrev());
-                if (!cg.isConnected()) {
-
-                    connectionsStillNeeded += 1;
-                    LOG.debug("NOT connected: {}. Child connections still needed=",cg.getOtherAgentAbbrev(),connectionsStillNeeded);
-                }
-            }
-        }
-        final int tot = getChildConnections().getListConnectionGuidelines().size();
-        if (connectionsStillNeeded >0){
-            LOG.info("Need {} of {} child connections to fully connect to participants.", connectionsStillNeeded, tot);
-        }
-        return connectionsStillNeeded;
+    /**
+     * @return - the number of child connections not yet established, checked against the {@code ConnectionModel}.
+     */
+    protected int childConnectionsStillNeeded() {
+        trackGuidelines();
+        return stillNeeded(unconnectedChildren);
     }
 
     protected boolean noChildren() {
@@ -552,15 +833,16 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
     protected synchronized boolean connectToChild(IConnectionGuidelines cg) {
         final String other = cg.getOtherAgentAbbrev();
-        final String org = cg.getOrganizationAbbrev();
-        final String master = cg.getExpectedMasterAbbrev();
         final String myPersona = ec.getUniqueIdentifier().toString();
 
         if (alreadyInConnectionList(myPersona, other)) {
-            cg.setConnected(true);
+            markConnected(cg);
             LOG.debug("CONNECTED. Broker {} already in the conn list to participant {}.", myPersona, other);
         }
-        if (cg.isConnected()) return true;
+        if (cg.isConnected()) {
+            markConnected(cg);
+            return true;
+        }
 
         if (debug) LOG.debug("broker {} not yet connected to participant {}. Checking for hello.", myPersona, other);
         final IConnectMessage helloMessage = checkForRemoteConnectMessage(other, myPersona);
@@ -571,7 +853,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             try {
                 final String sender = helloMessage.getRemoteSender();  // other
                 final String receiver = helloMessage.getRemoteReceiver();  // me
-                cg.setConnected(true);
+                markConnected(cg);
                 updateConnectionList(sender, receiver);
                 LOG.info("EVENT: CONNECTION_ESTABLISHED. {} now connected to participant {}.",  receiver, sender);
             } catch (Exception e) {
@@ -580,7 +862,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             }
         } else {
             if (debug) LOG.debug("No connect received. broker {} sending again to participant {}.", myPersona, other);
-            sendRemoteHelloMessage(other, org, master, myPersona);
+            sendHelloIfDue(cg, myPersona);
         }
         return cg.isConnected();
     }
@@ -604,21 +886,11 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
     protected synchronized void updateConnectionList(final String sender, final String receiver) {
         if (debug) LOG.debug("ERROR SHOULD OVERWRITE updateConnectionList() with sender ={} and receiver={}.", sender, receiver);
-        // assume sender comes before receiver alphabetically
-        String first = sender;
-        String second = receiver;
-        // if instead, reciever comes before sender alphabetically, adjust
-        if (receiver.compareTo(sender) < 0) {
-            first = receiver;
-            second = sender;
-        }
-        TreeSet<String> conns = ConnectionModel.getConnectionSet();
-        if (debug) LOG.debug("The connection set already had {} entries.", conns.size());
-        //add it (only in the alphabetical order - don't duplicate the connection)
-        final String connection = first + " - " + second + "\n";
-        ConnectionModel.insertNewConnection(connection);
+        if (debug) LOG.debug("The connection set already had {} entries.", ConnectionModel.getCountConnections());
+        // the model keeps each pair once, in alphabetical order
+        ConnectionModel.insertNewConnection(sender, receiver);
 
-        final int numConnections = ConnectionModel.getConnectionSet().size();
+        final int numConnections = ConnectionModel.getCountConnections();
 //        final int totalPossibleParentConnections = 2 * (RunManager.getCountAllAgents() - 1);
 //        final int hnum = ConnectionModel.getCountHomeConnections();
 //        LOG.info("{}", ConnectionModel.getSummaryString());
@@ -627,19 +899,15 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
 
     public synchronized boolean connectToParent(IConnectionGuidelines cg) {
         final String other = cg.getOtherAgentAbbrev();
-        final String org = cg.getOrganizationAbbrev();
-        final String master = cg.getExpectedMasterAbbrev();
         final String myPersona = ec.getUniqueIdentifier().toString();
         if (debug) LOG.info("participant {} attempting to connect to parent {}.", myPersona, other);
 
-        if (alreadyInConnectionList(myPersona, other)) {
-            cg.setConnected(true);
-        }
-        if (cg.isConnected()) {
+        if (alreadyInConnectionList(myPersona, other) || cg.isConnected()) {
+            markConnected(cg);
             return true;
         }
 
-        LOG.info("participant {} not connected to parent {} yet.", myPersona, other);
+        if (debug) LOG.debug("participant {} not connected to parent {} yet.", myPersona, other);
         if (debug) LOG.debug("Checking for message from parent {}.", other);
         IConnectMessage helloMessage = checkForRemoteConnectMessage(other, myPersona);
 
@@ -651,18 +919,11 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             final String receiver = helloMessage.getRemoteReceiver();
 
             if (receiver.equals(myPersona) && sender.equals(other)) {
-                cg.setConnected(true);
+                markConnected(cg);
                 if (debug)
                     LOG.debug("Updating connections to show {} to super {} is {}.", receiver, sender, cg.isConnected());
                 updateConnectionList(sender, receiver);
                 LOG.info("EVENT: CONNECTION_ESTABLISHED. participant {} now connected to {}.",  receiver, sender);
-                //  wait for a bit and let others work
-                try {
-                    Thread.sleep(4 * 1000);
-                } catch (InterruptedException e) {
-                    LOG.error("Process errored out while waiting.", ec.getUniqueIdentifier().toString());
-                    System.exit(-43);
-                }
             } else {
                 LOG.error("ERROR: {} picked up a message for {}.", myPersona, receiver);
                 System.exit(-91);
@@ -670,8 +931,8 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         } // end hello received
 
         else {
-            LOG.debug("No connect received. participant {} sending again to broker {}.", myPersona, other);
-            sendRemoteHelloMessage(other, org, master, myPersona);
+            if (debug) LOG.debug("No connect received. participant {} sending again to broker {}.", myPersona, other);
+            sendHelloIfDue(cg, myPersona);
         }
         return cg.isConnected();
     }
@@ -680,25 +941,12 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         return this;
     }
 
-    protected synchronized int parentConnectionsStillNeeded() {
-        if (noParents()) {
-            return 0;
-        }
-        String myPersona = ec.getUniqueIdentifier().toString();
-        int connectionsStillNeeded = 0;
-
-        List<? extends IConnectionGuidelines> listConnectionGuidelines = getParentConnections().getListConnectionGuidelines();
-        for (IConnectionGuidelines cg : listConnectionGuidelines) {
-
-            if (alreadyInConnectionList(myPersona, cg.getOtherAgentAbbrev())) {
-                cg.setConnected(true);
-            }
-            if (!cg.isConnected()) connectionsStillNeeded += 1;
-        }
-        final int tot = getParentConnections().getListConnectionGuidelines().size();
-        if (debug)
-            LOG.debug("Need {} of {} broker connections to fully connect to brokers.", connectionsStillNeeded, tot);
-        return connectionsStillNeeded;
+    /**
+     * @return - the number of parent connections not yet established, checked against the {@code ConnectionModel}.
+     */
+    protected int parentConnectionsStillNeeded() {
+        trackGuidelines();
+        return stillNeeded(unconnectedParents);
     }
 
     protected boolean noParents() {
@@ -708,7 +956,7 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
             if (this.getParentConnections() == null || this.getParentConnections().getListConnectionGuidelines() == null ||
                     this.getParentConnections().getListConnectionGuidelines().isEmpty()) {
                 noParents = true;
-                LOG.info("{} has no broker.", owner.getIdentifierString());
+                if (debug) LOG.debug("{} has no broker.", owner.getIdentifierString());
             }
         } catch (Exception e) {
             LOG.error("Error checking to see if {} has no parents. parentConnections = {}", owner.getIdentifierString(), this.getParentConnections());
@@ -718,15 +966,14 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         return noParents;
     }
 
+    /**
+     * Send another hello to each unconnected child whose backoff has passed.
+     */
     protected void resendToUnconnectedChildren() {
-        getChildConnections().getListConnectionGuidelines().stream().filter(g -> !g.isConnected()).forEach(g -> {
-            if (debug) LOG.debug("Setting up queues and bindings to re-connect downwards: {}.", g);
-            final String other = g.getOtherAgentAbbrev().trim();
-            final String org = g.getOrganizationAbbrev().trim();
-            final String master = g.getExpectedMasterAbbrev().trim();
-            final String myPersona = ec.getUniqueIdentifier().toString();
-            if (debug) LOG.debug("Parent {} re-connecting to child {}.", myPersona, other);
-            sendRemoteHelloMessage(other, org, master, myPersona);
+        final String myPersona = ec.getUniqueIdentifier().toString();
+        unconnectedChildren.forEach(g -> {
+            if (sendHelloIfDue(g, myPersona) && debug)
+                LOG.debug("Parent {} re-connecting to child {}.", myPersona, g.getOtherAgentAbbrev());
         });
     }
 
@@ -762,15 +1009,14 @@ public class HierarchicalConnectCapability extends AbstractOrganizationCapabilit
         return ConnectMessage.createRemoteConnectMessage(myPersona, other, ConnectPerformative.SENDING_HELLO, content);
     }
 
+    /**
+     * Send another hello to each unconnected parent whose backoff has passed.
+     */
     protected void resendToUnconnectedParents() {
-        getParentConnections().getListConnectionGuidelines().stream().filter(g -> !g.isConnected()).forEach(g -> {
-            if (debug) LOG.debug("Setting up queues and bindings to re-connect upwards: {}.", g);
-            final String other = g.getOtherAgentAbbrev().trim();
-            final String org = g.getOrganizationAbbrev().trim();
-            final String master = g.getExpectedMasterAbbrev().trim();
-            final String myPersona = ec.getUniqueIdentifier().toString();
-            if (debug) LOG.debug("Child {} re-connecting to parent {}.", myPersona, other);
-            sendRemoteHelloMessage(other, org, master, myPersona);
+        final String myPersona = ec.getUniqueIdentifier().toString();
+        unconnectedParents.forEach(g -> {
+            if (sendHelloIfDue(g, myPersona) && debug)
+                LOG.debug("Child {} re-connecting to parent {}.", myPersona, g.getOtherAgentAbbrev());
         });
     }
 
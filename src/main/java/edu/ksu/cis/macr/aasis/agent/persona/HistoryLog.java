@@ -0,0 +1,686 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only history of records, each stamped with the time slice it was recorded in. Records are framed in a
+ * compact binary form and packed into fixed-size segments. The most recent segments are kept in heap as a bounded ring;
+ * when the ring is full the oldest segment is written to its own memory-mapped file and dropped from heap, so a long run
+ * holds at most {@code memorySegments} segments in memory however much history it records.
+ * <p>
+ * Each record is framed as: payload length (int), time slice (int), wall-clock time in milliseconds (long), then the
+ * payload bytes written by the {@code ICodec}. Each segment file starts with a header of magic number, record count, the
+ * first and last time slice it holds, where its records end, and the length of the codec description that follows
+ * them. The description is whatever the codec needs beyond the record bytes to read them back, such as the class table
+ * of a compact codec, so a segment file can be read after the run or by another process with
+ * {@code openHistoryLog}. The same time-slice range is kept for every segment in memory, so replaying a window only
+ * maps and scans the segments that overlap it.
+ * <p>
+ * A log created with {@code deleteOnExit} removes its segment files and folder when the JVM exits, for history spilled
+ * to a temporary folder rather than one the run asked to keep.
+ *
+ * @param <E> - the type of record kept.
+ */
+public class HistoryLog<E> {
+    /**
+     * The default size of a segment in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+    /**
+     * The default number of segments kept in memory.
+     */
+    public static final int DEFAULT_MEMORY_SEGMENTS = 4;
+    private static final Logger LOG = LoggerFactory.getLogger(HistoryLog.class);
+    private static final boolean debug = false;
+    private static final int MAGIC = 0x41484c32;
+    private static final int FILE_HEADER_BYTES = 24;
+    private static final int RECORD_HEADER_BYTES = 16;
+    /**
+     * The logs whose files are deleted when the JVM exits.
+     */
+    private static final Set<HistoryLog<?>> deletedOnExit = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong exitHooks = new AtomicLong();
+    private final ICodec<E> codec;
+    private final File directory;
+    private final int segmentBytes;
+    private final int memorySegments;
+    /**
+     * Every sealed segment in the order recorded, spilled or not.
+     */
+    private final List<Segment> sealed = new ArrayList<>();
+    /**
+     * The sealed segments still held in heap, oldest first.
+     */
+    private final ArrayDeque<Segment> inMemory = new ArrayDeque<>();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong unencodable = new AtomicLong();
+    private Segment current;
+    private int segmentsSpilled = 0;
+    private long bytesSpilled = 0;
+    private boolean closed = false;
+
+    private HistoryLog(final File directory, final int segmentBytes, final int memorySegments, final ICodec<E> codec) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, FILE_HEADER_BYTES + RECORD_HEADER_BYTES);
+        this.memorySegments = Math.max(memorySegments, 1);
+        this.codec = codec;
+    }
+
+    /**
+     * Create a history log.
+     *
+     * @param directory      - the folder segment files are spilled to; created at the first spill.
+     * @param segmentBytes   - the size of each segment.
+     * @param memorySegments - the number of full segments held in heap before the oldest is spilled.
+     * @param codec          - writes and reads each record's payload.
+     * @param <E>            - the type of record kept.
+     * @return - the HistoryLog created
+     */
+    public static <E> HistoryLog<E> createHistoryLog(final File directory, final int segmentBytes,
+                                                     final int memorySegments, final ICodec<E> codec) {
+        return new HistoryLog<>(directory, segmentBytes, memorySegments, codec);
+    }
+
+    /**
+     * Open the segment files a history log spilled to a folder, e.g. by an earlier run, for replay. Nothing more can be
+     * recorded to the log returned.
+     *
+     * @param directory - the folder the segment files were spilled to.
+     * @param codec     - a codec of the kind that wrote the records; its description of each segment is read from the
+     *                  segment file.
+     * @param <E>       - the type of record kept.
+     * @return - the HistoryLog opened
+     * @throws IOException - if the folder cannot be listed or a segment header cannot be read.
+     */
+    public static <E> HistoryLog<E> openHistoryLog(final File directory, final ICodec<E> codec) throws IOException {
+        final String[] names = directory.list((dir, name) -> name.matches("history-\\d{6}\\.seg"));
+        if (names == null) throw new IOException("Not a folder: " + directory);
+        Arrays.sort(names);
+        final HistoryLog<E> log = new HistoryLog<>(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MEMORY_SEGMENTS, codec);
+        for (String name : names) {
+            final File file = new File(directory, name);
+            final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                    /* read the whole header */
+                }
+            }
+            header.flip();
+            if (header.remaining() < FILE_HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a history segment file: " + file);
+            }
+            final Segment segment = new Segment(null);
+            segment.file = file;
+            segment.count = header.getInt(4);
+            segment.minTimeSlice = header.getInt(8);
+            segment.maxTimeSlice = header.getInt(12);
+            log.sealed.add(segment);
+            log.segmentsSpilled++;
+            log.bytesSpilled += file.length();
+            log.recorded.addAndGet(segment.count);
+        }
+        log.closed = true;
+        return log;
+    }
+
+    /**
+     * Returns a codec that writes payloads with Java serialization.
+     *
+     * @param type - the type of payload read back.
+     * @param <E>  - the type of payload.
+     * @return - the codec.
+     */
+    public static <E> ICodec<E> createSerializationCodec(final Class<E> type) {
+        return new ICodec<E>() {
+            @Override
+            public byte[] encode(final E payload) throws IOException {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(payload);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            public E decode(final byte[] bytes) throws IOException {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return type.cast(in.readObject());
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a binary codec that writes payloads with Java serialization, but replaces each class description with its
+     * index in a table kept by the codec, and leaves out the stream header. A class is described once per codec rather
+     * than in every record, which is most of the size of a small serialized record. The table is written, with standard
+     * serialization, after the records of each segment file, so spilled segments can be read without the codec that
+     * wrote them.
+     *
+     * @param type - the type of payload read back.
+     * @param <E>  - the type of payload.
+     * @return - the codec.
+     */
+    public static <E> ICodec<E> createCompactCodec(final Class<E> type) {
+        return new CompactCodec<>(type, new CopyOnWriteArrayList<>());
+    }
+
+    /**
+     * Delete this log's segment files, and its folder if that leaves it empty, when the JVM exits.
+     */
+    public void deleteOnExit() {
+        deletedOnExit.add(this);
+        if (exitHooks.getAndIncrement() == 0) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                for (HistoryLog<?> log : deletedOnExit) log.deleteFiles();
+            }, "history-cleanup"));
+        }
+    }
+
+    /**
+     * Stop recording and delete the segment files spilled so far, and the folder if that leaves it empty.
+     */
+    public synchronized void deleteFiles() {
+        closed = true;
+        int deleted = 0;
+        for (Segment segment : sealed) {
+            if (segment.file != null && segment.file.delete()) deleted++;
+        }
+        final String[] left = directory.list();
+        if (left != null && left.length == 0 && !directory.delete()) {
+            LOG.error("ERROR: history folder could not be deleted. {}", directory);
+        }
+        if (debug) LOG.debug("Deleted {} history segments from {}.", deleted, directory);
+    }
+
+    /**
+     * Append a record. A record the codec cannot write is counted and skipped.
+     *
+     * @param timeSlice - the time slice the record belongs to.
+     * @param payload   - the record.
+     */
+    public void append(final int timeSlice, final E payload) {
+        final byte[] bytes;
+        try {
+            bytes = codec.encode(payload);
+        } catch (IOException | RuntimeException e) {
+            if (unencodable.getAndIncrement() == 0) {
+                LOG.error("ERROR: history record of {} could not be written. {}", payload.getClass().getName(), e.toString());
+            }
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (closed) return;
+            final int size = RECORD_HEADER_BYTES + bytes.length;
+            if (current == null || current.buffer.remaining() < size) {
+                if (current != null) seal();
+                current = new Segment(ByteBuffer.allocate(Math.max(segmentBytes, FILE_HEADER_BYTES + size)));
+                current.buffer.position(FILE_HEADER_BYTES);
+            }
+            current.buffer.putInt(bytes.length).putInt(timeSlice).putLong(now).put(bytes);
+            current.add(timeSlice);
+        }
+        recorded.incrementAndGet();
+    }
+
+    private void seal() {
+        current.buffer.flip();
+        sealed.add(current);
+        inMemory.addLast(current);
+        current = null;
+        while (inMemory.size() > memorySegments) {
+            if (!spill(inMemory.pollFirst())) break;
+        }
+    }
+
+    /**
+     * Write a sealed segment to its own memory-mapped file and drop it from heap. If it cannot be written it stays in
+     * heap, so no history is lost.
+     *
+     * @return - true if the segment was spilled.
+     */
+    private boolean spill(final Segment segment) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOG.error("ERROR: history folder could not be created. {}", directory);
+            inMemory.addFirst(segment);
+            return false;
+        }
+        final File file = new File(directory, String.format("history-%06d.seg", segmentsSpilled));
+        final ByteBuffer source = segment.buffer.duplicate();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final byte[] description = codec.describe();
+            final int descriptionBytes = (description == null) ? 0 : description.length;
+            source.putInt(0, MAGIC).putInt(4, segment.count).putInt(8, segment.minTimeSlice)
+                    .putInt(12, segment.maxTimeSlice).putInt(16, source.limit()).putInt(20, descriptionBytes);
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    source.limit() + descriptionBytes);
+            mapped.put(source);
+            if (description != null) mapped.put(description);
+            mapped.force();
+        } catch (IOException e) {
+            LOG.error("ERROR: history segment could not be written to {}. {}", file, e.toString());
+            inMemory.addFirst(segment);
+            return false;
+        }
+        if (segmentsSpilled == 0) LOG.info("Spilling history to {}.", directory);
+        segmentsSpilled++;
+        bytesSpilled += segment.buffer.limit();
+        segment.file = file;
+        segment.buffer = null;
+        if (debug) LOG.debug("Spilled history segment {} ({} records).", file, segment.count);
+        return true;
+    }
+
+    /**
+     * Returns the records from the given time slices, in the order recorded. Only segments that overlap the window are
+     * read, one at a time, and spilled segments are mapped rather than loaded. Records appended after this call are not
+     * included.
+     *
+     * @param fromTimeSlice - the first time slice included.
+     * @param toTimeSlice   - the last time slice included.
+     * @return - an iterator over the records.
+     */
+    public Iterator<Record<E>> replay(final int fromTimeSlice, final int toTimeSlice) {
+        final List<Segment> overlapping = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : sealed) {
+                if (segment.overlaps(fromTimeSlice, toTimeSlice)) overlapping.add(segment.snapshot());
+            }
+            if (current != null && current.overlaps(fromTimeSlice, toTimeSlice)) {
+                final Segment open = current.snapshot();
+                open.buffer.flip();
+                overlapping.add(open);
+            }
+        }
+        if (overlapping.isEmpty()) return Collections.emptyIterator();
+        return new Replay(overlapping, fromTimeSlice, toTimeSlice);
+    }
+
+    /**
+     * Returns every record, in the order recorded.
+     *
+     * @return - an iterator over the records.
+     */
+    public Iterator<Record<E>> replay() {
+        return replay(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Stop recording. Spilled segment files are kept for later replay, e.g. with {@code openHistoryLog}.
+     */
+    public synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * @return - the number of records appended.
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    /**
+     * @return - the number of records the codec could not write.
+     */
+    public long getUnencodableCount() {
+        return unencodable.get();
+    }
+
+    /**
+     * @return - the bytes of history currently held in heap.
+     */
+    public synchronized long getMemoryBytes() {
+        long bytes = (current == null) ? 0 : current.buffer.capacity();
+        for (Segment segment : inMemory) bytes += segment.buffer.capacity();
+        return bytes;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HistoryLog{" +
+                "recorded=" + recorded.get() +
+                ", segments=" + (sealed.size() + ((current == null) ? 0 : 1)) +
+                ", spilled=" + segmentsSpilled +
+                ", spilledBytes=" + bytesSpilled +
+                ", unencodable=" + unencodable.get() +
+                '}';
+    }
+
+    /**
+     * Writes and reads the payload of a record.
+     *
+     * @param <E> - the type of payload.
+     */
+    public interface ICodec<E> {
+        byte[] encode(E payload) throws IOException;
+
+        E decode(byte[] bytes) throws IOException;
+
+        /**
+         * @return - what a reader without this codec's state needs to decode the records written so far, kept with
+         * each spilled segment, or null if the records describe themselves.
+         * @throws IOException - if the description cannot be written.
+         */
+        default byte[] describe() throws IOException {
+            return null;
+        }
+
+        /**
+         * @param description - bytes returned by {@code describe}, read back from a segment file.
+         * @return - a codec that decodes the records of that segment.
+         * @throws IOException - if the description cannot be read.
+         */
+        default ICodec<E> withDescription(final byte[] description) throws IOException {
+            return this;
+        }
+    }
+
+    /**
+     * The codec returned by {@code createCompactCodec}: Java serialization with class descriptions replaced by indexes
+     * into a table.
+     *
+     * @param <E> - the type of payload.
+     */
+    private static final class CompactCodec<E> implements ICodec<E> {
+        private final Class<E> type;
+        private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+        private final List<ObjectStreamClass> classes;
+
+        CompactCodec(final Class<E> type, final List<ObjectStreamClass> classes) {
+            this.type = type;
+            this.classes = classes;
+            for (int i = 0; i < classes.size(); i++) indexes.put(classes.get(i).getName(), i);
+        }
+
+        @Override
+        public byte[] encode(final E payload) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (ObjectOutputStream out = new CompactOutputStream(bytes)) {
+                out.writeObject(payload);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public E decode(final byte[] bytes) throws IOException {
+            try (ObjectInputStream in = new CompactInputStream(new ByteArrayInputStream(bytes))) {
+                return type.cast(in.readObject());
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /**
+         * Writes the class table with standard serialization, so each description is complete.
+         */
+        @Override
+        public byte[] describe() throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                final Object[] table = classes.toArray();
+                out.writeInt(table.length);
+                for (Object description : table) out.writeObject(description);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public ICodec<E> withDescription(final byte[] description) throws IOException {
+            final List<ObjectStreamClass> table = new ArrayList<>();
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(description))) {
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) table.add((ObjectStreamClass) in.readObject());
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException(e);
+            }
+            return new CompactCodec<>(type, new CopyOnWriteArrayList<>(table));
+        }
+
+        private int indexOf(final ObjectStreamClass description) {
+            final Integer index = indexes.get(description.getName());
+            if (index != null) return index;
+            synchronized (classes) {
+                return indexes.computeIfAbsent(description.getName(), name -> {
+                    classes.add(description);
+                    return classes.size() - 1;
+                });
+            }
+        }
+
+        private final class CompactOutputStream extends ObjectOutputStream {
+            CompactOutputStream(final OutputStream out) throws IOException {
+                super(out);
+            }
+
+            @Override
+            protected void writeStreamHeader() {
+            }
+
+            @Override
+            protected void writeClassDescriptor(final ObjectStreamClass description) throws IOException {
+                writeInt(indexOf(description));
+            }
+        }
+
+        private final class CompactInputStream extends ObjectInputStream {
+            CompactInputStream(final InputStream in) throws IOException {
+                super(in);
+            }
+
+            @Override
+            protected void readStreamHeader() {
+            }
+
+            @Override
+            protected ObjectStreamClass readClassDescriptor() throws IOException {
+                final int index = readInt();
+                if (index < 0 || index >= classes.size()) throw new IOException("Unknown class index " + index);
+                return classes.get(index);
+            }
+
+            @Override
+            protected Class<?> resolveClass(final ObjectStreamClass description) throws IOException,
+                    ClassNotFoundException {
+                final Class<?> local = description.forClass();
+                return (local != null) ? local : super.resolveClass(description);
+            }
+        }
+    }
+
+    /**
+     * A record read back from the history.
+     *
+     * @param <E> - the type of payload.
+     */
+    public static class Record<E> {
+        private final int timeSlice;
+        private final long timeMillis;
+        private final E payload;
+
+        Record(final int timeSlice, final long timeMillis, final E payload) {
+            this.timeSlice = timeSlice;
+            this.timeMillis = timeMillis;
+            this.payload = payload;
+        }
+
+        public int getTimeSlice() {
+            return timeSlice;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public E getPayload() {
+            return payload;
+        }
+
+        @Override
+        public String toString() {
+            return "Record{" +
+                    "timeSlice=" + timeSlice +
+                    ", timeMillis=" + timeMillis +
+                    ", payload=" + payload +
+                    '}';
+        }
+    }
+
+    /**
+     * A segment of records, in heap until spilled and then in its file. Its buffer is written by appends until sealed,
+     * then flipped so its limit marks the end of the records.
+     */
+    private static class Segment {
+        private ByteBuffer buffer;
+        private File file;
+        private int count = 0;
+        private int minTimeSlice = Integer.MAX_VALUE;
+        private int maxTimeSlice = Integer.MIN_VALUE;
+
+        Segment(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void add(final int timeSlice) {
+            count++;
+            if (timeSlice < minTimeSlice) minTimeSlice = timeSlice;
+            if (timeSlice > maxTimeSlice) maxTimeSlice = timeSlice;
+        }
+
+        boolean overlaps(final int from, final int to) {
+            return count > 0 && minTimeSlice <= to && maxTimeSlice >= from;
+        }
+
+        /**
+         * @return - a copy that shares the records but has its own buffer position, for one reader.
+         */
+        Segment snapshot() {
+            final Segment copy = new Segment((buffer == null) ? null : buffer.duplicate());
+            copy.file = file;
+            copy.count = count;
+            copy.minTimeSlice = minTimeSlice;
+            copy.maxTimeSlice = maxTimeSlice;
+            return copy;
+        }
+    }
+
+    private class Replay implements Iterator<Record<E>> {
+        private final List<Segment> segments;
+        private final int from;
+        private final int to;
+        private int nextSegment = 0;
+        private ByteBuffer buffer;
+        private ICodec<E> segmentCodec = codec;
+        private Record<E> next;
+
+        Replay(final List<Segment> segments, final int from, final int to) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (buffer == null || !buffer.hasRemaining()) {
+                    if (nextSegment >= segments.size()) return false;
+                    buffer = open(segments.get(nextSegment++));
+                    continue;
+                }
+                final int length = buffer.getInt();
+                final int timeSlice = buffer.getInt();
+                final long timeMillis = buffer.getLong();
+                if (timeSlice < from || timeSlice > to) {
+                    buffer.position(buffer.position() + length);
+                    continue;
+                }
+                final byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                try {
+                    next = new Record<>(timeSlice, timeMillis, segmentCodec.decode(bytes));
+                } catch (IOException e) {
+                    LOG.error("ERROR: history record from time slice {} could not be read. {}", timeSlice, e.toString());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Record<E> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            final Record<E> record = next;
+            next = null;
+            return record;
+        }
+
+        /**
+         * Positions a segment's buffer at its first record, mapping it if spilled, and picks the codec that reads it.
+         */
+        private ByteBuffer open(final Segment segment) {
+            ByteBuffer records = segment.buffer;
+            segmentCodec = codec;
+            if (records == null) {
+                try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ)) {
+                    records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } catch (IOException e) {
+                    LOG.error("ERROR: history segment {} could not be read. {}", segment.file, e.toString());
+                    return null;
+                }
+                if (records.getInt(0) != MAGIC) {
+                    LOG.error("ERROR: history segment {} is not a history file.", segment.file);
+                    return null;
+                }
+                final int end = records.getInt(16);
+                final int descriptionBytes = records.getInt(20);
+                if (descriptionBytes > 0) {
+                    final byte[] description = new byte[descriptionBytes];
+                    records.position(end);
+                    records.get(description);
+                    try {
+                        segmentCodec = codec.withDescription(description);
+                    } catch (IOException e) {
+                        LOG.error("ERROR: history segment {} could not be read. {}", segment.file, e.toString());
+                        return null;
+                    }
+                }
+                records.limit(end);
+            }
+            records.position(FILE_HEADER_BYTES);
+            return records;
+        }
+    }
+}
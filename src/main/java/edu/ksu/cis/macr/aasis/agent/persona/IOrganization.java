@@ -8,6 +8,7 @@ import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  The {@code IOrganization} defines the interface for an {@code Organization}.  They have an associated set of
@@ -82,6 +83,21 @@ public interface IOrganization extends IBaseOrganization, IPersonaPopulatable {
 
     void lockData();
 
+    /**
+     Returns the log that broadcasts within this organization are published to.
+
+     @return the shared {@code BroadcastLog}.
+     */
+    BroadcastLog<Object> getBroadcastLog();
+
+    /**
+     Returns how this organization guards its data. Under {@code SPLIT} locking, message delivery must not take the data
+     lock.
+
+     @return the {@code OrganizationLocking} mode.
+     */
+    OrganizationLocking getLocking();
+
     void loadTopGoalGuidelines();
 
     void loadInitialGoalGuidelines(Map<UniqueIdentifier, Object> goalParameterValues);
@@ -91,6 +107,32 @@ public interface IOrganization extends IBaseOrganization, IPersonaPopulatable {
     @Override
     void notifyDisplayChanges(IDisplayInformation displayInformation);
 
+    /**
+     Records that the object with the given identifier changed, building its {@code DisplayInformation} only if a
+     viewer reads the change.
+
+     @param identifier the identifier of the changed object.
+     @param displayInformation builds the {@code DisplayInformation} for the object's current state.
+     */
+    void notifyDisplayChanges(UniqueIdentifier identifier, Supplier<IDisplayInformation> displayInformation);
+
+    /**
+     Starts collecting display changes for a viewer.
+     */
+    void attachViewer();
+
+    /**
+     Stops collecting display changes.
+     */
+    void detachViewer();
+
+    /**
+     Begins running the given persona with the organization's persona executor.
+
+     @param persona - the persona to run.
+     */
+    void startPersona(IPersona persona);
+
     /**
      Sets the values of the goal parameters.
 
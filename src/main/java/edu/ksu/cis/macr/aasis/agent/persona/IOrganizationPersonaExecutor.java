@@ -0,0 +1,30 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+/**
+ * The {@code IOrganizationPersonaExecutor} interface starts and stops the persona of one {@code Organization}. An
+ * organization gets its executor from the JVM's {@code IPersonaExecutor} with {@code forTurnBarrier}, so an executor
+ * that runs turns on the organization's behalf is always bound to that organization's barrier.
+ */
+public interface IOrganizationPersonaExecutor {
+
+    /**
+     * Begin running the persona.
+     *
+     * @param persona - the persona to run.
+     */
+    void start(IPersona persona);
+
+    /**
+     * Stop scheduling the persona. A persona on its own thread stops when its run() returns.
+     *
+     * @param persona - the persona to stop.
+     */
+    void stop(IPersona persona);
+
+    /**
+     * @return - the number of persona running.
+     */
+    int getActiveCount();
+
+    PersonaExecutionMode getMode();
+}
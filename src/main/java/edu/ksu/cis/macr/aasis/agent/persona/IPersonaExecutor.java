@@ -0,0 +1,37 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+/**
+ * The {@code IPersonaExecutor} interface runs the persona of every {@code Organization} in the JVM. Implementations
+ * decide what a persona runs on: its own thread, a virtual thread, or a task per turn in a shared pool. While a persona
+ * runs, the {@code MDC} key {@code "persona"} holds its identifier, so per-persona log files do not depend on thread
+ * names. One executor is shared by every organization in the JVM; the {@code RunManager} creates it and shuts it down at
+ * the end of the run. Each organization starts and stops its persona through the {@code IOrganizationPersonaExecutor}
+ * returned by {@code forTurnBarrier}.
+ */
+public interface IPersonaExecutor {
+    /**
+     * The {@code MDC} key holding the identifier of the running persona.
+     */
+    String PERSONA_KEY = "persona";
+
+    /**
+     * Get the executor an organization uses for its persona. An executor that runs turns on the organization's behalf
+     * returns a view bound to that organization's barrier; one that gives each persona its own thread returns itself.
+     *
+     * @param turnBarrier - the organization's turn barrier.
+     * @return - the executor for that organization.
+     */
+    IOrganizationPersonaExecutor forTurnBarrier(TurnBarrier turnBarrier);
+
+    /**
+     * Stop every persona and release the executor's threads.
+     */
+    void shutdown();
+
+    /**
+     * @return - the number of persona running, in every organization.
+     */
+    int getActiveCount();
+
+    PersonaExecutionMode getMode();
+}
@@ -0,0 +1,29 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The {@code ISnapshotCapability} interface is implemented by capabilities whose state is saved in an {@code
+ * Organization} checkpoint and restored by {@code Organization.loadState}. A capability writes only what it needs to
+ * resume; anything rebuilt from the agent configuration is left out.
+ */
+public interface ISnapshotCapability {
+
+    /**
+     * Write the state needed to resume this capability.
+     *
+     * @param out - the checkpoint section for this capability.
+     * @throws IOException - if the state cannot be written.
+     */
+    void writeState(DataOutput out) throws IOException;
+
+    /**
+     * Restore the state written by {@code writeState}.
+     *
+     * @param in - the checkpoint section for this capability.
+     * @throws IOException - if the state cannot be read.
+     */
+    void readState(DataInput in) throws IOException;
+}
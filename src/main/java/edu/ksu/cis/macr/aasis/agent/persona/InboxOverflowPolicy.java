@@ -0,0 +1,37 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+/**
+ * What a {@code BoundedInbox} does with a message offered while it is full.
+ */
+public enum InboxOverflowPolicy {
+    /**
+     * Discard the oldest queued message to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Discard the new message; the sender is not told.
+     */
+    DROP_NEWEST,
+    /**
+     * Make the sender wait for room, up to the inbox's wait time, then reject the message.
+     */
+    BLOCK_SENDER,
+    /**
+     * Refuse the new message; offer() returns false and add() throws.
+     */
+    REJECT;
+
+    /**
+     * Find a policy by name, ignoring case and accepting dashes for underscores.
+     *
+     * @param name - e.g. "drop-oldest" or "BLOCK_SENDER".
+     * @return - the policy, or null if the name is not recognized.
+     */
+    public static InboxOverflowPolicy fromName(final String name) {
+        final String normalized = name.trim().toUpperCase().replace('-', '_');
+        for (InboxOverflowPolicy policy : values()) {
+            if (policy.name().equals(normalized)) return policy;
+        }
+        return null;
+    }
+}
@@ -1,5 +1,6 @@
 package edu.ksu.cis.macr.aasis.agent.persona;
 
+import edu.ksu.cis.macr.aasis.messaging.MessagingReliabilityManager;
 import edu.ksu.cis.macr.obaa_pp.objects.IDisplayInformation;
 import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
 import org.slf4j.Logger;
@@ -7,15 +8,11 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadLocalRandom;
 
 
@@ -39,9 +36,23 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
     public static final int MAX_RANGE_IN_FEET = 5;
     private static final boolean debug = false;
     /**
-     * {@code contents} is a queue that holds contents that can be received by the agent.
+     * {@code inboxCapacity} is the most packets each inbox holds; zero or less means unbounded.
      */
-    private final Queue<CommunicationPacket> contents = new ConcurrentLinkedQueue<>();
+    private static volatile int inboxCapacity = 0;
+    /**
+     * {@code inboxOverflowPolicy} is what a full {@code incoming} inbox does with a new packet.
+     */
+    private static volatile InboxOverflowPolicy inboxOverflowPolicy = InboxOverflowPolicy.BLOCK_SENDER;
+    /**
+     * {@code inboxWaitMillis} is how long a sender waits for room under {@code BLOCK_SENDER}.
+     */
+    private static volatile long inboxWaitMillis = 1000;
+    /**
+     * {@code contents} is a queue that holds contents that can be received by the agent. It is filled by this agent
+     * from {@code incoming}, so when full it always drops the oldest.
+     */
+    private final BoundedInbox<CommunicationPacket> contents = BoundedInbox.createBoundedInbox(inboxCapacity,
+            InboxOverflowPolicy.DROP_OLDEST, 0);
     /**
      * {@code channels} provides a mechanism for extensions to this communication protocol so that only contents that are
      * flagged will be sent to the correct extension.
@@ -50,7 +61,43 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
     /**
      * {@code incoming} is a queue that holds incoming contents that will be received by the agent in the next turn.
      */
-    private Queue<CommunicationPacket> incoming = new ConcurrentLinkedQueue<>();
+    private final BoundedInbox<CommunicationPacket> incoming = BoundedInbox.createBoundedInbox(inboxCapacity,
+            inboxOverflowPolicy, inboxWaitMillis);
+    /**
+     * {@code broadcastCursor} is the position of this agent in its organization's {@code BroadcastLog}.
+     */
+    private long broadcastCursor;
+    /**
+     * {@code broadcastsMissed} counts broadcasts overwritten in the log before this agent read them.
+     */
+    private long broadcastsMissed = 0;
+    /**
+     * {@code broadcastReader} hands broadcasts read from the log straight to their channels, so a full {@code incoming}
+     * inbox does not hold them up. With message faults injected they go through {@code incoming} like other packets.
+     */
+    private final BroadcastLog.IReader<Object> broadcastReader = new BroadcastLog.IReader<Object>() {
+        @Override
+        public void accept(final Object payload) {
+            if (MessagingReliabilityManager.isInjectingFaults()) {
+                deliver(InternalCommunicationCapability.this, (CommunicationPacket) payload);
+            } else {
+                receive((CommunicationPacket) payload);
+            }
+        }
+
+        @Override
+        public void missed(final long count) {
+            broadcastsMissed += count;
+            final BroadcastLog<Object> log = getOrganization().getBroadcastLog();
+            if (log.switchToDirectDelivery()) {
+                LOG.warn("{} missed {} broadcasts overwritten in the broadcast log ({}). Broadcasts in this organization are now "
+                        + "delivered directly; raise broadcastcapacity to keep using the log.",
+                        getOwner().getUniqueIdentifier(), count, log);
+            } else {
+                LOG.warn("{} missed {} broadcasts overwritten in the broadcast log ({}).", getOwner().getUniqueIdentifier(), count, log);
+            }
+        }
+    };
     /**
      * {@code range} is the current range of the {@code IInternalCommunicationCapability} .
      */
@@ -77,6 +124,8 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
      */
     public InternalCommunicationCapability(IPersona owner, IOrganization org) {
         super(IInternalCommunicationCapability.class, owner, org);
+        this.broadcastCursor = org.getBroadcastLog().getHead();
+        nameInboxes(owner);
         LOG.debug("Entering InternalCommunicationCapability constructor(owner={},org={}).", owner, org);
         LOG.debug("Exiting InternalCommunicationCapability constructor.");
 
@@ -123,6 +172,8 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
             final IOrganization org, final int range,
             final double sendFailure, final double receiveFailure) {
         super(communicationClass, owner, org);
+        this.broadcastCursor = org.getBroadcastLog().getHead();
+        nameInboxes(owner);
         setRange(range);
         setSendFailure(sendFailure);
         setReceiveFailure(receiveFailure);
@@ -164,7 +215,7 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
         if (fSend > getSendFailure()) {
             broadcastMessage(channelID, content, includeSelf);
         }
-        updateChangeList(getOwner().toDisplayInformation());
+        updateChangeList();
         return true;
     }
 
@@ -176,7 +227,10 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
     }
 
     /**
-     Broadcasts a messages to every {@code IAgent}, only if the {@code IAgent} is within range.
+     Broadcasts a messages to every {@code IAgent} by publishing one shared packet to the organization's
+     {@code BroadcastLog}. Each recipient picks it up from the log on its next {@code reset}, so no lock is held and
+     no per-recipient packet is built. Once a recipient has missed broadcasts overwritten in the log, each broadcast is
+     delivered directly to every recipient instead.
 
      @param channelID the type of messages, used * * * * * * * * by {@code ICommunicationChannel} .
      @param content the messages to be sent.
@@ -185,21 +239,35 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
     private void broadcastMessage(final String channelID, final Object content,
                                   final boolean includeSelf) {
         LOG.debug("Entering broadcastMessage(channelID={},content={}, includeSelf={})", channelID, content, includeSelf);
+        final BroadcastLog<Object> log = getOrganization().getBroadcastLog();
+        if (log.isDirectDelivery()) {
+            deliverBroadcast(channelID, content, includeSelf);
+            return;
+        }
+        final UniqueIdentifier sender = getOwner().getUniqueIdentifier();
+        log.publish(sender, includeSelf, new CommunicationPacket(sender, null, channelID, content));
+        LOG.debug("Exiting broadcastMessage(channelID={},content={}, includeSelf={})", channelID, content, includeSelf);
+    }
+
+    /**
+     Delivers a broadcast to every {@code IAgent}'s incoming inbox, for when the organization's {@code BroadcastLog}
+     has fallen back to direct delivery.
+
+     @param channelID the type of messages, used by {@code ICommunicationChannel} .
+     @param content the messages to be sent.
+     @param includeSelf {@code true} if the messages is also for the sender, {@code false} otherwise.
+     */
+    private void deliverBroadcast(final String channelID, final Object content, final boolean includeSelf) {
         lockData();
         try {
-            Collection<IPersona> allPersona = getPersona();
-            if (debug) LOG.debug("persona={}, includeSelf={}", allPersona.size(), includeSelf);
-            for (IPersona persona : allPersona) {
+            for (IPersona persona : getPersona()) {
                 if (includeSelf || !getOwner().equals(persona)) {
                     sendLocalMessage(persona, channelID, content, true);
                 }
             }
         } finally {
             unlockData();
-            LOG.debug("Incoming={}", this.getIncoming().size());
-            LOG.debug("Exiting broadcastMessage(channelID={},content={}, includeSelf={})", channelID, content, includeSelf);
         }
-
     }
 
     @Override
@@ -222,6 +290,43 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
         return incoming;
     }
 
+    /**
+     Sets the capacity and overflow policy of inboxes created from now on.
+
+     @param capacity the most packets each inbox holds; zero or less means unbounded.
+     @param policy what a full inbox does with a new packet.
+     @param waitMillis how long a sender waits for room under {@code BLOCK_SENDER}.
+     */
+    public static void setInboxDefaults(final int capacity, final InboxOverflowPolicy policy, final long waitMillis) {
+        InternalCommunicationCapability.inboxCapacity = capacity;
+        InternalCommunicationCapability.inboxOverflowPolicy = policy;
+        InternalCommunicationCapability.inboxWaitMillis = waitMillis;
+    }
+
+    private void nameInboxes(final IPersona owner) {
+        final String name = (owner == null) ? "unowned" : owner.getUniqueIdentifier().toString();
+        incoming.setName("Incoming inbox of " + name);
+        contents.setName("Contents inbox of " + name);
+    }
+
+    /**
+     Returns the greatest number of packets waiting in the incoming inbox at once.
+
+     @return the high-water mark of the incoming inbox.
+     */
+    public int getInboxHighWaterMark() {
+        return incoming.getHighWaterMark();
+    }
+
+    /**
+     Returns the number of packets dropped or refused by this agent's inboxes.
+
+     @return the number of packets lost to overflow.
+     */
+    public long getInboxOverflowCount() {
+        return incoming.getDroppedCount() + incoming.getRejectedCount() + contents.getDroppedCount() + broadcastsMissed;
+    }
+
     /**
      Gets the range of the {@code IInternalCommunicationCapability} capability.
 
@@ -291,6 +396,9 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
         fields.put("range", Integer.toString(getRange()));
         fields.put("sendFailure", Double.toString(sendFailure));
         fields.put("receiveFailure", Double.toString(receiveFailure));
+        fields.put("inboxDepth", Integer.toString(incoming.size()));
+        fields.put("inboxHighWaterMark", Integer.toString(incoming.getHighWaterMark()));
+        fields.put("inboxOverflow", Long.toString(getInboxOverflowCount()));
     }
 
     @Override
@@ -327,34 +435,43 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
     public void reset() {
         if (debug) LOG.debug("Entering reset(). incoming={}", this.getIncoming().size());
         while (!getIncoming().isEmpty()) {
+            receive(getIncoming().poll());
+        }
+        broadcastCursor = getOrganization().getBroadcastLog().read(broadcastCursor, getOwner().getUniqueIdentifier(),
+                broadcastReader);
+    }
 
-            final CommunicationPacket packet = getIncoming().poll();
-            if (debug) LOG.debug("incoming packet={}", packet);
-            final ICommunicationChannel channel = channels.get(packet.channel);
-            if (ThreadLocalRandom.current().nextDouble() > getReceiveFailure()) {
-                /* messages is successfully received */
-                if (channel == null) {
-                    contents.add(packet);
-                    if (debug) LOG.debug("Adding message to null channel={} contents={}", channel, contents);
-                } else {
-                    try {
-                        if (debug) LOG.debug("Adding message to channel={} contents={}", channel, contents);
-                        LOG.debug("ChannelContentTEST: reset in CommImpl. packet.channel={}. packet.content={}. ", packet.channel, packet.content.toString());
+    /**
+     Hands a packet to its channel, or keeps it in the contents when it is for no channel.
 
-                        channel.channelContent(packet.content);
+     @param packet the packet received.
+     */
+    private void receive(final CommunicationPacket packet) {
+        if (debug) LOG.debug("incoming packet={}", packet);
+        final ICommunicationChannel channel = channels.get(packet.channel);
+        if (ThreadLocalRandom.current().nextDouble() > getReceiveFailure()) {
+            /* messages is successfully received */
+            if (channel == null) {
+                contents.add(packet);
+                if (debug) LOG.debug("Adding message to null channel={} contents={}", channel, contents);
+            } else {
+                try {
+                    if (debug) LOG.debug("Adding message to channel={} contents={}", channel, contents);
+                    LOG.debug("ChannelContentTEST: reset in CommImpl. packet.channel={}. packet.content={}. ", packet.channel, packet.content.toString());
 
-                        LOG.debug("ChannelContentOK: reset in CommImpl. packet.channel={}. packet.content={}. ", packet.channel, packet.content.toString());
+                    channel.channelContent(packet.content);
 
+                    LOG.debug("ChannelContentOK: reset in CommImpl. packet.channel={}. packet.content={}. ", packet.channel, packet.content.toString());
 
-                    } catch (Exception e) {
-                        LOG.error("ChannelContentERROR: reset in CommImpl. packet.channel={}. packet.content={}. Message={}", packet.channel, packet.content.toString(), e.getMessage());
-                        //   System.exit(-92);
-                    }
+
+                } catch (Exception e) {
+                    LOG.error("ChannelContentERROR: reset in CommImpl. packet.channel={}. packet.content={}. Message={}", packet.channel, packet.content.toString(), e.getMessage());
+                    //   System.exit(-92);
                 }
-            } else {
-                /* messages is lost */
-                contents.poll();
             }
+        } else {
+            /* messages is lost */
+            contents.poll();
         }
     }
 
@@ -365,10 +482,10 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
         final double fSend = ThreadLocalRandom.current().nextDouble();
         if (fSend > getSendFailure()) {
             final boolean send = sendMessage(toAgent, filter, content);
-            updateChangeList(getOwner().toDisplayInformation());
+            updateChangeList();
             return send;
         }
-        updateChangeList(getOwner().toDisplayInformation());
+        updateChangeList();
         return false;
     }
 
@@ -390,11 +507,11 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
                 if (debug) LOG.debug("Targeted local message.");
                 send = this.sendLocalMessage(receiverIdentifier, filter, content);
             }
-            updateChangeList(getOwner().toDisplayInformation());
+            updateChangeList();
             return send;
         }
         LOG.info("failed to send");
-        updateChangeList(getOwner().toDisplayInformation());
+        updateChangeList();
         return false;
     }
 
@@ -409,6 +526,10 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
      */
     private boolean sendLocalMessage(final UniqueIdentifier toAgent,
                                      final String channelID, final Object content) {
+        if (getOrganization().getLocking() == OrganizationLocking.SPLIT) {
+            final IPersona receiverAgent = this.getPersona(toAgent);
+            return receiverAgent != null && sendLocalMessage(receiverAgent, channelID, content, false);
+        }
         this.lockData();
         try {
             final IPersona receiverAgent = this.getPersona(toAgent);
@@ -444,10 +565,10 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
                     : toAgent.getUniqueIdentifier(), channelID, content);
 
             LOG.debug("\t  incoming  before={}", capability.getIncoming());
-            capability.getIncoming().add(communicationPacket);
+            final boolean delivered = deliver(capability, communicationPacket);
             LOG.debug("\t  incoming  after={}", capability.getIncoming());
             LOG.debug("\tExiting sendLocalMessage: communicationPacket={}", communicationPacket);
-            return true;
+            return delivered;
         }
         return false;
     }
@@ -463,6 +584,10 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
     private boolean sendMessage(final UniqueIdentifier toAgent,
                                 final String channelID, final Object content) {
         LOG.debug("Entering sendMessage(toAgent={},channelID, content={})", toAgent, channelID, content);
+        if (getOrganization().getLocking() == OrganizationLocking.SPLIT) {
+            final IPersona receiverAgent = getPersona(toAgent);
+            return receiverAgent != null && sendMessage(receiverAgent, channelID, content, false);
+        }
         lockData();
         try {
             final IPersona receiverAgent = getPersona(toAgent);
@@ -496,8 +621,7 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
             final CommunicationPacket communicationPacket = new CommunicationPacket(
                     getOwner().getUniqueIdentifier(), broadcast ? null
                     : toAgent.getUniqueIdentifier(), channelID, content);
-            capability.getIncoming().add(communicationPacket);
-            return true;
+            return deliver(capability, communicationPacket);
         }
         if (debug)
             LOG.debug("sendMessage(IAgent, IAgent, Object, boolean) Agent {} do not have the communication capability.", toAgent);
@@ -506,6 +630,23 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
     }
 
 
+    /**
+     Offers the packet to the receiver's incoming inbox, through the fault injection stage when it is enabled. A packet
+     lost or delayed in transit still counts as sent.
+
+     @param capability the receiver's communication capability.
+     @param communicationPacket the packet to deliver.
+     @return {@code false} if the receiver's inbox refused the packet.
+     */
+    private static boolean deliver(final InternalCommunicationCapability capability,
+                                   final CommunicationPacket communicationPacket) {
+        if (MessagingReliabilityManager.isInjectingFaults()) {
+            MessagingReliabilityManager.dispatch(() -> capability.getIncoming().offer(communicationPacket));
+            return true;
+        }
+        return capability.getIncoming().offer(communicationPacket);
+    }
+
     @Override
     public Element toElement(final Document document) {
         final Element capability = super.toElement(document);
@@ -572,28 +713,7 @@ public class InternalCommunicationCapability extends AbstractOrganizationCapabil
             this.channel = channel;
             this.content = content;
 
-            checkSerializability(content);
-        }
-
-        /**
-         * Determines of the given {@code Object} is {@code Serializable}.
-         *
-         * @param content the {@code Object} to be checked.
-         * @return {@code true} if the given {@code Object} is {@code Serializable}, {@code false} otherwise.
-         */
-        private boolean checkSerializability(final Object content) {
-            try {
-                new ObjectOutputStream(new OutputStream() {
-                    @Override
-                    public void write(final int b) throws IOException {
-                        /* do nothing */
-                    }
-                }).writeObject(content);
-                return true;
-            } catch (final IOException e) {
-                e.printStackTrace();
-                return false;
-            }
+            SerializabilityChecker.check(content);
         }
 
         @Override
@@ -0,0 +1,173 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrent store of objects indexed by their exact class and identifier. Adding and removing an object are constant
+ * time. A query by class or interface returns every object whose class is assignable to it, as a read-only view over
+ * the class buckets that matched when it was made; nothing is copied, and iteration is weakly consistent, never throwing
+ * {@code ConcurrentModificationException}. The buckets matching each queried type are cached until an object of a new
+ * class is added.
+ *
+ * @param <T> - the type of object stored.
+ */
+public class ObjectStore<T> {
+    private final Map<Class<?>, Map<UniqueIdentifier, T>> byClass = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Matching<T>> matching = new ConcurrentHashMap<>();
+    /**
+     * Counts the class buckets created, so cached query results made before a new class appeared are not used.
+     */
+    private final AtomicInteger classVersion = new AtomicInteger();
+
+    private ObjectStore() {
+    }
+
+    public static <T> ObjectStore<T> createObjectStore() {
+        return new ObjectStore<>();
+    }
+
+    /**
+     * Add an object, replacing any object of the same class with the same identifier.
+     *
+     * @param identifier - the object's identifier.
+     * @param object     - the object.
+     */
+    public void add(final UniqueIdentifier identifier, final T object) {
+        Map<UniqueIdentifier, T> bucket = byClass.get(object.getClass());
+        if (bucket == null) {
+            final Map<UniqueIdentifier, T> created = new ConcurrentHashMap<>();
+            bucket = byClass.putIfAbsent(object.getClass(), created);
+            if (bucket == null) {
+                bucket = created;
+                classVersion.incrementAndGet();
+            }
+        }
+        bucket.put(identifier, object);
+    }
+
+    /**
+     * Remove an object.
+     *
+     * @param identifier - the object's identifier.
+     * @param object     - the object, used to find its class bucket.
+     * @return - true if it was stored.
+     */
+    public boolean remove(final UniqueIdentifier identifier, final T object) {
+        final Map<UniqueIdentifier, T> bucket = byClass.get(object.getClass());
+        return bucket != null && bucket.remove(identifier) != null;
+    }
+
+    /**
+     * Returns the objects of exactly the given class.
+     *
+     * @param type - the exact class.
+     * @return - a read-only view.
+     */
+    public Collection<T> getByClass(final Class<?> type) {
+        final Map<UniqueIdentifier, T> bucket = byClass.get(type);
+        return (bucket == null) ? Collections.<T>emptyList() : Collections.unmodifiableCollection(bucket.values());
+    }
+
+    /**
+     * Returns the objects whose class is the given class or interface or a subtype of it.
+     *
+     * @param type - the class or interface.
+     * @return - a read-only view.
+     */
+    public Collection<T> getByType(final Class<?> type) {
+        final int version = classVersion.get();
+        Matching<T> cached = matching.get(type);
+        if (cached == null || cached.version != version) {
+            final List<Map<UniqueIdentifier, T>> buckets = new ArrayList<>();
+            for (Map.Entry<Class<?>, Map<UniqueIdentifier, T>> entry : byClass.entrySet()) {
+                if (type.isAssignableFrom(entry.getKey())) buckets.add(entry.getValue());
+            }
+            cached = new Matching<>(version, buckets);
+            matching.put(type, cached);
+        }
+        return cached.view;
+    }
+
+    /**
+     * @return - the number of objects stored, summed over the class buckets.
+     */
+    public int size() {
+        int size = 0;
+        for (Map<UniqueIdentifier, T> bucket : byClass.values()) size += bucket.size();
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectStore{" +
+                "classes=" + byClass.size() +
+                ", objects=" + size() +
+                '}';
+    }
+
+    /**
+     * The buckets matching one queried type, found at a class version.
+     */
+    private static class Matching<T> {
+        private final int version;
+        private final Collection<T> view;
+
+        Matching(final int version, final List<Map<UniqueIdentifier, T>> buckets) {
+            this.version = version;
+            this.view = (buckets.size() == 1) ? Collections.unmodifiableCollection(buckets.get(0).values())
+                    : new UnionView<>(buckets);
+        }
+    }
+
+    /**
+     * A read-only view over several class buckets.
+     */
+    private static class UnionView<T> extends AbstractCollection<T> {
+        private final List<Map<UniqueIdentifier, T>> buckets;
+
+        UnionView(final List<Map<UniqueIdentifier, T>> buckets) {
+            this.buckets = buckets;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int next = 0;
+                private Iterator<T> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext()) {
+                        if (next >= buckets.size()) return false;
+                        current = buckets.get(next++).values().iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Map<UniqueIdentifier, T> bucket : buckets) size += bucket.size();
+            return size;
+        }
+    }
+}
@@ -6,9 +6,13 @@
 package edu.ksu.cis.macr.aasis.agent.persona;
 
 
+import edu.ksu.cis.macr.aasis.agent.cc_p.ConnectionModel;
+import edu.ksu.cis.macr.aasis.agent.cc_p.StartupTimeline;
 import edu.ksu.cis.macr.aasis.agent.persona.factory.ProxyPersonaFactory;
+import edu.ksu.cis.macr.aasis.config.RunManager;
 import edu.ksu.cis.macr.aasis.org.IOrganizationSpecification;
 import edu.ksu.cis.macr.aasis.org.OrganizationSpecification;
+import edu.ksu.cis.macr.aasis.simulator.clock.Clock;
 import edu.ksu.cis.macr.aasis.simulator.player.Player;
 import edu.ksu.cis.macr.aasis.spec.OrganizationFocus;
 import edu.ksu.cis.macr.goal.model.InstanceParameters;
@@ -24,17 +28,31 @@ import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 
 /**
@@ -61,11 +79,10 @@ public class Organization implements IOrganization {
      */
     protected final Lock pauseLock = new ReentrantLock();
     /**
-     * A {@code BlockingQueue} containing {@code DisplayInformation} on {@code IAttributable}s that has been removed from the
+     * The latest {@code DisplayInformation} on each {@code IAttributable} that has been removed from the
      * {@code Organization}.
      */
-    protected final BlockingQueue<IDisplayInformation>
-            removedDisplayChangesQueue = new LinkedBlockingQueue<>();
+    protected final DisplayChangePipeline removedDisplayChanges = DisplayChangePipeline.createDisplayChangePipeline();
     /**
      * Provides a point of synchronization for all active {@code IAgent} participants. {@code IAgent} that requires more than
      * a turn to perform some task should not be allowed to finish that task until all other {@code IAgent} have completed
@@ -73,6 +90,16 @@ public class Organization implements IOrganization {
      * given a certain number of time to perform some action.
      */
     protected final Synchronizer scheduler = new Synchronizer(this);
+    /**
+     * The tree of phasers under the {@code scheduler} that persona register and arrive on, so a turn boundary does not
+     * have every persona contending on one phaser.
+     */
+    protected final TurnBarrier turnBarrier = TurnBarrier.createTurnBarrier(scheduler, defaultTurnBarrierFanout);
+    /**
+     * Runs the persona of this organization on their own threads, on virtual threads, or as tasks in the pool shared
+     * by every organization, using the JVM's executor from the {@code RunManager}.
+     */
+    protected final IOrganizationPersonaExecutor personaExecutor = RunManager.getPersonaExecutor().forTurnBarrier(turnBarrier);
     /**
      * A {@code Map} of {@code ITangibleObject} that exists in the {@code Organization}.  Each {@code ITangibleObject} is
      * indexed by their {@code UniqueIdentifier}.
@@ -80,10 +107,13 @@ public class Organization implements IOrganization {
     protected final Map<UniqueIdentifier, ITangibleObject> tangibleObjects =
             new ConcurrentHashMap<>();
     /**
-     * A {@code BlockingQueue} containing {@code DisplayInformation} on {@code IAttributable}s that has changed in {@code Organization}.
+     * The latest {@code DisplayInformation} on each {@code IAttributable} that has changed in {@code Organization}.
      */
-    protected final BlockingQueue<IDisplayInformation>
-            updatedDisplayChangesQueue = new LinkedBlockingQueue<>();
+    protected final DisplayChangePipeline updatedDisplayChanges = DisplayChangePipeline.createDisplayChangePipeline();
+    /**
+     * Indicates if a viewer is reading display changes. Until one is, changes are not collected.
+     */
+    protected volatile boolean viewerAttached = false;
     /**
      * A {@code Map} of {@code IAgent} that exists in the {@code Organization}.  Each {@code IAgent} is indexed by their
      * {@code UniqueIdentifier}.
@@ -113,6 +143,83 @@ public class Organization implements IOrganization {
      * A reentrantLock to synchronize data access to the data structures in the {@code Organization}.
      */
     protected Lock dataLock = new ReentrantLock();
+    /**
+     * The number of membership lock stripes used in {@code SPLIT} locking.
+     */
+    private static final int MEMBERSHIP_STRIPES = 16;
+    /**
+     * How organizations created from now on guard their data.
+     */
+    private static volatile OrganizationLocking defaultLocking = OrganizationLocking.SINGLE;
+    /**
+     * How this organization guards its data.
+     */
+    protected final OrganizationLocking locking = defaultLocking;
+    /**
+     * Whether organizations created from now on record their history.
+     */
+    private static volatile boolean defaultRecordHistory = false;
+    /**
+     * The folder history segments are spilled to, or null for a new folder under the temporary folder.
+     */
+    private static volatile File historyDirectory = null;
+    /**
+     * The number of history segments held in memory before the oldest is spilled.
+     */
+    private static volatile int historyMemorySegments = HistoryLog.DEFAULT_MEMORY_SEGMENTS;
+    /**
+     * The most persona per leaf of the turn barrier for organizations created from now on, or zero for a flat barrier.
+     */
+    private static volatile int defaultTurnBarrierFanout = 0;
+    /**
+     * The number of broadcasts kept in the broadcast log of organizations created from now on, or zero to deliver each
+     * broadcast directly.
+     */
+    private static volatile int defaultBroadcastCapacity = 0;
+    /**
+     * Identifies an organization checkpoint file, followed by its format version.
+     */
+    private static final int STATE_MAGIC = 0x41415353;
+    private static final int STATE_VERSION = 2;
+    /**
+     * Tags for the types of goal parameter values in a checkpoint.
+     */
+    private static final int PARAMETER_NULL = 0;
+    private static final int PARAMETER_STRING = 1;
+    private static final int PARAMETER_INT = 2;
+    private static final int PARAMETER_LONG = 3;
+    private static final int PARAMETER_DOUBLE = 4;
+    private static final int PARAMETER_BOOLEAN = 5;
+    private static final int PARAMETER_OBJECT = 6;
+    /**
+     * The longest string parameter written with writeUTF, which is limited to 65535 encoded bytes.
+     */
+    private static final int MAX_UTF_PARAMETER_LENGTH = 0xFFFF / 3;
+    /**
+     * The capabilities whose state is saved in checkpoints.
+     */
+    private static final List<Class<? extends ICapability>> snapshotCapabilities =
+            new CopyOnWriteArrayList<>(Collections.singletonList(IHierarchicalConnectConnectCapability.class));
+    /**
+     * Locks guarding membership changes in {@code SPLIT} locking, chosen by the persona's identifier.
+     */
+    protected final Lock[] membershipLocks = new Lock[MEMBERSHIP_STRIPES];
+    /**
+     * Counts membership changes, so the persona snapshot is only rebuilt after one.
+     */
+    protected final AtomicLong membershipVersion = new AtomicLong();
+    /**
+     * An immutable copy of the persona directory and the membership version it was copied at.
+     */
+    private volatile PersonaSnapshot personaSnapshot = new PersonaSnapshot(-1, Collections.emptyList());
+
+    {
+        for (int i = 0; i < MEMBERSHIP_STRIPES; i++) membershipLocks[i] = new ReentrantLock();
+    }
+    /**
+     * Broadcasts within this organization, read by each persona through its own cursor.
+     */
+    protected final BroadcastLog<Object> broadcastLog = BroadcastLog.createBroadcastLog(defaultBroadcastCapacity);
     /**
      * A {@code Map} of {@code IAttributable} that exists in the {@code Organization}.  Each {@code IAttributable} is
      * indexed by their {@code UniqueIdentifier}.
@@ -125,24 +232,25 @@ public class Organization implements IOrganization {
     protected SpecificationParameters goalSpecificationParameters = new
             SpecificationParameters();
     /**
-     * A {@code Queue} that stores the changes to the {@code Organization} since the start of the simulation.
-     * Potentially, this can be used as a playback of the changes that happened in the instance. As a playback, the
-     * information required to store the changes are limited to only observable changes.
+     * Stores the changes to the {@code Organization} since the start of the simulation, by time slice. Potentially, this
+     * can be used as a playback of the changes that happened in the instance. As a playback, the information required to
+     * store the changes are limited to only observable changes. Older changes are spilled to disk, so only the most recent
+     * segments are held in memory. Created when the first change is recorded.
      */
-    protected Queue<IDisplayInformation> history = new
-            ConcurrentLinkedQueue<>();
+    protected volatile HistoryLog<IDisplayInformation> history;
+    /**
+     * Guards creating the {@code history}, so recording a change does not take the organization's monitor.
+     */
+    private final Object historyLock = new Object();
     /**
      * A {@code Map} of {@code IIntangibleObject} that exists in the {@code Organization}.  Each {@code IIntangibleObject} is indexed by their {@code UniqueIdentifier}.
      */
     protected Map<UniqueIdentifier, IIntangibleObject> intangibleObjects
             = new ConcurrentHashMap<>();
     /**
-     * A {@code Map} that maps the {@code Class} of the {@code IAttributable} to a collection of {@code IAttributable} of the
-     * same {@code Class}.
+     * Indexes the tangible, intangible, and environment {@code IAttributable} by their {@code Class}.
      */
-    protected Map<Class<? extends IAttributable>,
-            Collection<IAttributable>> objectsByClass = new
-            ConcurrentHashMap<>();
+    protected final ObjectStore<IAttributable> objectsByClass = ObjectStore.createObjectStore();
     /**
      * The set of goal parameters and their values for this instance of the goal model.
      */
@@ -170,7 +278,7 @@ public class Organization implements IOrganization {
      */
     public Organization(final String folder, final OrganizationFocus focus, final String goalfile, final String rolefile, final String topGoal) {
         LOG.info("Creating organization from {}. Focus={}.", folder, focus);
-        this.recordHistory = false;
+        this.recordHistory = defaultRecordHistory;
         File f = new File(folder);
         if (!f.exists()) {
             LOG.error("ERROR: Could not create organization from {}. Folder could not be found. Focus={}.", folder, focus);
@@ -197,7 +305,7 @@ public class Organization implements IOrganization {
      */
     public Organization(String folder, OrganizationFocus focus) {
         LOG.info("Creating organization from {}. Focus={}.", folder, focus);
-        this.recordHistory = false;
+        this.recordHistory = defaultRecordHistory;
         File f = new File(folder);
         if (!f.exists()) {
             LOG.error("ERROR: Could not create organization from {}. Folder could not be found. Focus={}.", folder, focus);
@@ -215,7 +323,7 @@ public class Organization implements IOrganization {
      */
     public Organization(String folder, OrganizationFocus focus, String orgModelFolder) {
         LOG.info("Creating organization from {}. Focus={}.", folder, focus);
-        this.recordHistory = false;
+        this.recordHistory = defaultRecordHistory;
         File f = new File(folder);
         if (!f.exists()) {
             LOG.error("ERROR: Could not create organization from {}. Folder could not be found. Focus={}.", folder, focus);
@@ -232,7 +340,7 @@ public class Organization implements IOrganization {
      */
     public Organization(String folder, OrganizationFocus focus, String orgModelFolder, String goalFilePath, String roleFilePath, String topGoal) {
         LOG.info("Creating organization from {}. Focus={}.", folder, focus);
-        this.recordHistory = false;
+        this.recordHistory = defaultRecordHistory;
         File f = new File(folder);
         if (!f.exists()) {
             LOG.error("ERROR: Could not create organization from {}. Folder could not be found. Focus={}.", folder, focus);
@@ -324,9 +432,9 @@ public class Organization implements IOrganization {
     public String toString() {
         return (this.getClass().getSimpleName() + " with " + this.getAllPersona()
                 .size() + " agents, " +
-                "" + this.getTangibleObjects().size() + " tangible objects, " +
-                "" + this.getIntangibleObjects().size() +
-                " intangible objects, " + this.getObjects().size() + " " +
+                "" + this.getTangibleObjectsView().size() + " tangible objects, " +
+                "" + this.getIntangibleObjectsView().size() +
+                " intangible objects, " + this.getObjectsView().size() + " " +
                 "organization objects, " +
                 "and  " + this.getRegisteredParties() + " registered parties.");
     }
@@ -339,7 +447,7 @@ public class Organization implements IOrganization {
      */
     @Override
     public int getRegisteredParties() {
-        return this.scheduler.getRegisteredParties();
+        return this.turnBarrier.getRegisteredParties();
     }
 
     @Override
@@ -374,7 +482,7 @@ public class Organization implements IOrganization {
     @Override
     public String verboseToString() {
         final String s = "";
-        final Collection<IAttributable> collection = this.getObjects();
+        final Collection<IAttributable> collection = this.getObjectsView();
 
         for (final IAttributable o : collection) {
             for (final IAttribute a : o.getAttributes()) {
@@ -388,12 +496,9 @@ public class Organization implements IOrganization {
 
     public synchronized void loadPersona() {
         try {
-            final Document document = DocumentBuilderFactory.newInstance()
-                    .newDocumentBuilder().parse(this.getOrganizationSpecification().getAgentFile());
-            Objects.requireNonNull(document);
-            ProxyPersonaFactory.setupPersonaList(
-                    document.getElementsByTagName(ELEMENT_AGENTS),
-                    this);
+            setupPersonaFromAgentFile(null);
+            startLoadedPersona();
+            connectLoadedPersona();
         } catch (ParserConfigurationException | SAXException |
                 IOException e) {
             LOG.error("Error loading agent file ({}): ", this.getOrganizationSpecification().getAgentFile(), e);
@@ -401,11 +506,40 @@ public class Organization implements IOrganization {
         }
     }
 
+    /**
+     * Creates persona listed in the organization's agent file.
+     *
+     * @param only - the class name of each persona to create by persona name, or null to create them all.
+     */
+    private void setupPersonaFromAgentFile(final Map<String, String> only) throws ParserConfigurationException,
+            SAXException, IOException {
+        final Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().parse(this.getOrganizationSpecification().getAgentFile());
+        Objects.requireNonNull(document);
+        ProxyPersonaFactory.setupPersonaList(document.getElementsByTagName(ELEMENT_AGENTS), this, only);
+    }
+
+    /**
+     * Recreates checkpoint persona missing from this organization from its agent file, matching each by name and
+     * class, and starts them.
+     *
+     * @param missing - the class name of each missing persona by persona name.
+     */
+    private synchronized void recreatePersona(final Map<String, String> missing) {
+        try {
+            setupPersonaFromAgentFile(missing);
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            LOG.error("ERROR: checkpoint persona could not be recreated from {}. {}",
+                    this.getOrganizationSpecification().getAgentFile(), e.toString());
+            return;
+        }
+        startLoadedPersona();
+    }
+
     @Override
     public Collection<IDisplayInformation> getRemovedDisplayChanges() {
-        final Collection<IDisplayInformation> result = new ArrayList<>();
-        this.removedDisplayChangesQueue.drainTo(result);
-        return result;
+        if (!this.viewerAttached) attachViewer();
+        return this.removedDisplayChanges.drain();
     }
 
 // --------------------- Interface IDirectable ---------------------
@@ -413,14 +547,34 @@ public class Organization implements IOrganization {
     @Override
     public Collection<IDisplayInformation> getUpdatedDisplayChanges()
             throws InterruptedException {
-        final Collection<IDisplayInformation> result = new ArrayList<>();
-        IDisplayInformation displayInformation;
-        while ((displayInformation = this.updatedDisplayChangesQueue.take())
-                == null) {
+        if (!this.viewerAttached) attachViewer();
+        return this.updatedDisplayChanges.take();
+    }
+
+    /**
+     * Starts collecting display changes, beginning with the current state of every tangible and intangible object.
+     * Called automatically the first time a viewer asks for changes.
+     */
+    @Override
+    public synchronized void attachViewer() {
+        if (this.viewerAttached) return;
+        this.viewerAttached = true;
+        for (final ITangibleObject object : this.tangibleObjects.values()) {
+            this.updatedDisplayChanges.offer(object.getObjectIdentifier(), object::toDisplayInformation);
+        }
+        for (final IIntangibleObject object : this.intangibleObjects.values()) {
+            this.updatedDisplayChanges.offer(object.getObjectIdentifier(), object::toDisplayInformation);
         }
-        result.add(displayInformation);
-        this.updatedDisplayChangesQueue.drainTo(result);
-        return result;
+    }
+
+    /**
+     * Stops collecting display changes and discards those pending.
+     */
+    @Override
+    public synchronized void detachViewer() {
+        this.viewerAttached = false;
+        this.updatedDisplayChanges.clear();
+        this.removedDisplayChanges.clear();
     }
 
     /**
@@ -460,18 +614,290 @@ public class Organization implements IOrganization {
 
     @Override
     public void loadState(final String filename) {
+        loadState(new File(filename));
     }
 
+    /**
+     * Restores a checkpoint written by {@code saveState}: the {@code Clock}, the {@code ConnectionModel}, the turn count,
+     * the goal parameter values, and the state of each persona's {@code ISnapshotCapability}. Checkpoint persona missing
+     * from the organization are recreated from its agent file, matched by identifier and class; their capabilities are
+     * then matched by persona identifier and capability class. The whole file is read and checked before anything is
+     * restored.
+     *
+     * @param file - the checkpoint file.
+     */
     @Override
     public void loadState(final File file) {
+        final long start = System.currentTimeMillis();
+        final byte[] clockState;
+        final byte[] connectionState;
+        final long savedTurns;
+        final byte[] parameterState;
+        final Map<String, String> personaTypes = new LinkedHashMap<>();
+        final Map<String, Map<String, byte[]>> capabilityStates = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != STATE_MAGIC || in.readInt() != STATE_VERSION) {
+                LOG.error("ERROR: organization state could not be read. {} is not a checkpoint of this version.", file);
+                return;
+            }
+            clockState = readBlock(in);
+            connectionState = readBlock(in);
+            savedTurns = in.readLong();
+            parameterState = readBlock(in);
+            for (int i = in.readInt(); i > 0; i--) {
+                final Map<String, byte[]> capabilities = new HashMap<>();
+                final String identifier = in.readUTF();
+                personaTypes.put(identifier, in.readUTF());
+                capabilityStates.put(identifier, capabilities);
+                for (int j = in.readInt(); j > 0; j--) {
+                    capabilities.put(in.readUTF(), readBlock(in));
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("ERROR: organization state could not be read from {}. {}", file, e.toString());
+            return;
+        }
+        try {
+            Clock.readState(new DataInputStream(new ByteArrayInputStream(clockState)));
+            ConnectionModel.readState(new DataInputStream(new ByteArrayInputStream(connectionState)));
+        } catch (IOException e) {
+            LOG.error("ERROR: clock and connection state could not be restored from {}. {}", file, e.toString());
+            return;
+        }
+        this.turns.set(savedTurns);
+        readGoalParameterValues(parameterState);
+        final Map<String, String> missing = new LinkedHashMap<>(personaTypes);
+        for (IPersona persona : getAllPersona()) {
+            missing.remove(persona.getUniqueIdentifier().toString());
+        }
+        if (!missing.isEmpty()) {
+            LOG.info("Recreating checkpoint persona missing from {}: {}", this.name, missing.keySet());
+            recreatePersona(missing);
+        }
+        int restored = 0;
+        for (IPersona persona : getAllPersona()) {
+            final Map<String, byte[]> capabilities = capabilityStates.remove(persona.getUniqueIdentifier().toString());
+            if (capabilities == null) continue;
+            for (Class<? extends ICapability> type : snapshotCapabilities) {
+                final byte[] state = capabilities.get(type.getName());
+                final ICapability capability = (state == null) ? null : persona.getCapability(type);
+                if (!(capability instanceof ISnapshotCapability)) continue;
+                try {
+                    ((ISnapshotCapability) capability).readState(new DataInputStream(new ByteArrayInputStream(state)));
+                    restored++;
+                } catch (IOException e) {
+                    LOG.error("ERROR: {} state of {} could not be restored. {}", type.getSimpleName(), persona.getUniqueIdentifier(), e.toString());
+                }
+            }
+        }
+        if (!capabilityStates.isEmpty()) {
+            LOG.info("Checkpoint persona not in this organization or its agent file were skipped: {}",
+                    capabilityStates.keySet());
+        }
+        LOG.info("Restored {} at time slice {} from {} ({} capabilities) in {} ms.", this.name,
+                Clock.getTimeSlicesElapsedSinceStart(), file, restored, System.currentTimeMillis() - start);
     }
 
     @Override
     public void saveState(final String filename) {
+        saveState(new File(filename));
     }
 
+    /**
+     * Writes a binary checkpoint of the {@code Clock}, the {@code ConnectionModel}, the turn count, the serializable goal
+     * parameter values, and each persona's identifier, class, and {@code ISnapshotCapability} state. Each section is
+     * length-prefixed. The file is written beside the target and then moved over it, so an interrupted save leaves the
+     * last checkpoint; the partial file is deleted if the save fails.
+     *
+     * @param file - the checkpoint file.
+     */
     @Override
     public void saveState(final File file) {
+        final long start = System.currentTimeMillis();
+        final File temporary = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        final int skipped;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(STATE_MAGIC);
+            out.writeInt(STATE_VERSION);
+            final ByteArrayOutputStream section = new ByteArrayOutputStream();
+            Clock.writeState(new DataOutputStream(section));
+            writeBlock(out, section);
+            ConnectionModel.writeState(new DataOutputStream(section));
+            writeBlock(out, section);
+            out.writeLong(this.turns.get());
+
+            skipped = writeGoalParameterValues(section);
+            writeBlock(out, section);
+
+            final Collection<IPersona> allPersona = getAllPersona();
+            out.writeInt(allPersona.size());
+            for (IPersona persona : allPersona) {
+                out.writeUTF(persona.getUniqueIdentifier().toString());
+                out.writeUTF(persona.getClass().getName());
+                final Map<String, byte[]> capabilities = new LinkedHashMap<>();
+                for (Class<? extends ICapability> type : snapshotCapabilities) {
+                    final ICapability capability = persona.getCapability(type);
+                    if (!(capability instanceof ISnapshotCapability)) continue;
+                    ((ISnapshotCapability) capability).writeState(new DataOutputStream(section));
+                    capabilities.put(type.getName(), section.toByteArray());
+                    section.reset();
+                }
+                out.writeInt(capabilities.size());
+                for (Map.Entry<String, byte[]> entry : capabilities.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("ERROR: organization state could not be written to {}. {}", temporary, e.toString());
+            deleteTemporary(temporary);
+            return;
+        }
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("ERROR: organization state could not be moved to {}. {}", file, e.toString());
+            deleteTemporary(temporary);
+            return;
+        }
+        if (skipped > 0) LOG.info("{} goal parameter values are not serializable and were not saved.", skipped);
+        LOG.info("Saved {} at time slice {} to {} ({} bytes) in {} ms.", this.name, Clock.getTimeSlicesElapsedSinceStart(),
+                file, file.length(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Adds a capability whose state is saved in checkpoints. The capability must implement {@code ISnapshotCapability}.
+     *
+     * @param type - the capability interface persona are asked for.
+     */
+    public static void registerSnapshotCapability(final Class<? extends ICapability> type) {
+        if (!snapshotCapabilities.contains(type)) snapshotCapabilities.add(type);
+    }
+
+    /**
+     * Writes the goal parameter values through one object stream, so each class is described once rather than once per
+     * value. Strings, boxed numbers, and booleans are written as tagged primitives. Values that are not serializable are
+     * left out; if one only fails while being written, the section is written again without it.
+     *
+     * @param section - the buffer for the parameter section.
+     * @return - the number of values left out.
+     * @throws IOException - if the section cannot be written.
+     */
+    private int writeGoalParameterValues(final ByteArrayOutputStream section) throws IOException {
+        final Map<UniqueIdentifier, Object> values = new LinkedHashMap<>();
+        int skipped = 0;
+        for (Map.Entry<UniqueIdentifier, Object> entry : this.goalParameterValues.entrySet()) {
+            final Object value = entry.getValue();
+            if (entry.getKey() instanceof Serializable && (value == null || value instanceof Serializable)) {
+                values.put(entry.getKey(), value);
+            } else {
+                skipped++;
+            }
+        }
+        while (true) {
+            UniqueIdentifier current = null;
+            try (ObjectOutputStream out = new ObjectOutputStream(section)) {
+                out.writeInt(values.size());
+                for (Map.Entry<UniqueIdentifier, Object> entry : values.entrySet()) {
+                    current = entry.getKey();
+                    out.writeObject(current);
+                    writeParameterValue(out, entry.getValue());
+                }
+                return skipped;
+            } catch (NotSerializableException e) {
+                if (current == null) throw e;
+                values.remove(current);
+                skipped++;
+                section.reset();
+            }
+        }
+    }
+
+    private static void writeParameterValue(final ObjectOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(PARAMETER_NULL);
+        } else if (value instanceof String && ((String) value).length() <= MAX_UTF_PARAMETER_LENGTH) {
+            out.writeByte(PARAMETER_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(PARAMETER_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(PARAMETER_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(PARAMETER_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(PARAMETER_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(PARAMETER_OBJECT);
+            out.writeObject(value);
+        }
+    }
+
+    /**
+     * Restores the goal parameter values written by {@code writeGoalParameterValues}.
+     *
+     * @param state - the parameter section.
+     */
+    private void readGoalParameterValues(final byte[] state) {
+        int restored = 0;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+            for (int i = in.readInt(); i > 0; i--) {
+                final UniqueIdentifier key = (UniqueIdentifier) in.readObject();
+                this.goalParameterValues.put(key, readParameterValue(in));
+                restored++;
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOG.error("ERROR: goal parameter values could not be restored after {}. {}", restored, e.toString());
+        }
+    }
+
+    private static Object readParameterValue(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final int tag = in.readByte();
+        switch (tag) {
+            case PARAMETER_NULL:
+                return null;
+            case PARAMETER_STRING:
+                return in.readUTF();
+            case PARAMETER_INT:
+                return in.readInt();
+            case PARAMETER_LONG:
+                return in.readLong();
+            case PARAMETER_DOUBLE:
+                return in.readDouble();
+            case PARAMETER_BOOLEAN:
+                return in.readBoolean();
+            case PARAMETER_OBJECT:
+                return in.readObject();
+            default:
+                throw new IOException("Unknown goal parameter tag " + tag);
+        }
+    }
+
+    private static void deleteTemporary(final File temporary) {
+        try {
+            Files.deleteIfExists(temporary.toPath());
+        } catch (IOException e) {
+            LOG.error("ERROR: partial checkpoint {} could not be deleted. {}", temporary, e.toString());
+        }
+    }
+
+    private static void writeBlock(final DataOutputStream out, final ByteArrayOutputStream section) throws IOException {
+        out.writeInt(section.size());
+        section.writeTo(out);
+        section.reset();
+    }
+
+    private static byte[] readBlock(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) throw new IOException("Negative section length " + length);
+        final byte[] block = new byte[length];
+        in.readFully(block);
+        return block;
     }
 
 // --------------------- Interface IOrganization ---------------------
@@ -490,11 +916,11 @@ public class Organization implements IOrganization {
      */
     @Override
     public void disableAgent() {
-        if (debug) LOG.debug("disableAgent() Already Waiting : {} Parties : {}", this.scheduler
+        if (debug) LOG.debug("disableAgent() Already Waiting : {} Parties : {}", this.turnBarrier
                 .getArrivedParties(), this
-                .scheduler.getRegisteredParties());
+                .turnBarrier.getRegisteredParties());
 
-        this.scheduler.arriveAndDeregister();
+        this.turnBarrier.arriveAndDeregister();
     }
 
     /**
@@ -504,8 +930,8 @@ public class Organization implements IOrganization {
     @Override
     public void enableAgent() {
         if (debug)
-            LOG.debug("Organization enableAgent() Already Waiting : {} Parties : {}", this.scheduler.getArrivedParties(), this.scheduler.getRegisteredParties());
-        this.scheduler.register();
+            LOG.debug("Organization enableAgent() Already Waiting : {} Parties : {}", this.turnBarrier.getArrivedParties(), this.turnBarrier.getRegisteredParties());
+        this.turnBarrier.register();
     }
 
     /**
@@ -514,8 +940,8 @@ public class Organization implements IOrganization {
     @Override
     public void endTurn() {
         if (debug)
-            LOG.debug("Entering endTurn() Already Waiting : {} Parties : {}", this.scheduler.getArrivedParties(), this.scheduler.getRegisteredParties());
-        this.scheduler.arriveAndAwaitAdvance();
+            LOG.debug("Entering endTurn() Already Waiting : {} Parties : {}", this.turnBarrier.getArrivedParties(), this.turnBarrier.getRegisteredParties());
+        this.turnBarrier.arriveAndAwaitAdvance();
     }
 
     /**
@@ -536,6 +962,163 @@ public class Organization implements IOrganization {
         this.dataLock.lock();
     }
 
+    public static void setDefaultLocking(final OrganizationLocking locking) {
+        Organization.defaultLocking = locking;
+    }
+
+    /**
+     * Sets the most persona per leaf of the turn barrier for organizations created from now on.
+     *
+     * @param fanout - the most persona per leaf, or zero for a single flat barrier.
+     */
+    public static void setDefaultTurnBarrierFanout(final int fanout) {
+        Organization.defaultTurnBarrierFanout = fanout;
+    }
+
+    /**
+     * Sets the number of broadcasts kept in the broadcast log of organizations created from now on. A persona that
+     * falls further behind than that misses broadcasts, and its organization then delivers broadcasts directly.
+     *
+     * @param capacity - the number of broadcasts kept, rounded up to a power of two, or zero to deliver each broadcast
+     *                 directly.
+     */
+    public static void setDefaultBroadcastCapacity(final int capacity) {
+        Organization.defaultBroadcastCapacity = capacity;
+    }
+
+    /**
+     * Begins running the given persona with this organization's {@code IOrganizationPersonaExecutor}.
+     *
+     * @param persona - the persona to run.
+     */
+    @Override
+    public void startPersona(final IPersona persona) {
+        this.personaExecutor.start(persona);
+    }
+
+    /**
+     * Starts the persona waiting to join with the {@code IOrganizationPersonaExecutor}, when it runs turns on the
+     * organization's behalf or on virtual threads. With platform threads the persona are left waiting to join, and the
+     * scheduler starts them as before.
+     */
+    protected void startLoadedPersona() {
+        if (this.personaExecutor.getMode() == PersonaExecutionMode.PLATFORM) return;
+        IPersona persona;
+        while ((persona = this.personaWaitingToJoin.poll()) != null) {
+            if (debug) LOG.debug("Starting {} with {}.", persona.getUniqueIdentifier(), this.personaExecutor);
+            startPersona(persona);
+        }
+    }
+
+    /**
+     * Starts the run's {@code StartupTimeline}, whichever way the persona run, and connects the organization's persona
+     * to their parents and children with the {@code RunManager}'s {@code ConnectionBootstrap}, when one is configured.
+     * The bootstrap runs in the background, so loading does not wait for the handshakes; the persona's own connect goals
+     * see the connections as they are made. Without a bootstrap, as with platform threads by default, the persona
+     * connect through their goals and the timeline still records them.
+     */
+    protected void connectLoadedPersona() {
+        final StartupTimeline timeline = RunManager.getStartupTimeline();
+        final ConnectionBootstrap bootstrap = RunManager.getConnectionBootstrap();
+        if (bootstrap == null) return;
+        final List<IHierarchicalConnectConnectCapability> capabilities = new ArrayList<>();
+        for (IPersona persona : getAllPersona()) {
+            final ICapability capability = persona.getCapability(IHierarchicalConnectConnectCapability.class);
+            if (capability instanceof IHierarchicalConnectConnectCapability) {
+                capabilities.add((IHierarchicalConnectConnectCapability) capability);
+            }
+        }
+        if (capabilities.isEmpty()) return;
+        LOG.info("Connecting {} persona of {} with {}.", capabilities.size(), getName(), bootstrap);
+        bootstrap.connectAllInBackground(capabilities, RunManager.getConnectionBootstrapTimeoutMillis())
+                .thenAccept(connected -> LOG.info("Bootstrap of {} finished: connected={}. {}", getName(), connected,
+                        timeline.getSummaryString()));
+    }
+
+    public IOrganizationPersonaExecutor getPersonaExecutor() {
+        return this.personaExecutor;
+    }
+
+    /**
+     * Returns the turn barrier, which also reports the slowest persona of each turn.
+     *
+     * @return - the turn barrier.
+     */
+    public TurnBarrier getTurnBarrier() {
+        return this.turnBarrier;
+    }
+
+    /**
+     * Sets how organizations created from now on record their history.
+     *
+     * @param recordHistory  - whether history is recorded.
+     * @param directory      - the folder history segments are spilled to, or null for a new temporary folder.
+     * @param memorySegments - the number of history segments held in memory before the oldest is spilled.
+     */
+    public static void setHistoryDefaults(final boolean recordHistory, final File directory, final int memorySegments) {
+        Organization.defaultRecordHistory = recordHistory;
+        Organization.historyDirectory = directory;
+        Organization.historyMemorySegments = memorySegments;
+    }
+
+    /**
+     * Returns the recorded history of changes, or null if nothing has been recorded. Use
+     * {@code HistoryLog.replay(from, to)} to read a window of time slices.
+     *
+     * @return - the history.
+     */
+    public HistoryLog<IDisplayInformation> getHistory() {
+        return this.history;
+    }
+
+    /**
+     * Returns the history, creating it the first time. History spilled to a temporary folder, rather than the
+     * configured {@code historydirectory}, is deleted when the JVM exits; history kept there can be read back with
+     * {@code HistoryLog.openHistoryLog}.
+     */
+    private HistoryLog<IDisplayInformation> history() {
+        final HistoryLog<IDisplayInformation> existing = this.history;
+        if (existing != null) return existing;
+        synchronized (historyLock) {
+            if (this.history == null) {
+                final File configured = historyDirectory;
+                final File directory = (configured != null) ? configured : new File(
+                        System.getProperty("java.io.tmpdir"), "aasis-history-" + this.name + "-" + System.currentTimeMillis());
+                final HistoryLog<IDisplayInformation> created = HistoryLog.createHistoryLog(directory,
+                        HistoryLog.DEFAULT_SEGMENT_BYTES, historyMemorySegments,
+                        HistoryLog.createCompactCodec(IDisplayInformation.class));
+                if (configured == null) created.deleteOnExit();
+                this.history = created;
+            }
+            return this.history;
+        }
+    }
+
+    @Override
+    public OrganizationLocking getLocking() {
+        return this.locking;
+    }
+
+    /**
+     * Acquires the lock guarding membership of the given persona: its stripe in {@code SPLIT} locking, otherwise the data
+     * lock. A membership lock is always taken before the data lock, never while holding it.
+     *
+     * @param identifier the identifier of the persona joining or leaving.
+     * @return the lock acquired.
+     */
+    protected Lock lockMembership(final UniqueIdentifier identifier) {
+        final Lock lock = (this.locking == OrganizationLocking.SPLIT)
+                ? this.membershipLocks[Math.floorMod(identifier.hashCode(), MEMBERSHIP_STRIPES)]
+                : this.dataLock;
+        lock.lock();
+        return lock;
+    }
+
+    @Override
+    public BroadcastLog<Object> getBroadcastLog() {
+        return this.broadcastLog;
+    }
+
     @Override
     public void setOrganizationEventsFromControlComponent() {
     }
@@ -557,7 +1140,7 @@ public class Organization implements IOrganization {
      */
     @Override
     public boolean addAgent(final IPersona persona) {
-        lockData();
+        final Lock lock = lockMembership(persona.getUniqueIdentifier());
         try {
             /* if the agent already exists or is going to exists, do nothing */
             if (this.agents.containsKey(persona.getUniqueIdentifier()) || this
@@ -591,7 +1174,8 @@ public class Organization implements IOrganization {
                 }
             }
         } finally {
-            unlockData();
+            this.membershipVersion.incrementAndGet();
+            lock.unlock();
         }
     }
 
@@ -713,6 +1297,7 @@ public class Organization implements IOrganization {
     @Override
     public Collection<IPersona> getAllPersona() {
         LOG.debug("Entering getAllPersona(). agents={}", agents);
+        if (this.locking == OrganizationLocking.SPLIT) return getPersonaSnapshot();
 
         if (this.agents.isEmpty()) {
             if (debug) LOG.debug("There are are no agents in this {} organization" +
@@ -724,6 +1309,21 @@ public class Organization implements IOrganization {
         return this.agents.values();
     }
 
+    /**
+     * Returns an immutable copy of the persona directory, copied again only after membership has changed.
+     *
+     * @return the {@code Collection} of {@code IAgent}.
+     */
+    private Collection<IPersona> getPersonaSnapshot() {
+        final long version = this.membershipVersion.get();
+        PersonaSnapshot snapshot = this.personaSnapshot;
+        if (snapshot.version != version || snapshot.persona.size() != this.agents.size()) {
+            snapshot = new PersonaSnapshot(version, Collections.unmodifiableList(new ArrayList<>(this.agents.values())));
+            this.personaSnapshot = snapshot;
+        }
+        return snapshot.persona;
+    }
+
     /**
      * Returns the {@code Collection} of {@code IIntangibleObject} in the {@code Organization}.
      *
@@ -734,6 +1334,16 @@ public class Organization implements IOrganization {
         return new ArrayList<>(this.intangibleObjects.values());
     }
 
+    /**
+     * Returns a read-only view of the {@code IIntangibleObject} in the {@code Organization}, without copying them. The
+     * view changes as objects are added and removed.
+     *
+     * @return a read-only view of the {@code IIntangibleObject}.
+     */
+    public Collection<IIntangibleObject> getIntangibleObjectsView() {
+        return Collections.unmodifiableCollection(this.intangibleObjects.values());
+    }
+
     /**
      * Returns the {@code Collection} of {@code IAttributable} in the {@code Organization}.
      *
@@ -745,21 +1355,26 @@ public class Organization implements IOrganization {
     }
 
     /**
-     * Returns a {@code Collection} of {@code IAttributable} of the given {@code Class}.
+     * Returns a read-only view of the {@code IAttributable} in the {@code Organization}, without copying them. The view
+     * changes as objects are added and removed.
+     *
+     * @return a read-only view of the {@code IAttributable}.
+     */
+    public Collection<IAttributable> getObjectsView() {
+        return Collections.unmodifiableCollection(this.environmentObjects.values());
+    }
+
+    /**
+     * Returns a {@code Collection} of {@code IAttributable} of the given {@code Class}, including instances of its
+     * subclasses and, for an interface, of every implementing class. The result is a read-only view, not a copy.
      *
      * @param objectClass the {@code Class} to retrieve.
-     * @return a {@code Collection} of {@code IAttributable} of the given {@code Class}, {@code null} otherwise.
+     * @return a {@code Collection} of {@code IAttributable} of the given {@code Class}, empty if there are none.
      */
     @Override
     public Collection<IAttributable> getObjectsByClass(final Class<?
             extends IAttributable> objectClass) {
-        final Collection<IAttributable> result = new ArrayList<>();
-        final Collection<IAttributable> c = this.objectsByClass.get
-                (objectClass);
-        if (c != null) {
-            result.addAll(c);
-        }
-        return result;
+        return this.objectsByClass.getByType(objectClass);
     }
 
     /**
@@ -772,6 +1387,16 @@ public class Organization implements IOrganization {
         return new ArrayList<>(this.tangibleObjects.values());
     }
 
+    /**
+     * Returns a read-only view of the {@code ITangibleObject} in the {@code Organization}, without copying them. The
+     * view changes as objects are added and removed.
+     *
+     * @return a read-only view of the {@code ITangibleObject}.
+     */
+    public Collection<ITangibleObject> getTangibleObjectsView() {
+        return Collections.unmodifiableCollection(this.tangibleObjects.values());
+    }
+
     /**
      * Removes the given {@code IIntangibleObject} from the {@code Organization}.
      *
@@ -796,12 +1421,14 @@ public class Organization implements IOrganization {
      */
     @Override
     public void removePersona(final IPersona persona) {
-        lockData();
+        final Lock lock = lockMembership(persona.getUniqueIdentifier());
         try {
             this.agents.remove(persona.getUniqueIdentifier());
+            this.personaExecutor.stop(persona);
+            this.membershipVersion.incrementAndGet();
             removeTangibleObject(persona);
         } finally {
-            unlockData();
+            lock.unlock();
         }
     }
 
@@ -895,11 +1522,7 @@ public class Organization implements IOrganization {
      * @param object the {@code IAttributable} to be added.
      */
     private void addObjectByClass(final IAttributable object) {
-        if (!this.objectsByClass.containsKey(object.getClass())) {
-            final ArrayList<IAttributable> list = new ArrayList<>();
-            this.objectsByClass.put(object.getClass(), list);
-        }
-        this.objectsByClass.get(object.getClass()).add(object);
+        this.objectsByClass.add(object.getObjectIdentifier(), object);
     }
 
     /**
@@ -908,30 +1531,51 @@ public class Organization implements IOrganization {
      * @param object the {@code IAttributable} to caused changes in the {@code Organization}.
      */
     private void informDisplayChanges(final IAttributable object) {
-        notifyDisplayChanges(object.toDisplayInformation());
+        notifyDisplayChanges(object.getObjectIdentifier(), object::toDisplayInformation);
     }
 
     /**
-     * Adds the given {@code DisplayInformation} to the history {@code Queue} and the changes {@code BlockingQueue}.
+     * Adds the given {@code DisplayInformation} to the history for the current time slice and, if a viewer is attached, to
+     * the changes for its identifier.
      * Since interaction in the {@code Organization} is achieved only through {@code ICapability}, this method should only be
      * utilized by {@code ICapability}.
      *
-     * @param displayInformation the {@code DisplayInformation} to be added to the history {@code Queue} and the * * * * * *
-     *                           * * * * * changes {@code BlockingQueue}.
+     * @param displayInformation the {@code DisplayInformation} to be added to the history and the changes.
      */
     @Override
     public void notifyDisplayChanges(final IDisplayInformation
                                              displayInformation) {
         if (this.recordHistory) {
-            this.history.add(displayInformation);
+            history().append(Clock.getTimeSlicesElapsedSinceStart(), displayInformation);
+        }
+        if (this.viewerAttached) {
+            offerDisplayChange(displayInformation.getIdentifier(), () -> displayInformation);
         }
+    }
 
-        if (this.tangibleObjects.containsKey(displayInformation.getIdentifier
-                ()) || this.intangibleObjects
-                .containsKey(displayInformation.getIdentifier())) {
-            this.updatedDisplayChangesQueue.add(displayInformation);
+    /**
+     * Records that the object with the given identifier changed. The {@code DisplayInformation} is only built if a viewer
+     * reads the change, or if history is being recorded. Does nothing when neither is the case.
+     *
+     * @param identifier         the identifier of the changed object.
+     * @param displayInformation builds the {@code DisplayInformation} for the object's current state.
+     */
+    @Override
+    public void notifyDisplayChanges(final UniqueIdentifier identifier,
+                                     final Supplier<IDisplayInformation> displayInformation) {
+        if (this.recordHistory) {
+            notifyDisplayChanges(displayInformation.get());
+        } else if (this.viewerAttached) {
+            offerDisplayChange(identifier, displayInformation);
+        }
+    }
+
+    private void offerDisplayChange(final UniqueIdentifier identifier,
+                                    final Supplier<IDisplayInformation> displayInformation) {
+        if (this.tangibleObjects.containsKey(identifier) || this.intangibleObjects.containsKey(identifier)) {
+            this.updatedDisplayChanges.offer(identifier, displayInformation);
         } else {
-            this.removedDisplayChangesQueue.add(displayInformation);
+            this.removedDisplayChanges.offer(identifier, displayInformation);
         }
     }
 
@@ -941,10 +1585,23 @@ public class Organization implements IOrganization {
      * @param object the {@code IAttributable} to be removed.
      */
     private void removeObjectByClass(final IAttributable object) {
-        this.objectsByClass.get(object.getClass()).remove(object);
+        this.objectsByClass.remove(object.getObjectIdentifier(), object);
     }
 
     public void step() {
         Player.step();
     }
+
+    /**
+     * A copy of the persona directory taken at a membership version.
+     */
+    private static class PersonaSnapshot {
+        private final long version;
+        private final Collection<IPersona> persona;
+
+        PersonaSnapshot(final long version, final Collection<IPersona> persona) {
+            this.version = version;
+            this.persona = persona;
+        }
+    }
 }
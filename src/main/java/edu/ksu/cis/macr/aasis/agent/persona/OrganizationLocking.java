@@ -0,0 +1,29 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+/**
+ * How an {@code Organization} guards its data structures.
+ */
+public enum OrganizationLocking {
+    /**
+     * One data lock guards membership, objects, and message delivery. The default.
+     */
+    SINGLE,
+    /**
+     * Membership changes take a lock stripe keyed by the persona's identifier, object changes take the data lock, and
+     * message delivery reads the persona directory without locking. Opt in with {@code organizationlocking=split}.
+     */
+    SPLIT;
+
+    /**
+     * Find a locking mode by name, ignoring case.
+     *
+     * @param name - "single" or "split".
+     * @return - the mode, or null if the name is not recognized.
+     */
+    public static OrganizationLocking fromName(final String name) {
+        for (OrganizationLocking locking : values()) {
+            if (locking.name().equalsIgnoreCase(name.trim())) return locking;
+        }
+        return null;
+    }
+}
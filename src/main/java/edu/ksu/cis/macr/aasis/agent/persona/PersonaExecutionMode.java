@@ -0,0 +1,63 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * How an {@code Organization} runs its persona.
+ */
+public enum PersonaExecutionMode {
+    /**
+     * Run each persona's run() on its own platform thread, named for the persona.
+     */
+    PLATFORM,
+    /**
+     * Run each persona's turn, its execute(), as a task in a bounded work-stealing pool shared by every organization. One
+     * driver thread takes part in each organization's turn barrier for all of its persona, so the thread count does not
+     * grow with the number of persona or organizations.
+     */
+    FORKJOIN,
+    /**
+     * Run each persona's run() on its own virtual thread, on a JDK that has them (21 or later).
+     */
+    VIRTUAL;
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersonaExecutionMode.class);
+
+    /**
+     * Find a mode by name, ignoring case and accepting dashes for underscores.
+     *
+     * @param name - e.g. "forkjoin" or "VIRTUAL".
+     * @return - the mode, or null if the name is not recognized.
+     */
+    public static PersonaExecutionMode fromName(final String name) {
+        final String normalized = name.trim().toUpperCase().replace('-', '_');
+        for (PersonaExecutionMode mode : values()) {
+            if (mode.name().equals(normalized)) return mode;
+        }
+        return null;
+    }
+
+    /**
+     * Create the JVM's executor for this mode. Virtual threads fall back to platform threads on a JDK without them.
+     *
+     * @param parallelism - the number of pool threads for {@code FORKJOIN}, or zero for one per processor.
+     * @return - the executor.
+     */
+    public IPersonaExecutor createExecutor(final int parallelism) {
+        switch (this) {
+            case FORKJOIN:
+                return ForkJoinPersonaExecutor.createForkJoinPersonaExecutor(
+                        (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors());
+            case VIRTUAL:
+                if (ThreadPerPersonaExecutor.isVirtualThreadSupported()) {
+                    return ThreadPerPersonaExecutor.createThreadPerPersonaExecutor(true);
+                }
+                LOG.error("ERROR: virtual threads are not available on Java {}. Using platform threads.",
+                        System.getProperty("java.version"));
+                return ThreadPerPersonaExecutor.createThreadPerPersonaExecutor(false);
+            default:
+                return ThreadPerPersonaExecutor.createThreadPerPersonaExecutor(false);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * The {@code SerializabilityChecker} singleton checks that message contents sent between persona could be serialized.
+ * In the default cached mode the first instance of each class is written through an {@code ObjectOutputStream} and the
+ * verdict is kept for the class, so later sends of that class cost a {@code ClassValue} lookup. Strict mode writes
+ * every instance and throws on failure, for tests that need to catch contents whose fields are not serializable.
+ */
+public enum SerializabilityChecker {
+    /**
+     * Singleton instance of the serializability checker (one per JVM).
+     */
+    INSTANCE;
+
+    private static final Logger LOG = LoggerFactory.getLogger(SerializabilityChecker.class);
+    private static final boolean debug = false;
+    private static volatile Mode mode = Mode.CACHED;
+    private static final ClassValue<Verdict> verdicts = new ClassValue<Verdict>() {
+        @Override
+        protected Verdict computeValue(final Class<?> type) {
+            return new Verdict(type);
+        }
+    };
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+    public static void setMode(final Mode mode) {
+        SerializabilityChecker.mode = mode;
+    }
+
+    /**
+     * Select the mode by name.
+     *
+     * @param name - "cached", "strict", or "off".
+     * @return - true if the name was recognized.
+     */
+    public static boolean setMode(final String name) {
+        try {
+            setMode(Mode.valueOf(name.trim().toUpperCase()));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check the content according to the current mode.
+     *
+     * @param content - the content about to be sent, which may be null.
+     * @return - true if the content is (or is presumed) serializable.
+     * @throws IllegalArgumentException - in strict mode, if the content cannot be serialized.
+     */
+    public static boolean check(final Object content) {
+        if (content == null) return true;
+        switch (mode) {
+            case OFF:
+                return true;
+            case STRICT:
+                final IOException failure = probe(content);
+                if (failure != null) {
+                    throw new IllegalArgumentException("Content is not serializable: " + content.getClass().getName(), failure);
+                }
+                return true;
+            default:
+                return verdicts.get(content.getClass()).decide(content);
+        }
+    }
+
+    /**
+     * Validate a class ahead of its first send using a sample instance.
+     *
+     * @param sample - an instance of the class to validate.
+     * @return - the verdict now cached for the sample's class, or true for null.
+     */
+    public static boolean register(final Object sample) {
+        if (sample == null) return true;
+        return verdicts.get(sample.getClass()).decide(sample);
+    }
+
+    /**
+     * Write the content to a discarding stream.
+     *
+     * @return - null if it was written, otherwise the failure.
+     */
+    private static IOException probe(final Object content) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                /* do nothing */
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                /* do nothing */
+            }
+        })) {
+            out.writeObject(content);
+            return null;
+        } catch (final IOException e) {
+            return e;
+        }
+    }
+
+    /**
+     * How contents are checked.
+     */
+    public enum Mode {
+        /**
+         * Probe the first instance of each class and reuse the verdict.
+         */
+        CACHED,
+        /**
+         * Probe every instance and throw if it cannot be serialized.
+         */
+        STRICT,
+        /**
+         * Do not check.
+         */
+        OFF
+    }
+
+    /**
+     * The cached verdict for one class, decided by the first instance checked.
+     */
+    private static class Verdict {
+        private final Class<?> type;
+        private volatile Boolean serializable;
+
+        Verdict(final Class<?> type) {
+            this.type = type;
+            if (!Serializable.class.isAssignableFrom(type)) {
+                serializable = Boolean.FALSE;
+                LOG.error("Content of {} is not serializable; it does not implement Serializable.", type.getName());
+            }
+        }
+
+        boolean decide(final Object content) {
+            Boolean verdict = serializable;
+            if (verdict == null) {
+                final IOException failure = probe(content);
+                verdict = (failure == null);
+                serializable = verdict;
+                if (failure != null) LOG.error("Content of {} is not serializable. {}", type.getName(), failure.toString());
+                if (debug) LOG.debug("Cached serializability of {}: {}", type.getName(), verdict);
+            } else if (!verdict && debug) {
+                LOG.debug("Content of {} is not serializable.", type.getName());
+            }
+            return verdict;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs each persona's run() on a thread of its own, named for the persona: a platform thread, or a virtual thread on a
+ * JDK that has them. Virtual threads are created by reflection, so the code still compiles for Java 8.
+ */
+public class ThreadPerPersonaExecutor implements IPersonaExecutor, IOrganizationPersonaExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadPerPersonaExecutor.class);
+    private static final boolean debug = false;
+    private static final Method ofVirtual;
+    private static final Method builderName;
+    private static final Method builderUnstarted;
+
+    static {
+        Method of = null;
+        Method name = null;
+        Method unstarted = null;
+        try {
+            of = Thread.class.getMethod("ofVirtual");
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            of = null;
+        }
+        ofVirtual = of;
+        builderName = name;
+        builderUnstarted = unstarted;
+    }
+
+    private final Map<UniqueIdentifier, Thread> running = new ConcurrentHashMap<>();
+    private final boolean virtual;
+
+    private ThreadPerPersonaExecutor(final boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    /**
+     * Create an executor that gives each persona its own thread.
+     *
+     * @param virtual - whether to use virtual threads; the caller checks {@code isVirtualThreadSupported()}.
+     * @return - the ThreadPerPersonaExecutor created
+     */
+    public static ThreadPerPersonaExecutor createThreadPerPersonaExecutor(final boolean virtual) {
+        return new ThreadPerPersonaExecutor(virtual && isVirtualThreadSupported());
+    }
+
+    /**
+     * @return - true if this JDK can start virtual threads.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return ofVirtual != null;
+    }
+
+    /**
+     * Every persona gets its own thread whatever its organization, so each organization uses this executor itself.
+     *
+     * @param turnBarrier - the organization's turn barrier, which the persona arrive on from their own threads.
+     * @return - this executor.
+     */
+    @Override
+    public IOrganizationPersonaExecutor forTurnBarrier(final TurnBarrier turnBarrier) {
+        return this;
+    }
+
+    @Override
+    public void start(final IPersona persona) {
+        final UniqueIdentifier id = persona.getUniqueIdentifier();
+        final String name = id.toString();
+        final Runnable task = () -> {
+            MDC.put(PERSONA_KEY, name);
+            try {
+                persona.run();
+            } finally {
+                MDC.remove(PERSONA_KEY);
+                running.remove(id);
+            }
+        };
+        final Thread thread = virtual ? newVirtual(name, task) : new Thread(task, name);
+        running.put(id, thread);
+        thread.start();
+        if (debug) LOG.debug("Started {} on a {} thread.", name, virtual ? "virtual" : "platform");
+    }
+
+    private static Thread newVirtual(final String name, final Runnable task) {
+        try {
+            return (Thread) builderUnstarted.invoke(builderName.invoke(ofVirtual.invoke(null), name), task);
+        } catch (ReflectiveOperationException e) {
+            LOG.error("ERROR: could not create a virtual thread for {}. Using a platform thread. {}", name, e.toString());
+            return new Thread(task, name);
+        }
+    }
+
+    /**
+     * Stops tracking the persona; its thread ends when its run() returns.
+     *
+     * @param persona - the persona to stop.
+     */
+    @Override
+    public void stop(final IPersona persona) {
+        running.remove(persona.getUniqueIdentifier());
+    }
+
+    /**
+     * Interrupts every persona thread still running.
+     */
+    @Override
+    public void shutdown() {
+        running.values().forEach(Thread::interrupt);
+        running.clear();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return running.size();
+    }
+
+    @Override
+    public PersonaExecutionMode getMode() {
+        return virtual ? PersonaExecutionMode.VIRTUAL : PersonaExecutionMode.PLATFORM;
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadPerPersonaExecutor{" +
+                "virtual=" + virtual +
+                ", running=" + running.size() +
+                '}';
+    }
+}
@@ -0,0 +1,434 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The turn barrier of an {@code Organization}, arranged as a tree of phasers under the organization's root phaser.
+ * Each party (a persona's thread) registers on a leaf holding at most {@code fanout} parties. A leaf arrives at its
+ * parent only when all of its parties have arrived, and each inner phaser holds at most {@code fanout} children, so an
+ * arrival touches one phaser per tier instead of all parties contending on the root. The root still advances once per
+ * turn, so whatever it does on advance is unchanged. A fanout of zero or less registers every party on the root, as a
+ * flat barrier.
+ * <p>
+ * {@code register} returns a {@code Party} handle for the leaf the party was placed on; a caller that may arrive from a
+ * different thread than it registered on keeps the handle and arrives through it. The barrier also remembers the
+ * handle of the registering thread, so {@code arriveAndAwaitAdvance} and {@code arriveAndDeregister} work without the
+ * handle when called on that same thread. A thread with no handle, e.g. one arriving for a party registered on another
+ * thread, arrives on a leaf that still has a party to arrive this turn, and a party whose own leaf has none left does
+ * the same. Every arrival counts as one party's, so the turn still advances once each party has arrived once.
+ * <p>
+ * The arrival time of every party is recorded for each turn, so the slowest party of the last completed turn, and how
+ * often each party was slowest, can be read to find stragglers.
+ */
+public class TurnBarrier {
+    private static final Logger LOG = LoggerFactory.getLogger(TurnBarrier.class);
+    private static final boolean debug = false;
+    private final Phaser root;
+    private final int fanout;
+    /**
+     * The party each registering thread was given, for callers that arrive on the thread they registered on.
+     */
+    private final ThreadLocal<Party> assigned = new ThreadLocal<>();
+    /**
+     * The phasers whose parent is the root, so parties registered on the root itself can be told apart from subtrees.
+     */
+    private final List<Phaser> rootChildren = new CopyOnWriteArrayList<>();
+    /**
+     * The leaves, in the order created.
+     */
+    private final List<Phaser> leaves = new CopyOnWriteArrayList<>();
+    /**
+     * The inner tiers, lowest first; each inner phaser is the parent of leaves or of phasers in the tier below.
+     */
+    private final List<List<Phaser>> tiers = new ArrayList<>();
+    /**
+     * The number of parties placed on each leaf, and of children attached to each inner phaser and to the root.
+     */
+    private final Map<Phaser, Integer> children = new IdentityHashMap<>();
+    /**
+     * Timing for the current turn and the one before it, indexed by phase parity.
+     */
+    private final AtomicReferenceArray<TurnTiming> timings = new AtomicReferenceArray<>(2);
+    private final Map<String, AtomicLong> slowestCounts = new ConcurrentHashMap<>();
+    private volatile TurnTiming lastCompleted;
+
+    private TurnBarrier(final Phaser root, final int fanout) {
+        this.root = root;
+        this.fanout = fanout;
+    }
+
+    /**
+     * Create a turn barrier.
+     *
+     * @param root   - the phaser that advances once per turn.
+     * @param fanout - the most parties per leaf and children per inner phaser, or zero or less for a flat barrier.
+     * @return - the TurnBarrier created
+     */
+    public static TurnBarrier createTurnBarrier(final Phaser root, final int fanout) {
+        return new TurnBarrier(root, fanout);
+    }
+
+    /**
+     * Register a party, on a leaf with room. If every party on that leaf has already arrived this turn, the new party
+     * waits for the turn to advance and joins the next one.
+     *
+     * @return - the party's handle, which can arrive from any thread.
+     */
+    public Party register() {
+        final Phaser phaser;
+        if (fanout <= 0) {
+            phaser = root;
+        } else {
+            synchronized (this) {
+                phaser = leafWithRoom();
+            }
+        }
+        // outside the lock: registering waits while the turn is advancing
+        phaser.register();
+        final Party party = new Party(phaser, Thread.currentThread().getName());
+        assigned.set(party);
+        return party;
+    }
+
+    /**
+     * Arrive at the end of the calling thread's turn and wait for every other party.
+     *
+     * @return - the phase number of the next turn.
+     */
+    public int arriveAndAwaitAdvance() {
+        return threadParty().arriveAndAwaitAdvance();
+    }
+
+    /**
+     * Arrive and stop taking part in later turns.
+     *
+     * @return - the phase number arrived at.
+     */
+    public int arriveAndDeregister() {
+        final Party party = threadParty();
+        assigned.remove();
+        return party.arriveAndDeregister();
+    }
+
+    /**
+     * @return - the party registered by the calling thread. On a flat barrier every party is on the root, so a thread
+     * that registered elsewhere arrives on the root as before; in a tree it arrives wherever a party is left to arrive.
+     */
+    private Party threadParty() {
+        final Party party = assigned.get();
+        if (party != null) return party;
+        return new Party((fanout <= 0) ? root : null, Thread.currentThread().getName());
+    }
+
+    /**
+     * Arrives on the given phaser or, in a tree, if that has no party left to arrive this turn or is null, on a leaf
+     * that has. Phaser arrivals check for a party left to arrive before changing any state, so a leaf another thread
+     * filled in the meantime is simply skipped.
+     *
+     * @param own     - the phaser the party was registered on, or null if not known.
+     * @param arrival - the kind of arrival.
+     * @return - what the arrival returns.
+     */
+    private int arrive(final Phaser own, final Arrival arrival) {
+        if (own != null) {
+            try {
+                return arrival.on(own);
+            } catch (IllegalStateException e) {
+                if (fanout <= 0) throw e;
+            }
+        }
+        final int phase = root.getPhase();
+        for (Phaser leaf : leaves) {
+            if (leaf == own || leaf.getUnarrivedParties() == 0) continue;
+            try {
+                return arrival.on(leaf);
+            } catch (IllegalStateException e) {
+                if (debug) LOG.debug("Turn barrier leaf filled while arriving; trying the next.");
+            }
+        }
+        if (phase >= 0 && root.getPhase() != phase) return arrive(own, arrival);
+        throw new IllegalStateException("Thread " + Thread.currentThread().getName() +
+                " arrived at turn barrier " + this + " but no party is left to arrive this turn.");
+    }
+
+    private int deregister(final Phaser phaser) {
+        final int phase = phaser.arriveAndDeregister();
+        if (phaser != root) {
+            synchronized (this) {
+                children.put(phaser, children.get(phaser) - 1);
+            }
+        }
+        return phase;
+    }
+
+    /**
+     * Finds or creates a leaf with room and reserves a place on it. Must hold the lock on this barrier.
+     */
+    private Phaser leafWithRoom() {
+        for (Phaser leaf : leaves) {
+            final int count = children.get(leaf);
+            if (count < fanout) {
+                children.put(leaf, count + 1);
+                return leaf;
+            }
+        }
+        final Phaser parent = parentWithRoom(0);
+        final Phaser leaf = new Phaser(parent);
+        if (parent == root) rootChildren.add(leaf);
+        leaves.add(leaf);
+        children.put(leaf, 1);
+        if (debug) LOG.debug("Created turn barrier leaf {} ({} tiers).", leaves.size(), tiers.size());
+        return leaf;
+    }
+
+    /**
+     * Finds or creates a parent with room for one more child from the given tier. The top tier is parented to the root,
+     * which takes {@code fanout} more children for each tier; when it is full a new top tier is added, so the depth grows
+     * with the logarithm of the number of parties. Must hold the lock on this barrier.
+     */
+    private Phaser parentWithRoom(final int tier) {
+        if (tier == tiers.size()) {
+            final int count = children.getOrDefault(root, 0);
+            if (count < fanout * (tiers.size() + 1)) {
+                children.put(root, count + 1);
+                return root;
+            }
+            tiers.add(new ArrayList<>());
+        }
+        for (Phaser inner : tiers.get(tier)) {
+            final int count = children.get(inner);
+            if (count < fanout) {
+                children.put(inner, count + 1);
+                return inner;
+            }
+        }
+        final Phaser parent = parentWithRoom(tier + 1);
+        final Phaser inner = new Phaser(parent);
+        if (parent == root) rootChildren.add(inner);
+        tiers.get(tier).add(inner);
+        children.put(inner, 1);
+        return inner;
+    }
+
+    private void recordArrival(final String name) {
+        final long now = System.nanoTime();
+        final int phase = root.getPhase();
+        if (phase < 0) return;
+        final int slot = phase & 1;
+        TurnTiming timing = timings.get(slot);
+        while (timing == null || timing.phase != phase) {
+            final TurnTiming started = new TurnTiming(phase, now);
+            if (timings.compareAndSet(slot, timing, started)) {
+                turnCompleted(timings.get(slot ^ 1), phase);
+                timing = started;
+            } else {
+                timing = timings.get(slot);
+            }
+        }
+        timing.arrive(now, name);
+    }
+
+    private void turnCompleted(final TurnTiming timing, final int nextPhase) {
+        if (timing == null || timing.phase != nextPhase - 1 || timing.slowest == null) return;
+        lastCompleted = timing;
+        slowestCounts.computeIfAbsent(timing.slowest, k -> new AtomicLong()).incrementAndGet();
+        if (debug) LOG.debug("Turn {} slowest party {} arrived {} ms after the first.", timing.phase,
+                timing.slowest, timing.getSpreadMillis());
+    }
+
+    /**
+     * @return - the number of parties registered, summed over the leaves and the parties registered on the root itself.
+     */
+    public int getRegisteredParties() {
+        if (fanout <= 0) return root.getRegisteredParties();
+        int parties = root.getRegisteredParties();
+        for (Phaser child : rootChildren) {
+            // a phaser with no parties deregisters from its parent
+            if (child.getRegisteredParties() > 0) parties--;
+        }
+        for (Phaser leaf : leaves) parties += leaf.getRegisteredParties();
+        return parties;
+    }
+
+    /**
+     * @return - the number of parties that have arrived in the current turn, summed over the leaves and the parties
+     * registered on the root itself.
+     */
+    public int getArrivedParties() {
+        if (fanout <= 0) return root.getArrivedParties();
+        int parties = root.getArrivedParties();
+        for (Phaser child : rootChildren) {
+            if (child.getRegisteredParties() > 0 && child.getUnarrivedParties() == 0) parties--;
+        }
+        for (Phaser leaf : leaves) parties += leaf.getArrivedParties();
+        return parties;
+    }
+
+    public int getFanout() {
+        return fanout;
+    }
+
+    /**
+     * @return - the name of the party that arrived last in the last completed turn, or null if none has completed.
+     */
+    public String getLastSlowestParty() {
+        final TurnTiming timing = lastCompleted;
+        return (timing == null) ? null : timing.slowest;
+    }
+
+    /**
+     * @return - how long after the first party the slowest party arrived in the last completed turn.
+     */
+    public double getLastTurnSpreadMillis() {
+        final TurnTiming timing = lastCompleted;
+        return (timing == null) ? 0.0 : timing.getSpreadMillis();
+    }
+
+    /**
+     * @return - the number of turns each party was the last to arrive, by thread name.
+     */
+    public Map<String, Long> getSlowestCounts() {
+        final Map<String, Long> counts = new ConcurrentHashMap<>();
+        slowestCounts.forEach((name, count) -> counts.put(name, count.get()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public String getSummaryString() {
+        final TurnTiming timing = lastCompleted;
+        return "Turn barrier: fanout=" + fanout + " leaves=" + leaves.size() + " tiers=" + tiers.size() +
+                " parties=" + getRegisteredParties() +
+                ((timing == null) ? "" : String.format(" last turn %d slowest=%s (+%.1f ms)", timing.phase,
+                        timing.slowest, timing.getSpreadMillis()));
+    }
+
+    @Override
+    public String toString() {
+        return "TurnBarrier{" +
+                "fanout=" + fanout +
+                ", leaves=" + leaves.size() +
+                ", tiers=" + tiers.size() +
+                ", phase=" + root.getPhase() +
+                '}';
+    }
+
+    /**
+     * One kind of arrival on a phaser.
+     */
+    private interface Arrival {
+        int on(Phaser phaser);
+    }
+
+    /**
+     * A registered party: the phaser it was placed on and the name its arrivals are timed under. The handle can be
+     * used from any thread.
+     */
+    public final class Party {
+        private final Phaser phaser;
+        private final String name;
+
+        private Party(final Phaser phaser, final String name) {
+            this.phaser = phaser;
+            this.name = name;
+        }
+
+        /**
+         * Arrive at the end of this party's turn and wait for every other party.
+         *
+         * @return - the phase number of the next turn.
+         */
+        public int arriveAndAwaitAdvance() {
+            recordArrival(name);
+            return TurnBarrier.this.arrive(phaser, Phaser::arriveAndAwaitAdvance);
+        }
+
+        /**
+         * Arrive and stop taking part in later turns.
+         *
+         * @return - the phase number arrived at.
+         */
+        public int arriveAndDeregister() {
+            recordArrival(name);
+            return TurnBarrier.this.arrive(phaser, TurnBarrier.this::deregister);
+        }
+
+        /**
+         * Arrive at the end of this party's turn without waiting for the others.
+         *
+         * @return - the phase number arrived at.
+         */
+        public int arrive() {
+            recordArrival(name);
+            return TurnBarrier.this.arrive(phaser, Phaser::arrive);
+        }
+
+        /**
+         * Wait for the turn with the given phase number to end, e.g. after arriving without waiting.
+         *
+         * @param phase - the phase number arrived at.
+         * @return - the phase number of the next turn, negative once the barrier has terminated.
+         * @throws InterruptedException - if interrupted while waiting.
+         */
+        public int awaitAdvanceInterruptibly(final int phase) throws InterruptedException {
+            return ((phaser == null) ? root : phaser).awaitAdvanceInterruptibly(phase);
+        }
+
+        /**
+         * @return - the current turn's phase number, negative once the barrier has terminated.
+         */
+        public int getPhase() {
+            return ((phaser == null) ? root : phaser).getPhase();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return "Party{" + name + '}';
+        }
+    }
+
+    /**
+     * The arrivals recorded for one turn.
+     */
+    private static class TurnTiming {
+        private final int phase;
+        private final long firstArrival;
+        private final AtomicLong lastArrival;
+        private volatile String slowest;
+
+        TurnTiming(final int phase, final long firstArrival) {
+            this.phase = phase;
+            this.firstArrival = firstArrival;
+            this.lastArrival = new AtomicLong(firstArrival - 1);
+        }
+
+        void arrive(final long now, final String party) {
+            while (true) {
+                final long last = lastArrival.get();
+                if (now <= last) return;
+                if (lastArrival.compareAndSet(last, now)) {
+                    slowest = party;
+                    return;
+                }
+            }
+        }
+
+        double getSpreadMillis() {
+            return (lastArrival.get() - firstArrival) / 1000000.0;
+        }
+    }
+}
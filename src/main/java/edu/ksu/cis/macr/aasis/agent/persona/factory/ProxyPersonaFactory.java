@@ -11,6 +11,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.lang.reflect.Constructor;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -72,6 +73,18 @@ public class ProxyPersonaFactory extends PersonaFactory {
      * @param org        the {@code IOrganization} to set up the agents.
      */
     public static void setupPersonaList(NodeList agentsList, IOrganization org) {
+        setupPersonaList(agentsList, org, null);
+    }
+
+    /**
+     * Instantiates the persona in the agent file whose names are keys of {@code only} and whose class is the name the
+     * key maps to, e.g. to recreate persona restored from a checkpoint.
+     *
+     * @param agentsList the node list of agents.
+     * @param org        the {@code IOrganization} to set up the agents.
+     * @param only       the class name of each persona to create by persona name, or null to create them all.
+     */
+    public static void setupPersonaList(NodeList agentsList, IOrganization org, final Map<String, String> only) {
         agentsList = Objects.requireNonNull(agentsList,
                 "ERROR - persona cannot be null.");
         if (agentsList.getLength() < 1) {
@@ -110,6 +123,7 @@ public class ProxyPersonaFactory extends PersonaFactory {
                 if (debug) LOG.debug("Instantiating an external persona.");
                 final Node personaElement = personaList.item(j);
                 final String personaName = personaElement.getFirstChild().getNodeValue();
+                if (only != null && !(stringPackage + "." + agentType).equals(only.get(personaName))) continue;
                 if (debug) LOG.info("Instantiating persona {}. Getting {} constructor.", personaName, agentType);
 
                 Constructor<? extends IPersona> sec_con = ProxyPersonaFactory.getExecutionComponentConstructor(
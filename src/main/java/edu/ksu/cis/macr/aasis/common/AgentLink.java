@@ -0,0 +1,80 @@
+package edu.ksu.cis.macr.aasis.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The link from one agent to another, with everything derived from the pair computed once: the queue link
+ * {@code sender-receiver}, the full queue names built from it, and a key for the unordered pair. There is one link per
+ * sender and receiver, so links can be compared by identity.
+ */
+public final class AgentLink {
+    private final AgentSymbol sender;
+    private final AgentSymbol receiver;
+    private final String queueLink;
+    private final Long pairKey;
+    private final Map<String, String> fullQueueNames = new ConcurrentHashMap<>();
+
+    AgentLink(final AgentSymbol sender, final AgentSymbol receiver) {
+        this.sender = sender;
+        this.receiver = receiver;
+        this.queueLink = sender.getName() + "-" + receiver.getName();
+        this.pairKey = AgentSymbolTable.pairKey(sender.getId(), receiver.getId());
+    }
+
+    /**
+     * @return - the name linking the sender's queue to the receiver, {@code sender-receiver}.
+     */
+    public String getQueueLink() {
+        return queueLink;
+    }
+
+    /**
+     * Get a full queue name for this link, {@code purpose.sender-receiver}, building it the first time it is asked for
+     * with this purpose.
+     *
+     * @param purpose - the queue's purpose, e.g. its messaging focus.
+     * @return - the full queue name.
+     */
+    public String getFullQueueName(final String purpose) {
+        final String name = fullQueueNames.get(purpose);
+        if (name != null) return name;
+        final String built = purpose + "." + queueLink;
+        final String raced = fullQueueNames.putIfAbsent(purpose, built);
+        return (raced != null) ? raced : built;
+    }
+
+    /**
+     * @return - a key for the unordered pair of agents, the same for the link in either direction.
+     */
+    public Long getPairKey() {
+        return pairKey;
+    }
+
+    /**
+     * @return - the agent whose abbreviation comes first alphabetically.
+     */
+    public AgentSymbol getFirst() {
+        return (receiver.getName().compareTo(sender.getName()) < 0) ? receiver : sender;
+    }
+
+    /**
+     * @return - the agent whose abbreviation comes second alphabetically.
+     */
+    public AgentSymbol getSecond() {
+        return (receiver.getName().compareTo(sender.getName()) < 0) ? sender : receiver;
+    }
+
+    public AgentSymbol getSender() {
+        return sender;
+    }
+
+    public AgentSymbol getReceiver() {
+        return receiver;
+    }
+
+    @Override
+    public String toString() {
+        return queueLink;
+    }
+}
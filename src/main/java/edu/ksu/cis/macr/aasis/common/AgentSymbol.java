@@ -0,0 +1,41 @@
+package edu.ksu.cis.macr.aasis.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An agent's entry in the {@code AgentSymbolTable}: its abbreviation and a dense integer id, with the links from this
+ * agent to each agent it has sent to, so the names built from a sender and receiver are built once.
+ */
+public final class AgentSymbol {
+    private final int id;
+    private final String name;
+    private final Map<AgentSymbol, AgentLink> links = new ConcurrentHashMap<>();
+
+    AgentSymbol(final int id, final String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * @param receiver - the agent at the other end.
+     * @return - the link from this agent to the receiver, created the first time.
+     */
+    public AgentLink linkTo(final AgentSymbol receiver) {
+        final AgentLink link = links.get(receiver);
+        return (link != null) ? link : links.computeIfAbsent(receiver, r -> AgentSymbolTable.createLink(this, r));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,113 @@
+package edu.ksu.cis.macr.aasis.common;
+
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The table of agents known to this JVM. Each agent abbreviation, and each {@code UniqueIdentifier}, maps to one
+ * {@code AgentSymbol} with a dense integer id, assigned in the order agents are first seen. Agents named in the
+ * connection guidelines are added when the guidelines are loaded. The queue links, queue names, and pair keys the
+ * connect and messaging code build from two agents are kept on the symbols' {@code AgentLink}s, so they are built once
+ * rather than on every check.
+ */
+public enum AgentSymbolTable {
+    INSTANCE;
+    private static final Logger LOG = LoggerFactory.getLogger(AgentSymbolTable.class);
+    private static final boolean debug = false;
+    private static final Map<String, AgentSymbol> byName = new ConcurrentHashMap<>();
+    private static final Map<UniqueIdentifier, AgentSymbol> byIdentifier = new ConcurrentHashMap<>();
+    private static final Map<String, AgentLink> byQueueLink = new ConcurrentHashMap<>();
+    private static final List<AgentSymbol> byId = new CopyOnWriteArrayList<>();
+
+    /**
+     * Get the symbol for an agent abbreviation, adding it the first time.
+     *
+     * @param name - the agent's abbreviation.
+     * @return - the agent's symbol.
+     */
+    public static AgentSymbol intern(final String name) {
+        final AgentSymbol symbol = byName.get(name);
+        if (symbol != null) return symbol;
+        synchronized (AgentSymbolTable.class) {
+            return byName.computeIfAbsent(name, n -> {
+                final AgentSymbol created = new AgentSymbol(byId.size(), n);
+                byId.add(created);
+                if (debug) LOG.debug("Agent symbol {} = {}.", created.getId(), n);
+                return created;
+            });
+        }
+    }
+
+    /**
+     * Get the symbol for an agent's identifier, the same as for the identifier's string form.
+     *
+     * @param identifier - the agent's identifier.
+     * @return - the agent's symbol.
+     */
+    public static AgentSymbol intern(final UniqueIdentifier identifier) {
+        final AgentSymbol symbol = byIdentifier.get(identifier);
+        return (symbol != null) ? symbol : byIdentifier.computeIfAbsent(identifier, i -> intern(i.toString()));
+    }
+
+    /**
+     * @param id - a symbol's id.
+     * @return - the symbol with the id.
+     */
+    public static AgentSymbol get(final int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @param name - an agent's abbreviation.
+     * @return - the agent's symbol, or null if the agent has not been seen.
+     */
+    public static AgentSymbol find(final String name) {
+        return byName.get(name);
+    }
+
+    public static int size() {
+        return byId.size();
+    }
+
+    /**
+     * Get the link from one agent to another, adding the agents and the link the first time.
+     *
+     * @param sender   - the sending agent's abbreviation.
+     * @param receiver - the receiving agent's abbreviation.
+     * @return - the link.
+     */
+    public static AgentLink link(final String sender, final String receiver) {
+        return intern(sender).linkTo(intern(receiver));
+    }
+
+    /**
+     * @param queueLink - a queue link, {@code sender-receiver}.
+     * @return - the link with that queue link, or null if none has been created.
+     */
+    public static AgentLink findLink(final String queueLink) {
+        return byQueueLink.get(queueLink);
+    }
+
+    /**
+     * @return - a key for the unordered pair of agents with the given ids.
+     */
+    public static long pairKey(final int a, final int b) {
+        return (a < b) ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    static AgentLink createLink(final AgentSymbol sender, final AgentSymbol receiver) {
+        final AgentLink link = new AgentLink(sender, receiver);
+        byQueueLink.putIfAbsent(link.getQueueLink(), link);
+        return link;
+    }
+
+    public static String getSummaryString() {
+        return "Agent symbols: " + byId.size() + " agents, " + byQueueLink.size() + " links.";
+    }
+}
@@ -17,6 +17,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ConnectionGuidelines implements Serializable, IConnectionGuidelines {
     private static final Logger LOG = LoggerFactory.getLogger(ConnectionGuidelines.class);
@@ -30,6 +32,10 @@ public class ConnectionGuidelines implements Serializable, IConnectionGuidelines
     private String orgModelFolder;
     private boolean isConnected = false;
     private boolean isRegistered = false;
+    /**
+     * Told when the connection is marked established; not serialized.
+     */
+    private transient List<Runnable> connectedListeners;
 
 
     private ConnectionGuidelines() {
@@ -208,8 +214,32 @@ public class ConnectionGuidelines implements Serializable, IConnectionGuidelines
     }
 
     @Override
-    public synchronized void setConnected(final boolean isConnected) {
-        this.isConnected = isConnected;
+    public void setConnected(final boolean isConnected) {
+        final List<Runnable> listeners;
+        synchronized (this) {
+            listeners = (isConnected && !this.isConnected && connectedListeners != null) ?
+                    new ArrayList<>(connectedListeners) : null;
+            this.isConnected = isConnected;
+            if (listeners != null) connectedListeners = null;
+        }
+        if (listeners != null) listeners.forEach(Runnable::run);
+    }
+
+    @Override
+    public void addConnectedListener(final Runnable listener) {
+        synchronized (this) {
+            if (!this.isConnected) {
+                if (connectedListeners == null) connectedListeners = new ArrayList<>();
+                connectedListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    @Override
+    public synchronized void removeConnectedListener(final Runnable listener) {
+        if (connectedListeners != null) connectedListeners.remove(listener);
     }
 
     /**
@@ -99,6 +99,8 @@ public class Connections implements IConnections {
             String in = element.getAttribute("in");
             String expMaster = element.getAttribute("expectedmaster");
             String orgLevel = "";  // nothing known about orgs yet
+            AgentSymbolTable.intern(to.trim());
+            if (!expMaster.trim().isEmpty()) AgentSymbolTable.intern(expMaster.trim());
 
             //see if there's an organization specification included for this org
 
@@ -61,8 +61,23 @@ public interface IConnectionGuidelines {
      */
     boolean isConnected();
 
+    /**
+     * Marks whether this connection has been established. Marking it established tells the connected listeners.
+     *
+     * @param isConnected - true if established.
+     */
     void setConnected(final boolean isConnected);
 
+    /**
+     * Be told once when this connection is marked established. A listener added after it was marked established is
+     * told at once, on the calling thread.
+     *
+     * @param listener - called on the thread that marks the connection established.
+     */
+    void addConnectedListener(final Runnable listener);
+
+    void removeConnectedListener(final Runnable listener);
+
     /**
      * Determines if this is a connection to a child - an agent directly lower (subordinate) in the organization.
      *
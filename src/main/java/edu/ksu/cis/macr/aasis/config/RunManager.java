@@ -1,8 +1,24 @@
 package edu.ksu.cis.macr.aasis.config;
 
+import edu.ksu.cis.macr.aasis.agent.cc_message.codec.MessageCodecs;
+import edu.ksu.cis.macr.aasis.agent.cc_p.ConnectivityTracker;
+import edu.ksu.cis.macr.aasis.agent.cc_p.StartupTimeline;
+import edu.ksu.cis.macr.aasis.agent.persona.ConnectHandshake;
+import edu.ksu.cis.macr.aasis.agent.persona.ConnectionBootstrap;
+import edu.ksu.cis.macr.aasis.agent.persona.HistoryLog;
+import edu.ksu.cis.macr.aasis.agent.persona.IPersonaExecutor;
+import edu.ksu.cis.macr.aasis.agent.persona.InboxOverflowPolicy;
+import edu.ksu.cis.macr.aasis.agent.persona.InternalCommunicationCapability;
+import edu.ksu.cis.macr.aasis.agent.persona.Organization;
+import edu.ksu.cis.macr.aasis.agent.persona.OrganizationLocking;
+import edu.ksu.cis.macr.aasis.agent.persona.PersonaExecutionMode;
+import edu.ksu.cis.macr.aasis.agent.persona.SerializabilityChecker;
 import edu.ksu.cis.macr.aasis.messaging.MessagingFocus;
+import edu.ksu.cis.macr.aasis.messaging.MessagingManager;
+import edu.ksu.cis.macr.aasis.messaging.MessagingReliabilityManager;
 import edu.ksu.cis.macr.aasis.simulator.clock.Clock;
 import edu.ksu.cis.macr.aasis.simulator.player.Player;
+import edu.ksu.cis.macr.aasis.simulators.PhysicalSystemSimulator;
 import edu.ksu.cis.macr.aasis.types.IAgentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,7 +80,13 @@ public enum RunManager {
     private static Boolean useLiveMatLab;
     private static int messageDelayMinMS;
     private static int messageDelayMaxMX;
-    private static int fractionMessagesDelayed;
+    private static double fractionMessagesDelayed;
+    private static PersonaExecutionMode personaExecutionMode = PersonaExecutionMode.PLATFORM;
+    private static int personaParallelism = 0;
+    private static IPersonaExecutor personaExecutor;
+    private static volatile ConnectionBootstrap connectionBootstrap;
+    private static long connectionBootstrapTimeoutMillis = 120000;
+    private static StartupTimeline startupTimeline;
 
 
     public static String getAbsolutePathToConfigsFolder() {
@@ -203,8 +225,13 @@ public enum RunManager {
         return useLiveMatLab;
     }
 
+    /**
+     * @return - true once every expected connection is established and all agents are joined, as kept by the
+     * {@code ConnectivityTracker}. The tracker only answers true once the number of agents has been given to
+     * {@code ConnectionModel.setNumberOfAgents} and all of them have registered their guidelines.
+     */
     public synchronized static boolean isFullyConnected() {
-        return RunManager.fullyConnected;
+        return RunManager.fullyConnected || ConnectivityTracker.INSTANCE.isSystemConnected();
     }
 
     public static boolean isInitializeGoalsInConstructors() {
@@ -260,6 +287,22 @@ public enum RunManager {
             initializeMessageDelayMinMS(getValue("messagedelayminms"));
             initializeMessageDelayMaxMX(getValue("messagedelaymaxmx"));
             initializeFractionMessagesDelayed(getValue("fractionmessagesdelayed"));
+            initializeMessageFaults(getValue("injectmessagefaults"));
+            initializeAsyncConsumers(getValue("asyncconsumers"), getValue("consumerinboxcapacity"));
+            initializeMessagingConnections(getValue("messagingconnections"));
+            initializeMessagingBroker(getValue("messagingbroker"));
+            initializeMessageCodec(getValue("messagecodec"));
+            initializeBatchPublishing(getValue("batchpublishing"), getValue("publishwindow"));
+            initializeInboxes(getValue("inboxcapacity"), getValue("inboxoverflowpolicy"));
+            initializeSerializationCheck(getValue("serializationcheck"));
+            initializeOrganizationLocking(getValue("organizationlocking"));
+            initializeHistory(getValue("recordhistory"), getValue("historydirectory"), getValue("historymemorysegments"));
+            initializeTurnBarrierFanout(getValue("turnbarrierfanout"));
+            initializePersonaExecution(getValue("personaexecution"), getValue("personaparallelism"));
+            initializeConnectBackoff(getValue("connectbackoffmillis"), getValue("connectbackoffmaxmillis"));
+            initializeMappedSensorData(getValue("mappedsensordata"));
+            initializeConnectionBootstrap(getValue("connectbootstrap"), getValue("connectbootstraptimeoutseconds"));
+            initializeBroadcastCapacity(getValue("broadcastcapacity"));
         } catch (FileNotFoundException e) {
             LOG.error("Run properties file not found.");
         } catch (IOException e) {
@@ -677,17 +720,274 @@ public enum RunManager {
 
     private static void initializeFractionMessagesDelayed(String input) {
         try {
-            int fractionDelayed = Integer.parseInt(input.trim());
+            double fractionDelayed = Double.parseDouble(input.trim());
             RunManager.setFractionMessagesDelayed(fractionDelayed);
         } catch (Exception e) {
             LOG.error("ERROR: fraction message delayed could not be read. {}", input);
         }
     }
 
-    public static void setFractionMessagesDelayed(int fracDelayed) {
+    public static void setFractionMessagesDelayed(double fracDelayed) {
         RunManager.fractionMessagesDelayed = fracDelayed;
     }
 
+    public static int getMessageDelayMinMS() {
+        return messageDelayMinMS;
+    }
+
+    public static int getMessageDelayMaxMX() {
+        return messageDelayMaxMX;
+    }
+
+    public static double getFractionMessagesDelayed() {
+        return fractionMessagesDelayed;
+    }
+
+    private static void initializeMessageFaults(String input) {
+        MessagingReliabilityManager.setDelays(messageDelayMinMS, messageDelayMaxMX, fractionMessagesDelayed);
+        if (input == null) return;
+        final String strValue = input.trim().toLowerCase();
+        MessagingReliabilityManager.setInjectingFaults(
+                strValue.equals("yes") || strValue.equals("true") || strValue.equals("y") || strValue.equals("on")
+        );
+    }
+
+    private static void initializeAsyncConsumers(String input, String consumerinboxcapacity) {
+        if (input != null) {
+            final String strValue = input.trim().toLowerCase();
+            MessagingManager.setAsyncConsumers(
+                    strValue.equals("yes") || strValue.equals("true") || strValue.equals("y") || strValue.equals("on")
+            );
+        }
+        if (consumerinboxcapacity == null) return;
+        try {
+            MessagingManager.setInboxCapacity(Integer.parseInt(consumerinboxcapacity.trim()));
+        } catch (Exception e) {
+            LOG.error("ERROR: consumer inbox capacity could not be read. {}", consumerinboxcapacity);
+        }
+    }
+
+    private static void initializeMessagingConnections(String input) {
+        if (input == null) return;
+        try {
+            MessagingManager.setConnectionsPerExchange(Integer.parseInt(input.trim()));
+        } catch (Exception e) {
+            LOG.error("ERROR: messaging connections per exchange could not be read. {}", input);
+        }
+    }
+
+    private static void initializeMessagingBroker(String input) {
+        if (input == null) return;
+        final String strValue = input.trim().toLowerCase();
+        if (strValue.equals("inprocess")) {
+            MessagingManager.setInProcessBroker(true);
+        } else if (strValue.equals("rabbitmq")) {
+            MessagingManager.setInProcessBroker(false);
+        } else {
+            LOG.error("ERROR: messaging broker could not be read (use rabbitmq or inprocess). {}", input);
+        }
+    }
+
+    private static void initializeMessageCodec(String input) {
+        if (input == null) return;
+        if (!MessageCodecs.setDefaultCodec(input)) {
+            LOG.error("ERROR: message codec could not be read (use binary or java). {}", input);
+        }
+    }
+
+    private static void initializeBatchPublishing(String batchpublishing, String publishwindow) {
+        if (batchpublishing != null) {
+            final String strValue = batchpublishing.trim().toLowerCase();
+            MessagingManager.setBatchPublishing(
+                    strValue.equals("yes") || strValue.equals("true") || strValue.equals("y") || strValue.equals("on")
+            );
+        }
+        if (publishwindow == null) return;
+        try {
+            MessagingManager.setPublishWindow(Integer.parseInt(publishwindow.trim()));
+        } catch (Exception e) {
+            LOG.error("ERROR: publish window could not be read. {}", publishwindow);
+        }
+    }
+
+    private static void initializeInboxes(String inboxcapacity, String inboxoverflowpolicy) {
+        if (inboxcapacity == null) return;
+        InboxOverflowPolicy policy = InboxOverflowPolicy.BLOCK_SENDER;
+        if (inboxoverflowpolicy != null) {
+            policy = InboxOverflowPolicy.fromName(inboxoverflowpolicy);
+            if (policy == null) {
+                LOG.error("ERROR: inbox overflow policy could not be read (use drop_oldest, drop_newest, block_sender, or reject). {}", inboxoverflowpolicy);
+                return;
+            }
+        }
+        try {
+            InternalCommunicationCapability.setInboxDefaults(Integer.parseInt(inboxcapacity.trim()), policy, standardWaitTime_ms);
+        } catch (Exception e) {
+            LOG.error("ERROR: inbox capacity could not be read. {}", inboxcapacity);
+        }
+    }
+
+    private static void initializeSerializationCheck(String input) {
+        if (input == null) return;
+        if (!SerializabilityChecker.setMode(input)) {
+            LOG.error("ERROR: serialization check could not be read (use cached, strict, or off). {}", input);
+        }
+    }
+
+    private static void initializeOrganizationLocking(String input) {
+        if (input == null) return;
+        final OrganizationLocking locking = OrganizationLocking.fromName(input);
+        if (locking == null) {
+            LOG.error("ERROR: organization locking could not be read (use single or split). {}", input);
+            return;
+        }
+        Organization.setDefaultLocking(locking);
+    }
+
+    private static void initializeHistory(String recordhistory, String historydirectory, String historymemorysegments) {
+        if (recordhistory == null) return;
+        final String strValue = recordhistory.trim().toLowerCase();
+        final boolean record = strValue.equals("yes") || strValue.equals("true") || strValue.equals("y") || strValue.equals("on");
+        final File directory = (historydirectory == null || historydirectory.trim().isEmpty()) ? null : new File(historydirectory.trim());
+        int memorySegments = HistoryLog.DEFAULT_MEMORY_SEGMENTS;
+        if (historymemorysegments != null) {
+            try {
+                memorySegments = Integer.parseInt(historymemorysegments.trim());
+            } catch (Exception e) {
+                LOG.error("ERROR: history memory segments could not be read. {}", historymemorysegments);
+            }
+        }
+        Organization.setHistoryDefaults(record, directory, memorySegments);
+    }
+
+    private static void initializeTurnBarrierFanout(String input) {
+        if (input == null) return;
+        try {
+            Organization.setDefaultTurnBarrierFanout(Integer.parseInt(input.trim()));
+        } catch (Exception e) {
+            LOG.error("ERROR: turn barrier fanout could not be read. {}", input);
+        }
+    }
+
+    private static void initializePersonaExecution(String personaexecution, String personaparallelism) {
+        if (personaexecution == null) return;
+        final PersonaExecutionMode mode = PersonaExecutionMode.fromName(personaexecution);
+        if (mode == null) {
+            LOG.error("ERROR: persona execution could not be read (use platform, forkjoin, or virtual). {}", personaexecution);
+            return;
+        }
+        int parallelism = 0;
+        if (personaparallelism != null) {
+            try {
+                parallelism = Integer.parseInt(personaparallelism.trim());
+            } catch (Exception e) {
+                LOG.error("ERROR: persona parallelism could not be read. {}", personaparallelism);
+            }
+        }
+        synchronized (RunManager.class) {
+            if (personaExecutor != null) {
+                LOG.error("ERROR: persona execution was read after the persona executor was created. {}", personaexecution);
+                return;
+            }
+            personaExecutionMode = mode;
+            personaParallelism = parallelism;
+        }
+    }
+
+    /**
+     * Get the one persona executor shared by every organization in this JVM, creating it the first time with the
+     * configured execution mode.
+     *
+     * @return - the executor.
+     */
+    public synchronized static IPersonaExecutor getPersonaExecutor() {
+        if (personaExecutor == null) {
+            personaExecutor = personaExecutionMode.createExecutor(personaParallelism);
+            LOG.info("Running persona with {}.", personaExecutor);
+        }
+        return personaExecutor;
+    }
+
+    /**
+     * Stop every persona and release the persona executor's threads at the end of the run.
+     */
+    public synchronized static void shutdownPersonaExecutor() {
+        if (personaExecutor == null) return;
+        personaExecutor.shutdown();
+        personaExecutor = null;
+    }
+
+    private static void initializeConnectBackoff(String backoff, String maxBackoff) {
+        if (backoff == null) return;
+        try {
+            final long millis = Long.parseLong(backoff.trim());
+            final long maxMillis = (maxBackoff == null) ? 32 * millis : Long.parseLong(maxBackoff.trim());
+            ConnectHandshake.setDefaultBackoff(millis, maxMillis);
+        } catch (Exception e) {
+            LOG.error("ERROR: connect backoff could not be read. {} {}", backoff, maxBackoff);
+        }
+    }
+
+    private static void initializeMappedSensorData(String input) {
+        if (input == null) return;
+        final String strValue = input.trim().toLowerCase();
+        PhysicalSystemSimulator.setUseMappedSensorData(
+                strValue.equals("yes") || strValue.equals("true") || strValue.equals("y") || strValue.equals("on")
+        );
+    }
+
+    private static void initializeConnectionBootstrap(String threads, String timeoutSeconds) {
+        if (threads == null) return;
+        try {
+            final int parallelism = Integer.parseInt(threads.trim());
+            if (timeoutSeconds != null) connectionBootstrapTimeoutMillis = 1000L * Long.parseLong(timeoutSeconds.trim());
+            connectionBootstrap = (parallelism > 0) ? ConnectionBootstrap.createConnectionBootstrap(parallelism, standardWaitTime_ms) : null;
+        } catch (Exception e) {
+            LOG.error("ERROR: connect bootstrap could not be read. {} {}", threads, timeoutSeconds);
+        }
+    }
+
+    private static void initializeBroadcastCapacity(String input) {
+        if (input == null) return;
+        try {
+            final int capacity = Integer.parseInt(input.trim());
+            if (capacity < 0) {
+                LOG.error("ERROR: broadcast capacity must be zero or more. {}", input);
+                return;
+            }
+            Organization.setDefaultBroadcastCapacity(capacity);
+        } catch (Exception e) {
+            LOG.error("ERROR: broadcast capacity could not be read. {}", input);
+        }
+    }
+
+    /**
+     * @return - the bootstrap organizations connect their persona with at startup, or null to leave connecting to the
+     * persona's own connect goals.
+     */
+    public static ConnectionBootstrap getConnectionBootstrap() {
+        return connectionBootstrap;
+    }
+
+    public static long getConnectionBootstrapTimeoutMillis() {
+        return connectionBootstrapTimeoutMillis;
+    }
+
+    /**
+     * Returns the run's startup timeline, started the first time it is asked for, i.e. when the first organization
+     * loads its persona. It logs itself when the {@code ConnectivityTracker} reports the system connected.
+     *
+     * @return - the startup timeline.
+     */
+    public static synchronized StartupTimeline getStartupTimeline() {
+        if (startupTimeline == null) {
+            startupTimeline = StartupTimeline.createStartupTimeline(ConnectivityTracker.INSTANCE,
+                    INITIAL_CONNECTION_THRESHOLD_FRACTION);
+            startupTimeline.start();
+        }
+        return startupTimeline;
+    }
+
     public static String getValue(String propertyName) {
         if (!isLoaded) {
             RunManager.load();
@@ -724,6 +1024,7 @@ public enum RunManager {
 
     private static void terminateSuccessfully() {
         LOG.info("TERMINATING: Ending partial run successfully. See Scenario for force stop conditions.");
+        shutdownPersonaExecutor();
         System.exit(-777);
     }
 
@@ -733,6 +1034,7 @@ public enum RunManager {
 
     public static void setStopMonitor(final boolean isStopped) {
         RunManager.isStopped = isStopped;
+        if (isStopped) shutdownPersonaExecutor();
     }
 
     public static void main(String[] args) throws IOException {
@@ -0,0 +1,327 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of channels for one exchange. AMQP channels must not be shared by concurrent publishers, so each thread is given
+ * its own channel the first time it asks for one. The channels are spread round-robin over a fixed number of TCP
+ * connections. A thread's channels are closed once the thread has ended: they are kept by a weak reference to the
+ * thread, and each time a channel is opened, the channels of threads collected since are closed first, without looking
+ * at the threads still alive. A thread publishing with confirms is given a second channel in confirm mode, so its plain
+ * channel is not switched to confirm mode for every other publisher on the thread. Push consumers do not use thread
+ * channels, which would cancel them when the thread ended; each connection has one consumer channel owned by the pool.
+ * <p>
+ * A connection that shuts down unexpectedly is replaced on the pool's recovery thread, and a connection found closed
+ * is replaced when the next channel is opened on it. Each replacement is a recovery: the pool's declaration registry
+ * forgets what was declared on the old connection, and the recovery listeners run once on the recovery thread, so what
+ * was lost with the connection can be declared again.
+ */
+public class ChannelPool {
+    private static final Logger LOG = LoggerFactory.getLogger(ChannelPool.class);
+    private static final boolean debug = false;
+    private final String host;
+    private final Connection[] connections;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final AtomicInteger channelsOpened = new AtomicInteger();
+    private final AtomicInteger channelsClosed = new AtomicInteger();
+    private final ThreadLocal<ThreadChannels> ownChannels = new ThreadLocal<>();
+    /**
+     * The channels of each thread that has any, so they can be closed after their threads end.
+     */
+    private final Set<ThreadChannels> threadChannels = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Thread> endedThreads = new ReferenceQueue<>();
+    private final Channel[] consumerChannels;
+    private final DeclarationRegistry declarations = DeclarationRegistry.createDeclarationRegistry();
+    private final ConnectionFactory factory = new ConnectionFactory();
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService recovery = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "channel-pool-recovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed = false;
+
+    private ChannelPool(final String host, final int connectionCount) {
+        this.host = host;
+        this.connections = new Connection[Math.max(1, connectionCount)];
+        this.consumerChannels = new Channel[connections.length];
+    }
+
+    /**
+     * Create and open a channel pool.
+     *
+     * @param host            - the broker host, e.g. "localhost".
+     * @param connectionCount - the number of TCP connections the channels are spread over.
+     * @return - the ChannelPool created
+     * @throws IOException - if a connection to the broker could not be opened.
+     */
+    public static ChannelPool createChannelPool(final String host, final int connectionCount) throws IOException {
+        final ChannelPool pool = new ChannelPool(host, connectionCount);
+        pool.open();
+        return pool;
+    }
+
+    private void open() throws IOException {
+        factory.setHost(host);
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = openConnection(i);
+        }
+        if (debug) LOG.debug("Opened {} connections to {}.", connections.length, host);
+    }
+
+    private Connection openConnection(final int index) throws IOException {
+        final Connection connection = factory.newConnection();
+        connection.addShutdownListener(cause -> {
+            declarations.forget(connection);
+            if (!cause.isInitiatedByApplication()) onRecoveryThread(() -> recover(index));
+        });
+        return connection;
+    }
+
+    /**
+     * Get the connection at the given index, replacing it first if it has closed.
+     */
+    private Connection getOpenConnection(final int index) throws IOException {
+        final Connection connection;
+        boolean replaced = false;
+        synchronized (this) {
+            if (!connections[index].isOpen()) {
+                LOG.info("Connection {} to {} closed; reconnecting.", index, host);
+                declarations.forget(connections[index]);
+                connections[index] = openConnection(index);
+                replaced = true;
+            }
+            connection = connections[index];
+        }
+        if (replaced) onRecoveryThread(() -> recoveryListeners.forEach(Runnable::run));
+        return connection;
+    }
+
+    /**
+     * Replace the connection at the given index if it is still closed.
+     */
+    private void recover(final int index) {
+        try {
+            getOpenConnection(index);
+        } catch (IOException e) {
+            LOG.error("Error: Could not reconnect to {}; retrying when a channel is next opened. {}", host, e.getMessage());
+        }
+    }
+
+    private void onRecoveryThread(final Runnable task) {
+        if (closed) return;
+        try {
+            recovery.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (debug) LOG.debug("Pool to {} closed; skipping recovery.", host);
+        }
+    }
+
+    /**
+     * Run the listener on the pool's recovery thread each time one of its connections is replaced.
+     *
+     * @param listener - what to do after a connection recovery, e.g. declare the queues again.
+     */
+    public void addRecoveryListener(final Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    private Channel openChannel(final int index) throws IOException {
+        final Connection connection = getOpenConnection(index);
+        final Channel channel = connection.createChannel();
+        channel.addShutdownListener((ShutdownSignalException cause) -> {
+            if (!cause.isInitiatedByApplication()) declarations.forget(connection);
+        });
+        channelsOpened.incrementAndGet();
+        return channel;
+    }
+
+    /**
+     * Get the channel owned by the calling thread, opening one on the next connection if the thread has none or its
+     * channel has been closed.
+     *
+     * @return - the calling thread's channel.
+     */
+    public Channel getChannel() {
+        final ThreadChannels own = getOwnChannels();
+        Channel channel = own.channel;
+        if (channel == null || !channel.isOpen()) {
+            closeChannelsOfEndedThreads();
+            try {
+                channel = openChannel(Math.floorMod(nextConnection.getAndIncrement(), connections.length));
+            } catch (IOException e) {
+                LOG.error("Error: Could not open a channel to {} for {}. {}", host, Thread.currentThread().getName(), e.getMessage());
+                System.exit(-38);
+            }
+            own.channel = channel;
+            if (debug) LOG.debug("Opened channel {} for {}.", channelsOpened.get(), Thread.currentThread().getName());
+        }
+        return channel;
+    }
+
+    /**
+     * Get the calling thread's publisher confirm channel, opening one on the next connection and selecting confirm mode
+     * if the thread has none or its channel has been closed. It is never the channel returned by getChannel(), as
+     * confirm mode cannot be turned off again.
+     *
+     * @return - the calling thread's confirm channel.
+     * @throws IOException - if the channel could not be opened or put in confirm mode.
+     */
+    public Channel getConfirmChannel() throws IOException {
+        final ThreadChannels own = getOwnChannels();
+        Channel channel = own.confirmChannel;
+        if (channel == null || !channel.isOpen()) {
+            closeChannelsOfEndedThreads();
+            channel = openChannel(Math.floorMod(nextConnection.getAndIncrement(), connections.length));
+            channel.confirmSelect();
+            own.confirmChannel = channel;
+            if (debug) LOG.debug("Opened confirm channel {} for {}.", channelsOpened.get(), Thread.currentThread().getName());
+        }
+        return channel;
+    }
+
+    /**
+     * Get the pool's consumer channel for a queue, opening it first if it is not open. Queues are spread over the
+     * connections by name, and every consumer on a connection shares its consumer channel.
+     *
+     * @param queueName - the full name of the queue to consume.
+     * @return - the consumer channel.
+     * @throws IOException - if the channel could not be opened.
+     */
+    public synchronized Channel getConsumerChannel(final String queueName) throws IOException {
+        final int index = Math.floorMod(queueName.hashCode(), connections.length);
+        if (consumerChannels[index] == null || !consumerChannels[index].isOpen()) {
+            consumerChannels[index] = openChannel(index);
+            if (debug) LOG.debug("Opened consumer channel on connection {} to {}.", index, host);
+        }
+        return consumerChannels[index];
+    }
+
+    private ThreadChannels getOwnChannels() {
+        ThreadChannels own = ownChannels.get();
+        if (own == null) {
+            own = new ThreadChannels(Thread.currentThread(), endedThreads);
+            ownChannels.set(own);
+            threadChannels.add(own);
+        }
+        return own;
+    }
+
+    /**
+     * Close the channels of threads that have ended and been collected. Channel closes are initiated by the application,
+     * so nothing declared on their connections is forgotten.
+     */
+    private void closeChannelsOfEndedThreads() {
+        for (Reference<? extends Thread> ref = endedThreads.poll(); ref != null; ref = endedThreads.poll()) {
+            final ThreadChannels ended = (ThreadChannels) ref;
+            if (!threadChannels.remove(ended)) continue;
+            close(ended.channel, ended.threadName);
+            close(ended.confirmChannel, ended.threadName);
+        }
+    }
+
+    private void close(final Channel channel, final String threadName) {
+        if (channel == null) return;
+        try {
+            if (channel.isOpen()) channel.close();
+            channelsClosed.incrementAndGet();
+        } catch (Exception e) {
+            LOG.error("Error closing the channel of ended thread {}. {}", threadName, e.getMessage());
+        }
+    }
+
+    /**
+     * @return - the registry of what has been declared on this pool's connections.
+     */
+    public DeclarationRegistry getDeclarations() {
+        return declarations;
+    }
+
+    /**
+     * @return - the first connection in the pool.
+     */
+    public Connection getConnection() {
+        return connections[0];
+    }
+
+    public int getConnectionCount() {
+        return connections.length;
+    }
+
+    public int getChannelsOpened() {
+        return channelsOpened.get();
+    }
+
+    /**
+     * @return - the number of thread channels closed after their threads ended.
+     */
+    public int getChannelsClosed() {
+        return channelsClosed.get();
+    }
+
+    /**
+     * @return - the number of threads whose channels have not been closed, including ended threads not yet collected.
+     */
+    public int getThreadChannelCount() {
+        return threadChannels.size();
+    }
+
+    /**
+     * Close all connections, which also closes every channel opened on them.
+     */
+    public void close() {
+        closed = true;
+        recovery.shutdownNow();
+        threadChannels.clear();
+        for (Connection connection : connections) {
+            try {
+                if (connection != null && connection.isOpen()) connection.close();
+            } catch (IOException e) {
+                LOG.error("Error closing connection to {}. {}", host, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelPool{" +
+                "host='" + host + '\'' +
+                ", connections=" + connections.length +
+                ", channelsOpened=" + channelsOpened.get() +
+                ", channelsClosed=" + channelsClosed.get() +
+                ", threadChannels=" + threadChannels.size() +
+                '}';
+    }
+
+    /**
+     * The channels of one thread, kept by a weak reference to the thread so it is queued once the thread is collected.
+     */
+    private static final class ThreadChannels extends WeakReference<Thread> {
+        private final String threadName;
+        private volatile Channel channel;
+        private volatile Channel confirmChannel;
+
+        ThreadChannels(final Thread thread, final ReferenceQueue<Thread> queue) {
+            super(thread, queue);
+            this.threadName = thread.getName();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the messages one thread publishes to one exchange during a turn and sends them together, in order, on
+ * flush(). Every message queued is sent, even if it is identical to another. The channel is in publisher confirm mode:
+ * the broker acknowledges messages asynchronously, at most {@code window} messages may be unconfirmed at a time, and
+ * nacked messages are queued again for the next flush.
+ * <p>
+ * A publisher belongs to one thread and that thread's confirm channel; only the confirm callbacks run on another
+ * thread. A flush may wait for room in the window, so call it without holding locks other threads need.
+ */
+public class ConfirmingPublisher {
+    private static final Logger LOG = LoggerFactory.getLogger(ConfirmingPublisher.class);
+    private static final boolean debug = false;
+    private final Channel channel;
+    private final String exchangeName;
+    private final Semaphore window;
+    private final long windowWaitMillis;
+    /**
+     * Messages queued since the last flush, in order.
+     */
+    private final List<Pending> pending = new ArrayList<>();
+    /**
+     * Published but unconfirmed messages, keyed by publish sequence number.
+     */
+    private final ConcurrentNavigableMap<Long, Pending> outstanding = new ConcurrentSkipListMap<>();
+    /**
+     * Nacked messages waiting to be published again.
+     */
+    private final ConcurrentLinkedQueue<Pending> retries = new ConcurrentLinkedQueue<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong nacked = new AtomicLong();
+
+    private ConfirmingPublisher(final Channel channel, final String exchangeName, final int window, final long windowWaitMillis) {
+        this.channel = channel;
+        this.exchangeName = exchangeName;
+        this.window = new Semaphore(window);
+        this.windowWaitMillis = windowWaitMillis;
+    }
+
+    /**
+     * Create a publisher and listen for the confirms on its channel. A null channel means the in-process broker, which
+     * needs no confirms.
+     *
+     * @param channel          - the calling thread's confirm channel, from {@code ChannelPool.getConfirmChannel()}, or
+     *                         null for the in-process broker.
+     * @param exchangeName     - the exchange to publish to.
+     * @param window           - the maximum number of unconfirmed messages.
+     * @param windowWaitMillis - how long a flush waits for room in the window before leaving the rest for the next flush.
+     * @return - the ConfirmingPublisher created
+     */
+    public static ConfirmingPublisher createConfirmingPublisher(final Channel channel, final String exchangeName, final int window,
+                                                                final long windowWaitMillis) {
+        final ConfirmingPublisher publisher = new ConfirmingPublisher(channel, exchangeName, window, windowWaitMillis);
+        if (channel != null) channel.addConfirmListener(publisher.new Listener());
+        return publisher;
+    }
+
+    /**
+     * Queue a message for the next flush.
+     *
+     * @param routingKey - the routing key.
+     * @param body       - the message body.
+     */
+    public void send(final String routingKey, final byte[] body) {
+        pending.add(new Pending(routingKey, body));
+    }
+
+    /**
+     * Publish everything queued, including earlier nacked messages, without waiting for confirms. Waits up to
+     * {@code windowWaitMillis} for each slot when the window is full.
+     *
+     * @return - the number of messages published.
+     * @throws IOException - if the broker could not be reached.
+     */
+    public int flush() throws IOException {
+        for (Pending retry = retries.poll(); retry != null; retry = retries.poll()) {
+            pending.add(retry);
+        }
+        int count = 0;
+        try {
+            for (Pending p : pending) {
+                if (channel == null) {
+                    InProcessBroker.basicPublish(exchangeName, p.routingKey, p.body);
+                } else {
+                    if (!window.tryAcquire(windowWaitMillis, TimeUnit.MILLISECONDS)) {
+                        LOG.warn("Publish window to {} full with {} unconfirmed; holding {} messages.", exchangeName,
+                                outstanding.size(), pending.size() - count);
+                        break;
+                    }
+                    final long sequence = channel.getNextPublishSeqNo();
+                    outstanding.put(sequence, p);
+                    channel.basicPublish(exchangeName, p.routingKey, null, p.body);
+                }
+                count++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.subList(0, count).clear();
+        published.addAndGet(count);
+        if (debug) LOG.debug("Flushed {} messages to {}; {} unconfirmed.", count, exchangeName, outstanding.size());
+        return count;
+    }
+
+    /**
+     * @return - false once the publisher's channel has closed and a new publisher is needed.
+     */
+    public boolean isOpen() {
+        return channel == null || channel.isOpen();
+    }
+
+    /**
+     * Hand every unsent, unconfirmed, or nacked message to the publisher replacing this one after its channel closed.
+     *
+     * @param replacement - the publisher on the new channel.
+     */
+    public void handOverTo(final ConfirmingPublisher replacement) {
+        for (Pending p : outstanding.values()) replacement.send(p.routingKey, p.body);
+        for (Pending p : retries) replacement.send(p.routingKey, p.body);
+        for (Pending p : pending) replacement.send(p.routingKey, p.body);
+        outstanding.clear();
+        retries.clear();
+        pending.clear();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public int getOutstandingCount() {
+        return outstanding.size();
+    }
+
+    public String getSummaryString() {
+        return exchangeName + ": published=" + published.get() + ", confirmed=" +
+                confirmed.get() + ", nacked=" + nacked.get() + ", unconfirmed=" + outstanding.size();
+    }
+
+    private static class Pending {
+        private final String routingKey;
+        private final byte[] body;
+
+        Pending(final String routingKey, final byte[] body) {
+            this.routingKey = routingKey;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Releases window slots as the broker confirms; nacked messages are queued again.
+     */
+    private class Listener implements ConfirmListener {
+        @Override
+        public void handleAck(final long deliveryTag, final boolean multiple) {
+            confirmed.addAndGet(settle(deliveryTag, multiple, false));
+        }
+
+        @Override
+        public void handleNack(final long deliveryTag, final boolean multiple) {
+            nacked.addAndGet(settle(deliveryTag, multiple, true));
+        }
+
+        private int settle(final long deliveryTag, final boolean multiple, final boolean retry) {
+            final Map<Long, Pending> settled = multiple ? outstanding.headMap(deliveryTag, true) : outstanding.subMap(deliveryTag, true, deliveryTag, true);
+            int count = 0;
+            for (Long sequence : new ArrayList<>(settled.keySet())) {
+                final Pending p = outstanding.remove(sequence);
+                if (p == null) continue;
+                if (retry) retries.add(p);
+                window.release();
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import com.rabbitmq.client.Connection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which exchanges, queues, and bindings have been declared on each broker connection so that a
+ * declaration is only sent once. When a connection or one of its channels shuts down unexpectedly, everything recorded
+ * for that connection is forgotten, and the next use declares it again.
+ */
+public class DeclarationRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(DeclarationRegistry.class);
+    private static final boolean debug = false;
+    private final Map<Connection, Set<String>> declared = new ConcurrentHashMap<>();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong recoveries = new AtomicLong();
+
+    private DeclarationRegistry() {
+    }
+
+    public static DeclarationRegistry createDeclarationRegistry() {
+        return new DeclarationRegistry();
+    }
+
+    public static String exchangeKey(final String exchangeName) {
+        return "exchange:" + exchangeName;
+    }
+
+    public static String queueKey(final String queueName) {
+        return "queue:" + queueName;
+    }
+
+    public static String bindingKey(final String queueName, final String exchangeName, final String routingKey) {
+        return "binding:" + queueName + ">" + exchangeName + ":" + routingKey;
+    }
+
+    /**
+     * Returns whether the declaration has been sent on the connection since it last recovered. Counts a skipped declare
+     * when it has.
+     *
+     * @param connection - the connection the declaration would be sent on.
+     * @param key        - the declaration key.
+     * @return - true if the declaration can be skipped.
+     */
+    public boolean isDeclared(final Connection connection, final String key) {
+        final Set<String> keys = declared.get(connection);
+        if (keys != null && keys.contains(key)) {
+            skipped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record that a declaration was sent on the connection.
+     *
+     * @param connection - the connection the declaration was sent on.
+     * @param key        - the declaration key.
+     * @return - true if it was not already recorded.
+     */
+    public boolean markDeclared(final Connection connection, final String key) {
+        return declared.computeIfAbsent(connection, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /**
+     * Forget everything declared on the connection so it is declared again after recovery.
+     *
+     * @param connection - the connection that shut down.
+     */
+    public void forget(final Connection connection) {
+        if (declared.remove(connection) != null) {
+            recoveries.incrementAndGet();
+            if (debug) LOG.debug("Forgot declarations on {}.", connection);
+        }
+    }
+
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public long getRecoveryCount() {
+        return recoveries.get();
+    }
+
+    @Override
+    public String toString() {
+        return "DeclarationRegistry{" +
+                "connections=" + declared.size() +
+                ", skipped=" + skipped.get() +
+                ", recoveries=" + recoveries.get() +
+                '}';
+    }
+}
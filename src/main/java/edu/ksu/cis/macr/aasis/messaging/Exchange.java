@@ -22,6 +22,11 @@ public class Exchange implements IExchange {
      * consumer (at the same time).
      */
     private Channel channel;
+    /**
+     * The pool of per-thread channels used once the exchange has been opened. When present, it supplies the channel
+     * returned by getChannel().
+     */
+    private ChannelPool channelPool;
 
     public Exchange(final String exchangeName) {
         this.exchangeName = exchangeName;
@@ -58,6 +63,7 @@ public class Exchange implements IExchange {
     }
 
     public com.rabbitmq.client.Channel getChannel() {
+        if (this.channelPool != null) return this.channelPool.getChannel();
         return this.channel;
     }
 
@@ -65,6 +71,14 @@ public class Exchange implements IExchange {
         this.channel = channel;
     }
 
+    public ChannelPool getChannelPool() {
+        return this.channelPool;
+    }
+
+    public void setChannelPool(final ChannelPool channelPool) {
+        this.channelPool = channelPool;
+    }
+
     public Connection getConnection() {
         return this.connection;
     }
@@ -109,6 +123,7 @@ public class Exchange implements IExchange {
                 "exchangeName='" + exchangeName + '\'' +
                 ", exchangeType='" + exchangeType + '\'' +
                 ", exchangeHost='" + exchangeHost + '\'' +
+                ", channelPool=" + channelPool +
                 '}';
     }
 }
@@ -0,0 +1,308 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code InProcessBroker} singleton is an in-memory stand-in for RabbitMQ when all organizations run in one JVM. It
+ * supports direct and fanout exchanges, topic exchanges with "*" (exactly one word) and "#" (zero or more words)
+ * bindings, and a per-queue message time to live. The time to live also applies to messages pushed to a consumer's
+ * inbox, until they are polled. Messages never leave the process, so there is no broker latency.
+ */
+public enum InProcessBroker {
+    /**
+     * Singleton instance of the in-process broker (one per JVM).
+     */
+    INSTANCE;
+
+    private static final Logger LOG = LoggerFactory.getLogger(InProcessBroker.class);
+    private static final boolean debug = false;
+    /**
+     * The bindings of each exchange, keyed by exchange name.
+     */
+    private static final Map<String, ExchangeBindings> exchanges = new ConcurrentHashMap<>();
+    /**
+     * The queues, keyed by queue name.
+     */
+    private static final Map<String, LocalQueue> queues = new ConcurrentHashMap<>();
+    private static final AtomicLong published = new AtomicLong();
+    private static final AtomicLong unroutable = new AtomicLong();
+    private static final AtomicLong expired = new AtomicLong();
+
+    public static final String DIRECT = "direct";
+    public static final String FANOUT = "fanout";
+    public static final String TOPIC = "topic";
+
+    /**
+     * Declare a topic exchange. Declaring an existing exchange has no effect.
+     *
+     * @param exchangeName - the name of the exchange.
+     */
+    public static void exchangeDeclare(final String exchangeName) {
+        exchangeDeclare(exchangeName, TOPIC);
+    }
+
+    /**
+     * Declare an exchange. Declaring an existing exchange of the same type has no effect.
+     *
+     * @param exchangeName - the name of the exchange.
+     * @param exchangeType - "direct", "fanout", or "topic".
+     * @throws IllegalArgumentException - if the type is not supported.
+     * @throws IllegalStateException    - if the exchange was declared with another type.
+     */
+    public static void exchangeDeclare(final String exchangeName, final String exchangeType) {
+        if (!DIRECT.equals(exchangeType) && !FANOUT.equals(exchangeType) && !TOPIC.equals(exchangeType)) {
+            throw new IllegalArgumentException("Exchange type not supported in process: " + exchangeType);
+        }
+        final ExchangeBindings bindings = exchanges.computeIfAbsent(exchangeName, k -> new ExchangeBindings(exchangeType));
+        if (!bindings.type.equals(exchangeType)) {
+            throw new IllegalStateException("Exchange " + exchangeName + " already declared as " + bindings.type);
+        }
+    }
+
+    /**
+     * Declare a queue. Declaring an existing queue has no effect.
+     *
+     * @param queueName - the name of the queue.
+     * @param ttlMillis - the time a message can wait on the queue before it expires.
+     */
+    public static void queueDeclare(final String queueName, final long ttlMillis) {
+        queues.computeIfAbsent(queueName, k -> new LocalQueue(ttlMillis));
+    }
+
+    /**
+     * Bind a queue to an exchange, declaring it as a topic exchange if it has not been declared. Binding the same queue
+     * and key twice has no effect.
+     *
+     * @param queueName    - the name of a declared queue.
+     * @param exchangeName - the name of the exchange.
+     * @param bindingKey   - the binding key, which may contain "*" and "#" words on a topic exchange, and is ignored on a
+     *                     fanout exchange.
+     */
+    public static void queueBind(final String queueName, final String exchangeName, final String bindingKey) {
+        final LocalQueue queue = queues.get(queueName);
+        if (queue == null) throw new IllegalStateException("Queue not declared: " + queueName);
+        exchanges.computeIfAbsent(exchangeName, k -> new ExchangeBindings(TOPIC)).bind(bindingKey, queue);
+        if (debug) LOG.debug("Bound {} to {} with {}.", queueName, exchangeName, bindingKey);
+    }
+
+    /**
+     * Route a message to every queue bound to the exchange with a matching key: the same key on a direct exchange, any
+     * key on a fanout exchange, and a matching pattern on a topic exchange.
+     *
+     * @param exchangeName - the name of the exchange.
+     * @param routingKey   - the routing key of the message.
+     * @param body         - the message body.
+     * @return - the number of queues the message was delivered to.
+     */
+    public static int basicPublish(final String exchangeName, final String routingKey, final byte[] body) {
+        published.incrementAndGet();
+        final ExchangeBindings bindings = exchanges.get(exchangeName);
+        final int delivered = (bindings == null) ? 0 : bindings.route(routingKey, body);
+        if (delivered == 0) {
+            unroutable.incrementAndGet();
+            if (debug) LOG.debug("No queue bound to {} for {}.", exchangeName, routingKey);
+        }
+        return delivered;
+    }
+
+    /**
+     * Remove and return the next unexpired message on the queue.
+     *
+     * @param queueName - the name of the queue.
+     * @return - the message body, or null if the queue is empty or unknown.
+     */
+    public static byte[] basicGet(final String queueName) {
+        final LocalQueue queue = queues.get(queueName);
+        return (queue == null) ? null : queue.poll();
+    }
+
+    /**
+     * Push every current and future message on the queue into the given inbox.
+     *
+     * @param queueName - the name of a declared queue.
+     * @param inbox     - the inbox to deliver into.
+     */
+    public static void basicConsume(final String queueName, final MessageInbox inbox) {
+        final LocalQueue queue = queues.get(queueName);
+        if (queue == null) throw new IllegalStateException("Queue not declared: " + queueName);
+        queue.consume(inbox);
+    }
+
+    /**
+     * Match a routing key against a topic binding key. Both are split into words on ".". In the binding key, "*" matches
+     * exactly one word and "#" matches zero or more words.
+     *
+     * @param bindingKey - the binding key.
+     * @param routingKey - the routing key.
+     * @return - true if the routing key matches.
+     */
+    public static boolean topicMatches(final String bindingKey, final String routingKey) {
+        return topicMatches(bindingKey.split("\\."), 0, routingKey.split("\\."), 0);
+    }
+
+    private static boolean topicMatches(final String[] pattern, final int p, final String[] words, final int w) {
+        if (p == pattern.length) return w == words.length;
+        if (pattern[p].equals("#")) {
+            for (int skip = w; skip <= words.length; skip++) {
+                if (topicMatches(pattern, p + 1, words, skip)) return true;
+            }
+            return false;
+        }
+        if (w == words.length) return false;
+        if (pattern[p].equals("*") || pattern[p].equals(words[w])) return topicMatches(pattern, p + 1, words, w + 1);
+        return false;
+    }
+
+    /**
+     * Remove all exchanges, queues, and bindings.
+     */
+    public static void reset() {
+        exchanges.clear();
+        queues.clear();
+    }
+
+    public static String getSummaryString() {
+        return "InProcessBroker: exchanges=" + exchanges.size() + ", queues=" + queues.size() + ", published=" +
+                published.get() + ", unroutable=" + unroutable.get() + ", expired=" + expired.get();
+    }
+
+    /**
+     * The bindings of one exchange. Keys without wildcards, and every key of a direct exchange, are looked up directly
+     * by routing key; only the wildcard bindings of a topic exchange are matched word by word. A fanout exchange keeps
+     * just the queues bound.
+     */
+    private static class ExchangeBindings {
+        private final String type;
+        private final Map<String, List<LocalQueue>> exact = new ConcurrentHashMap<>();
+        private final List<WildcardBinding> wildcards = new CopyOnWriteArrayList<>();
+        private final List<LocalQueue> fanout = new CopyOnWriteArrayList<>();
+
+        ExchangeBindings(final String type) {
+            this.type = type;
+        }
+
+        synchronized void bind(final String bindingKey, final LocalQueue queue) {
+            if (type.equals(FANOUT)) {
+                if (!fanout.contains(queue)) fanout.add(queue);
+            } else if (type.equals(TOPIC) && (bindingKey.contains("*") || bindingKey.contains("#"))) {
+                for (WildcardBinding b : wildcards) {
+                    if (b.queue == queue && b.key.equals(bindingKey)) return;
+                }
+                wildcards.add(new WildcardBinding(bindingKey, queue));
+            } else {
+                final List<LocalQueue> bound = exact.computeIfAbsent(bindingKey, k -> new CopyOnWriteArrayList<>());
+                if (!bound.contains(queue)) bound.add(queue);
+            }
+        }
+
+        int route(final String routingKey, final byte[] body) {
+            int delivered = 0;
+            if (type.equals(FANOUT)) {
+                for (LocalQueue queue : fanout) {
+                    queue.offer(body);
+                    delivered++;
+                }
+                return delivered;
+            }
+            final List<LocalQueue> bound = exact.get(routingKey);
+            if (bound != null) {
+                for (LocalQueue queue : bound) {
+                    queue.offer(body);
+                    delivered++;
+                }
+            }
+            for (WildcardBinding b : wildcards) {
+                // a queue receives a message once, however many of its bindings match
+                if (bound != null && bound.contains(b.queue)) continue;
+                if (topicMatches(b.key, routingKey)) {
+                    b.queue.offer(body);
+                    delivered++;
+                }
+            }
+            return delivered;
+        }
+    }
+
+    private static class WildcardBinding {
+        private final String key;
+        private final LocalQueue queue;
+
+        WildcardBinding(final String key, final LocalQueue queue) {
+            this.key = key;
+            this.queue = queue;
+        }
+    }
+
+    /**
+     * A queue whose messages expire after a fixed time. Messages are kept in arrival order, so expired messages are
+     * always at the head and are dropped as the queue is used. Messages pushed to a consumer keep their expiry time.
+     */
+    private static class LocalQueue {
+        private final long ttlNanos;
+        private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+        private volatile MessageInbox consumer;
+
+        LocalQueue(final long ttlMillis) {
+            this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        }
+
+        void offer(final byte[] body) {
+            final long now = System.nanoTime();
+            final MessageInbox inbox = consumer;
+            if (inbox != null) {
+                inbox.deliver(body, now + ttlNanos);
+                return;
+            }
+            dropExpired(now);
+            entries.add(new Entry(body, now + ttlNanos));
+            // a consumer may have attached while this message was being queued
+            if (consumer != null) drainTo(consumer);
+        }
+
+        byte[] poll() {
+            final Entry entry = pollEntry();
+            return (entry == null) ? null : entry.body;
+        }
+
+        private Entry pollEntry() {
+            dropExpired(System.nanoTime());
+            return entries.poll();
+        }
+
+        void consume(final MessageInbox inbox) {
+            this.consumer = inbox;
+            drainTo(inbox);
+        }
+
+        private void drainTo(final MessageInbox inbox) {
+            for (Entry entry = pollEntry(); entry != null; entry = pollEntry()) {
+                inbox.deliver(entry.body, entry.expiresAt);
+            }
+        }
+
+        private void dropExpired(final long now) {
+            for (Entry head = entries.peek(); head != null && head.expiresAt - now <= 0; head = entries.peek()) {
+                if (entries.remove(head)) expired.incrementAndGet();
+            }
+        }
+    }
+
+    private static class Entry {
+        private final byte[] body;
+        private final long expiresAt;
+
+        Entry(final byte[] body, final long expiresAt) {
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory inbox that holds the message bodies pushed by the broker for a single consumer queue. Each queue is bound to
+ * exactly one receiving persona, so each inbox belongs to one persona. Polling an inbox never blocks and never goes to the
+ * broker. A message delivered with an expiry time is dropped instead of returned once that time has passed, so a queue's
+ * message time to live still applies while the message waits in the inbox.
+ * <p>
+ * An inbox with a capacity drops its oldest message when a delivery would exceed it, as RabbitMQ does for a queue with
+ * a maximum length. Deliveries arrive on the broker's consumer thread, which must not wait for a persona to poll, so
+ * the inbox never makes the broker wait. The first message each inbox drops is logged as a warning; later ones are
+ * only counted.
+ */
+public class MessageInbox {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageInbox.class);
+    private final String queueName;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<Delivery> deliveries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean warned = new AtomicBoolean();
+
+    private MessageInbox(final String queueName, final int capacity) {
+        this.queueName = queueName;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Create an empty, unbounded inbox for the given queue.
+     *
+     * @param queueName - the full name of the queue delivering into this inbox.
+     * @return - the MessageInbox created
+     */
+    public static MessageInbox createMessageInbox(final String queueName) {
+        return new MessageInbox(queueName, 0);
+    }
+
+    /**
+     * Create an empty inbox for the given queue.
+     *
+     * @param queueName - the full name of the queue delivering into this inbox.
+     * @param capacity  - the most messages held, or zero or less for unbounded.
+     * @return - the MessageInbox created
+     */
+    public static MessageInbox createMessageInbox(final String queueName, final int capacity) {
+        return new MessageInbox(queueName, capacity);
+    }
+
+    /**
+     * Add a message body delivered by the broker.
+     *
+     * @param body - the raw message body.
+     */
+    public void deliver(final byte[] body) {
+        add(new Delivery(body, false, 0));
+    }
+
+    /**
+     * Add a message body that expires at the given time.
+     *
+     * @param body      - the raw message body.
+     * @param expiresAt - the {@code System.nanoTime()} at which the message expires.
+     */
+    public void deliver(final byte[] body, final long expiresAt) {
+        add(new Delivery(body, true, expiresAt));
+    }
+
+    private void add(final Delivery delivery) {
+        deliveries.add(delivery);
+        if (depth.incrementAndGet() <= capacity || capacity <= 0) return;
+        while (depth.get() > capacity && deliveries.poll() != null) {
+            depth.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        if (warned.compareAndSet(false, true)) {
+            LOG.warn("Inbox {} full at {} messages; dropping the oldest.", queueName, capacity);
+        }
+    }
+
+    /**
+     * Remove and return the oldest unexpired message body without waiting. Expired messages before it are dropped.
+     *
+     * @return - the oldest unexpired message body, or null if there is none.
+     */
+    public byte[] poll() {
+        final long now = System.nanoTime();
+        for (Delivery d = deliveries.poll(); d != null; d = deliveries.poll()) {
+            depth.decrementAndGet();
+            if (!d.expires || d.expiresAt - now > 0) return d.body;
+            expired.incrementAndGet();
+        }
+        return null;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public boolean isEmpty() {
+        return deliveries.isEmpty();
+    }
+
+    /**
+     * @return - the number of messages dropped because they expired in the inbox.
+     */
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    /**
+     * @return - the number of messages dropped because the inbox was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageInbox{" +
+                "queueName='" + queueName + '\'' +
+                ", empty=" + deliveries.isEmpty() +
+                ", capacity=" + capacity +
+                ", dropped=" + dropped.get() +
+                ", expired=" + expired.get() +
+                '}';
+    }
+
+    private static class Delivery {
+        private final byte[] body;
+        private final boolean expires;
+        private final long expiresAt;
+
+        Delivery(final byte[] body, final boolean expires, final long expiresAt) {
+            this.body = body;
+            this.expires = expires;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
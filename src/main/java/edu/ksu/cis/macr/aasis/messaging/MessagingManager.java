@@ -1,14 +1,24 @@
 package edu.ksu.cis.macr.aasis.messaging;
 
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import edu.ksu.cis.macr.aasis.common.AgentLink;
+import edu.ksu.cis.macr.aasis.common.AgentSymbolTable;
+import edu.ksu.cis.macr.aasis.config.RunManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The {@code MessagingManager} singleton provides a central exchange for communication between agents.
@@ -45,15 +55,57 @@ public enum MessagingManager implements IMessagingManager {
      * If true, the optional debug messages in this file will be shown. If false, they will not be issued.
      */
     private static boolean debug = false;
+    /**
+     * If true, each consumer queue is consumed with basicConsume and its deliveries are pushed into a local inbox. If false,
+     * each receive is a synchronous basicGet round trip to the broker.
+     */
+    private static volatile boolean asyncConsumers = false;
+    /**
+     * The local inboxes, keyed by full queue name, filled by the broker when asynchronous consumers are enabled.
+     */
+    private static final Map<String, MessageInbox> inboxes = new ConcurrentHashMap<>();
+    /**
+     * The channel consuming each queue, keyed by full queue name, so each queue has one consumer however many
+     * connections declare it.
+     */
+    private static final Map<String, Channel> consumers = new ConcurrentHashMap<>();
+    private static final AtomicLong brokerPolls = new AtomicLong();
+    private static final AtomicLong localPolls = new AtomicLong();
+    private static final AtomicLong pushedDeliveries = new AtomicLong();
+    /**
+     * The number of TCP connections each exchange spreads its per-thread channels over.
+     */
+    private static int connectionsPerExchange = Runtime.getRuntime().availableProcessors();
+    /**
+     * If true, all exchanges and queues live in the {@code InProcessBroker} and no RabbitMQ connection is opened. Only
+     * valid when every organization runs in this JVM.
+     */
+    private static volatile boolean inProcessBroker = false;
+    /**
+     * If true, publish() queues messages in the calling thread's {@code ConfirmingPublisher} until flush() is called.
+     */
+    private static volatile boolean batchPublishing = false;
+    /**
+     * The maximum number of unconfirmed messages per publisher when batch publishing.
+     */
+    private static int publishWindow = 256;
+    /**
+     * The most messages each consumer queue's inbox holds before dropping the oldest.
+     */
+    private static int inboxCapacity = 256;
+    /**
+     * The queue links declared for each focus, so they can be declared again after a connection recovery.
+     */
+    private static final Map<IMessagingFocus, Set<String>> knownQueues = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Map<IMessagingFocus, ConfirmingPublisher>> publishers = ThreadLocal.withInitial(HashMap::new);
 
 
-    public synchronized static boolean declareAndBindConsumerQueue(final IMessagingFocus focus, final String queueLink) {
+    public static boolean declareAndBindConsumerQueue(final IMessagingFocus focus, final String queueLink) {
         final String fullQueueName = getFullQueueName(queueLink, MessagingManager.getQueueFocus(focus));
 //        final String routingKey = fullQueueName;
         Exchange spec = specs.get(focus);
         final String exchangeName = spec.getExchangeName();
         final String exchangeType = spec.getExchangeType();
-        final Channel channel = spec.getChannel();
         if (debug) LOG.debug("Setup {} on Exchange = {}  ", fullQueueName, exchangeName);
         final boolean durable = false;
         final boolean exclusive = false;
@@ -62,22 +114,42 @@ public enum MessagingManager implements IMessagingManager {
 
         final int expireMillisecs = MessagingManager.MESSAGES_EXPIRE_IN_SECONDS * 1000;
 
+        if (inProcessBroker) {
+            InProcessBroker.exchangeDeclare(exchangeName, exchangeType);
+            InProcessBroker.queueDeclare(fullQueueName, expireMillisecs);
+            InProcessBroker.queueBind(fullQueueName, exchangeName, routingKey);
+            if (asyncConsumers) {
+                final MessageInbox inbox = MessageInbox.createMessageInbox(fullQueueName, inboxCapacity);
+                if (inboxes.putIfAbsent(fullQueueName, inbox) == null) InProcessBroker.basicConsume(fullQueueName, inbox);
+            }
+            return true;
+        }
+        knownQueues.computeIfAbsent(focus, k -> ConcurrentHashMap.newKeySet()).add(queueLink);
+        final Channel channel = spec.getChannel();
+        final Connection connection = channel.getConnection();
+        final DeclarationRegistry declared = spec.getChannelPool().getDeclarations();
         try {
-            //   ConnectionFactory factory = new ConnectionFactory();
-            //  factory.setHost(MessagingManager.BROKER_HOST_CONNECT);
-            //   Connection tempConnection = factory.newConnection();
-
-            //  Channel tempChannel = tempConnection.createChannel();
-            channel.exchangeDeclare(exchangeName, exchangeType);
+            final String exchangeKey = DeclarationRegistry.exchangeKey(exchangeName);
+            if (!declared.isDeclared(connection, exchangeKey)) {
+                channel.exchangeDeclare(exchangeName, exchangeType);
+                declared.markDeclared(connection, exchangeKey);
+            }
 
-            Map<String, Object> args = new HashMap<>();
-            args.put("x-message-ttl", expireMillisecs);
+            final String queueKey = DeclarationRegistry.queueKey(fullQueueName);
+            if (!declared.isDeclared(connection, queueKey)) {
+                Map<String, Object> args = new HashMap<>();
+                args.put("x-message-ttl", expireMillisecs);
+                channel.queueDeclare(fullQueueName, durable, exclusive, autoDelete, args);
+                declared.markDeclared(connection, queueKey);
+            }
 
-            channel.queueDeclare(fullQueueName, durable, exclusive, autoDelete, args);
-            channel.queueBind(fullQueueName, exchangeName, routingKey);
+            final String bindingKey = DeclarationRegistry.bindingKey(fullQueueName, exchangeName, routingKey);
+            if (!declared.isDeclared(connection, bindingKey)) {
+                channel.queueBind(fullQueueName, exchangeName, routingKey);
+                declared.markDeclared(connection, bindingKey);
+            }
 
-            // tempChannel.close();
-            // tempConnection.close();
+            if (asyncConsumers) claimConsumer(spec.getChannelPool(), fullQueueName);
             return true;
         } catch (IOException e) {
             LOG.error("\"Error declaring and binding quueue {}, {}. ", fullQueueName, e.getCause());
@@ -86,7 +158,249 @@ public enum MessagingManager implements IMessagingManager {
         return false;
     }
 
+    /**
+     * Declare and bind a batch of consumer queues, for example all the queues of an organization at startup. Queues,
+     * bindings, and the exchange already declared on the calling thread's connection are skipped.
+     *
+     * @param focus      - the focus of the exchange.
+     * @param queueLinks - the sender-receiver links identifying the queues.
+     * @return - true if every queue was declared and bound.
+     */
+    public static boolean declareAndBindConsumerQueues(final IMessagingFocus focus, final Collection<String> queueLinks) {
+        boolean all = true;
+        for (String queueLink : queueLinks) {
+            all &= declareAndBindConsumerQueue(focus, queueLink);
+        }
+        return all;
+    }
+
+    /**
+     * Declare again every queue known for the focus, so that queues, bindings, and consumers lost with a connection come
+     * back. Runs once per connection recovery, as a recovery listener of the exchange's channel pool.
+     *
+     * @param focus - the focus of the exchange.
+     */
+    private static void redeclareAfterRecovery(final IMessagingFocus focus) {
+        final Set<String> queueLinks = knownQueues.get(focus);
+        if (queueLinks == null) return;
+        LOG.info("Re-declaring {} queues on {} after connection recovery.", queueLinks.size(), getExchangeName(focus));
+        declareAndBindConsumerQueues(focus, queueLinks);
+    }
+
+    /**
+     * Start a consumer for the queue on the pool's consumer channel unless one is already running on an open channel.
+     * The claim is a single putIfAbsent (or replace, for a consumer whose channel has closed), so two threads declaring
+     * the same queue cannot both start one.
+     *
+     * @param pool          - the exchange's channel pool.
+     * @param fullQueueName - the full name of the queue.
+     * @throws IOException - if the consumer could not be registered with the broker.
+     */
+    private static void claimConsumer(final ChannelPool pool, final String fullQueueName) throws IOException {
+        final Channel channel = pool.getConsumerChannel(fullQueueName);
+        final Channel current = consumers.putIfAbsent(fullQueueName, channel);
+        if (current != null && (current.isOpen() || !consumers.replace(fullQueueName, current, channel))) return;
+        try {
+            startConsumer(channel, fullQueueName);
+        } catch (IOException e) {
+            consumers.remove(fullQueueName, channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Start pushing the deliveries of the given queue into its local inbox. The inbox is kept when the consumer has to be
+     * started again after a connection recovery.
+     *
+     * @param channel       - the channel used to consume the queue.
+     * @param fullQueueName - the full name of the queue.
+     * @throws IOException - if the consumer could not be registered with the broker.
+     */
+    private static void startConsumer(final Channel channel, final String fullQueueName) throws IOException {
+        final MessageInbox inbox = inboxes.computeIfAbsent(fullQueueName, k -> MessageInbox.createMessageInbox(k, inboxCapacity));
+        final boolean autoAck = true;
+        channel.basicConsume(fullQueueName, autoAck, new DefaultConsumer(channel) {
+            @Override
+            public void handleDelivery(final String consumerTag, final Envelope envelope,
+                                       final AMQP.BasicProperties properties, final byte[] body) {
+                inbox.deliver(body);
+                pushedDeliveries.incrementAndGet();
+            }
+        });
+        if (debug) LOG.debug("Consuming {} into {}", fullQueueName, inbox);
+    }
+
+    /**
+     * Receive the next message body on the given queue without blocking. With asynchronous consumers enabled this is a
+     * local poll of the queue's inbox; otherwise it is a basicGet round trip to the broker.
+     *
+     * @param focus     - the focus of the exchange the queue is bound to.
+     * @param queueLink - the sender-receiver link identifying the queue.
+     * @return - the message body, or null if no message is waiting.
+     * @throws IOException - if the broker could not be reached.
+     */
+    public static byte[] receive(final IMessagingFocus focus, final String queueLink) throws IOException {
+        final String fullQueueName = getFullQueueName(queueLink, MessagingManager.getQueueFocus(focus));
+        if (asyncConsumers) {
+            final MessageInbox inbox = inboxes.get(fullQueueName);
+            if (inbox != null) {
+                localPolls.incrementAndGet();
+                return inbox.poll();
+            }
+        }
+        brokerPolls.incrementAndGet();
+        if (inProcessBroker) return InProcessBroker.basicGet(fullQueueName);
+        final boolean autoAck = true;
+        final GetResponse response = getChannel(focus).basicGet(fullQueueName, autoAck);
+        return (response == null) ? null : response.getBody();
+    }
+
+    /**
+     * Publish a message body to the given queue on the exchange for the focus. The queue name is the routing key.
+     *
+     * @param focus     - the focus of the exchange.
+     * @param queueLink - the sender-receiver link identifying the queue.
+     * @param body      - the message body.
+     * @throws IOException - if the broker could not be reached.
+     */
+    public static void publish(final IMessagingFocus focus, final String queueLink, final byte[] body) throws IOException {
+        final String routingKey = getFullQueueName(queueLink, MessagingManager.getQueueFocus(focus));
+        if (MessagingReliabilityManager.isInjectingFaults()) {
+            final long delay = MessagingReliabilityManager.nextDelayMillis();
+            if (delay < 0) {
+                if (debug) LOG.debug("Injected loss of message to {}.", routingKey);
+                return;
+            }
+            if (delay > 0) {
+                MessagingReliabilityManager.schedule(() -> {
+                    try {
+                        publishDirect(focus, routingKey, body);
+                    } catch (IOException e) {
+                        LOG.error("Error publishing delayed message to {}. {}", routingKey, e.getMessage());
+                    }
+                }, delay);
+                return;
+            }
+        }
+        if (batchPublishing) {
+            getPublisher(focus).send(routingKey, body);
+            return;
+        }
+        publishDirect(focus, routingKey, body);
+    }
+
+    /**
+     * Publish without batching. Used for messages released by the fault injection stage, which runs on the timing wheel
+     * thread and so never flushes a batch.
+     */
+    private static void publishDirect(final IMessagingFocus focus, final String routingKey, final byte[] body) throws IOException {
+        if (inProcessBroker) {
+            InProcessBroker.basicPublish(getExchangeName(focus), routingKey, body);
+            return;
+        }
+        getChannel(focus).basicPublish(getExchangeName(focus), routingKey, null, body);
+    }
+
+    /**
+     * Publish everything the calling thread has queued since its last flush. Call once per turn, after the sends of that
+     * turn, and without holding locks other threads need, as it may wait for room in a publish window. Does nothing
+     * unless batch publishing is enabled.
+     *
+     * @return - the number of messages published.
+     * @throws IOException - if the broker could not be reached.
+     */
+    public static int flush() throws IOException {
+        int count = 0;
+        for (ConfirmingPublisher publisher : publishers.get().values()) {
+            count += publisher.flush();
+        }
+        return count;
+    }
+
+    private static ConfirmingPublisher getPublisher(final IMessagingFocus focus) throws IOException {
+        final Map<IMessagingFocus, ConfirmingPublisher> mine = publishers.get();
+        ConfirmingPublisher publisher = mine.get(focus);
+        if (publisher == null || !publisher.isOpen()) {
+            final Channel channel = inProcessBroker ? null : specs.get(focus).getChannelPool().getConfirmChannel();
+            final ConfirmingPublisher replacement = ConfirmingPublisher.createConfirmingPublisher(channel,
+                    getExchangeName(focus), publishWindow, RunManager.getStandardWaitTime_ms());
+            if (publisher != null) publisher.handOverTo(replacement);
+            publisher = replacement;
+            mine.put(focus, publisher);
+        }
+        return publisher;
+    }
+
+    public static boolean isBatchPublishing() {
+        return batchPublishing;
+    }
+
+    public static void setBatchPublishing(final boolean batchPublishing) {
+        MessagingManager.batchPublishing = batchPublishing;
+    }
+
+    public static void setPublishWindow(final int publishWindow) {
+        MessagingManager.publishWindow = publishWindow;
+    }
+
+    public static boolean isAsyncConsumers() {
+        return asyncConsumers;
+    }
+
+    public static void setAsyncConsumers(final boolean asyncConsumers) {
+        MessagingManager.asyncConsumers = asyncConsumers;
+    }
+
+    /**
+     * Set the most messages each consumer queue's inbox holds. Applies to inboxes created afterwards.
+     *
+     * @param inboxCapacity - the capacity, or zero or less for unbounded.
+     */
+    public static void setInboxCapacity(final int inboxCapacity) {
+        MessagingManager.inboxCapacity = inboxCapacity;
+    }
+
+    /**
+     * @return - the number of receives answered by a basicGet round trip to the broker.
+     */
+    public static long getBrokerPolls() {
+        return brokerPolls.get();
+    }
+
+    /**
+     * @return - the number of broker round trips saved, i.e. receives answered from a local inbox instead of a basicGet.
+     */
+    public static long getBrokerRoundTripsSaved() {
+        return localPolls.get();
+    }
+
+    /**
+     * @return - the number of message bodies pushed into local inboxes by the broker.
+     */
+    public static long getPushedDeliveries() {
+        return pushedDeliveries.get();
+    }
+
+    public static String getReceiveSummaryString() {
+        return "Receives: broker polls=" + brokerPolls.get() + ", round trips saved=" + localPolls.get() +
+                ", pushed deliveries=" + pushedDeliveries.get() + ", inboxes=" + inboxes.size();
+    }
+
+    /**
+     * Get the full queue name for a queue link. Names for links between known agents are built once and cached on the
+     * link.
+     *
+     * @param queueLink - the queue link, {@code sender-receiver}.
+     * @param purpose   - the queue's purpose.
+     * @return - the full queue name.
+     */
     public static String getFullQueueName(final String queueLink, final String purpose) {
+        final AgentLink link = AgentSymbolTable.findLink(queueLink);
+        if (link != null) return link.getFullQueueName(purpose);
+        return queueName(purpose, queueLink);
+    }
+
+    private static String queueName(final String purpose, final String queueLink) {
         return purpose + "." + queueLink;
     }
 
@@ -96,6 +410,13 @@ public enum MessagingManager implements IMessagingManager {
         return "";
     }
 
+    /**
+     * Get the channel for the given focus. Each calling thread gets its own channel from the exchange's pool, so the
+     * channel returned is safe to publish on without further synchronization.
+     *
+     * @param messagingFocus - the focus of the exchange.
+     * @return - the calling thread's channel on that exchange.
+     */
     public static Channel getChannel(IMessagingFocus messagingFocus) {
         return MessagingManager.specs.get(messagingFocus).getChannel();
     }
@@ -110,15 +431,22 @@ public enum MessagingManager implements IMessagingManager {
 
     public static void initialize() {
         LOG.info("INITIALIZING MESSAGING CENTRAL EXCHANGES ......................................");
+        if (inProcessBroker) {
+            for (Exchange spec : specs.values()) {
+                InProcessBroker.exchangeDeclare(spec.getExchangeName(), spec.getExchangeType());
+                if (debug) LOG.debug("   In-process exchange: {}", spec.toString());
+            }
+            LOG.info("\"\t SUCCESS: MessagingManager initialized in-process. Asynchronous consumers={}.", asyncConsumers);
+            return;
+        }
         try {
             for (Map.Entry<IMessagingFocus, Exchange> entry : specs.entrySet()) {
                 Exchange spec = entry.getValue();
-                ConnectionFactory factory = new ConnectionFactory();
-
-                factory.setHost(spec.getExchangeHost());
-                Connection conn = factory.newConnection();
-                spec.setConnection(conn);
-                spec.setChannel(spec.getConnection().createChannel());
+                ChannelPool pool = ChannelPool.createChannelPool(spec.getExchangeHost(), connectionsPerExchange);
+                spec.setChannelPool(pool);
+                final IMessagingFocus focus = entry.getKey();
+                pool.addRecoveryListener(() -> redeclareAfterRecovery(focus));
+                spec.setConnection(pool.getConnection());
 
                 // declare exchange - created if does not exist
                 spec.getChannel().exchangeDeclare(spec.getExchangeName(), spec.getExchangeType());
@@ -130,7 +458,29 @@ public enum MessagingManager implements IMessagingManager {
                     e.getMessage());
             System.exit(1);
         }
-        LOG.info("\"\t SUCCESS: MessagingManager initialized. ");
+        LOG.info("\"\t SUCCESS: MessagingManager initialized. Asynchronous consumers={}.", asyncConsumers);
+    }
+
+    public static boolean isInProcessBroker() {
+        return inProcessBroker;
+    }
+
+    /**
+     * Select the in-process broker instead of RabbitMQ. Must be set before {@code initialize()}. With the in-process
+     * broker, getChannel() returns null, so send and receive through publish() and receive().
+     *
+     * @param inProcessBroker - true to keep all messaging in this JVM.
+     */
+    public static void setInProcessBroker(final boolean inProcessBroker) {
+        MessagingManager.inProcessBroker = inProcessBroker;
+    }
+
+    public static int getConnectionsPerExchange() {
+        return connectionsPerExchange;
+    }
+
+    public static void setConnectionsPerExchange(final int connectionsPerExchange) {
+        MessagingManager.connectionsPerExchange = connectionsPerExchange;
     }
 
     public Map<IMessagingFocus, Exchange> getSpecs() {
@@ -11,13 +11,17 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The {@code MessagingReliabilityManager} singleton provides support for simulating the impacts of messages reliability
- * and delays on the system behavior.
+ * and delays on the system behavior. When fault injection is on, every local and remote send asks for a delay: the
+ * message is lost with probability one minus the communication reliability, otherwise it is held for the fixed
+ * communication delay plus, for the configured fraction of messages, a uniform delay between the configured minimum and
+ * maximum. Held messages wait on a shared {@code TimingWheel} rather than on a thread each.
  */
 public enum MessagingReliabilityManager {
-    // TODO: Denise : specify implementation of custom delays and reliability.
     /**
      * Singleton instance of the MessagingReliabilityManager (one per JVM).
      */
@@ -27,7 +31,23 @@ public enum MessagingReliabilityManager {
     private static final boolean debug = false;
     private static double communicationDelay_millisecs = 0.0;
     private static double communicationReliability = 1.0;
-    private static boolean isLoaded = Boolean.FALSE;
+    private static volatile boolean isLoaded = Boolean.FALSE;
+    /**
+     * The resolution of injected delays.
+     */
+    private static final long TICK_MILLIS = 10;
+    /**
+     * Ticks per turn of the wheel; delays beyond one turn (about 5 seconds) wait extra rounds.
+     */
+    private static final int WHEEL_BUCKETS = 512;
+    private static volatile boolean injectingFaults = false;
+    private static volatile int delayMin_ms = 0;
+    private static volatile int delayMax_ms = 0;
+    private static volatile double fractionDelayed = 0.0;
+    private static volatile TimingWheel wheel;
+    private static final AtomicLong delivered = new AtomicLong();
+    private static final AtomicLong delayed = new AtomicLong();
+    private static final AtomicLong lost = new AtomicLong();
 
     public static double getCommunicationDelay() {
         if (!isLoaded) load();
@@ -101,6 +121,107 @@ public enum MessagingReliabilityManager {
         return communicationReliability;
     }
 
+    public static boolean isInjectingFaults() {
+        return injectingFaults;
+    }
+
+    public static void setInjectingFaults(final boolean injectingFaults) {
+        MessagingReliabilityManager.injectingFaults = injectingFaults;
+    }
+
+    /**
+     * Set the range and share of the random delays.
+     *
+     * @param min_ms          - the shortest random delay in milliseconds.
+     * @param max_ms          - the longest random delay in milliseconds.
+     * @param fractionDelayed - the fraction of messages, from 0 to 1, given a random delay.
+     */
+    public static void setDelays(final int min_ms, final int max_ms, final double fractionDelayed) {
+        MessagingReliabilityManager.delayMin_ms = Math.max(0, Math.min(min_ms, max_ms));
+        MessagingReliabilityManager.delayMax_ms = Math.max(0, Math.max(min_ms, max_ms));
+        MessagingReliabilityManager.fractionDelayed = Math.max(0.0, Math.min(1.0, fractionDelayed));
+    }
+
+    /**
+     * Draw the fate of one message. Counts it as delivered, delayed, or lost.
+     *
+     * @return - -1 if the message is lost, 0 if it is delivered now, or the delay in milliseconds.
+     */
+    public static long nextDelayMillis() {
+        if (!injectingFaults) return 0;
+        if (!isLoaded) loadOrUseDefaults();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (communicationReliability < 1.0 && random.nextDouble() >= communicationReliability) {
+            lost.incrementAndGet();
+            return -1;
+        }
+        long delay = (long) communicationDelay_millisecs;
+        if (fractionDelayed > 0.0 && random.nextDouble() < fractionDelayed) {
+            delay += delayMin_ms + random.nextInt(delayMax_ms - delayMin_ms + 1);
+        }
+        (delay > 0 ? delayed : delivered).incrementAndGet();
+        return delay;
+    }
+
+    /**
+     * Deliver a message through the fault injection stage: the send is dropped, run now, or run later on the timing
+     * wheel thread.
+     *
+     * @param send - the action that delivers the message.
+     * @return - false if the message was lost.
+     */
+    public static boolean dispatch(final Runnable send) {
+        final long delay = nextDelayMillis();
+        if (delay < 0) return false;
+        if (delay == 0) {
+            send.run();
+        } else {
+            schedule(send, delay);
+        }
+        return true;
+    }
+
+    /**
+     * Run the send after the delay on the shared timing wheel.
+     *
+     * @param send        - the action that delivers the message.
+     * @param delayMillis - the delay in milliseconds.
+     */
+    public static void schedule(final Runnable send, final long delayMillis) {
+        TimingWheel w = wheel;
+        if (w == null) {
+            synchronized (MessagingReliabilityManager.class) {
+                if (wheel == null) wheel = TimingWheel.createTimingWheel("message-delay", TICK_MILLIS, WHEEL_BUCKETS);
+                w = wheel;
+            }
+        }
+        w.schedule(send, delayMillis);
+    }
+
+    /**
+     * @return - the number of delayed messages not yet delivered.
+     */
+    public static int getInFlightCount() {
+        final TimingWheel w = wheel;
+        return (w == null) ? 0 : w.getPendingCount();
+    }
+
+    public static String getSummaryString() {
+        return "Message faults: delivered=" + delivered.get() + ", delayed=" + delayed.get() + ", lost=" + lost.get() +
+                ", inFlight=" + getInFlightCount();
+    }
+
+    private static synchronized void loadOrUseDefaults() {
+        if (isLoaded) return;
+        try {
+            load();
+        } catch (ConfigurationException e) {
+            LOG.warn("Messaging reliability could not be read; using reliability {} and delay {}. {}",
+                    communicationReliability, communicationDelay_millisecs, e.getMessage());
+            isLoaded = true;
+        }
+    }
+
     static class ConfigurationException extends RuntimeException {
         private static final long serialVersionUID = 1L;
 
@@ -0,0 +1,218 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hashed timing wheel that runs tasks after a delay. The wheel is a ring of buckets, one per tick; a task is hashed
+ * to the bucket of its deadline tick and carries the number of full turns of the wheel still to wait, so scheduling
+ * and expiry are both constant time no matter how many tasks are in flight. One daemon thread advances the wheel and
+ * runs the expired tasks, so tasks should be short (a publish or an inbox add).
+ * <p>
+ * Any thread may schedule. New tasks go onto a lock-free queue and are moved into their buckets by the wheel thread on
+ * its next tick, so the buckets themselves are only touched by that thread. Deadlines are rounded up to the tick.
+ */
+public class TimingWheel {
+    private static final Logger LOG = LoggerFactory.getLogger(TimingWheel.class);
+    private static final boolean debug = false;
+    /**
+     * The most new tasks moved into buckets per tick, so a flood of schedules cannot stall expiry.
+     */
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+    private final String name;
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean running = true;
+    private final long startNanos = System.nanoTime();
+    private volatile Thread worker;
+    /**
+     * The next tick to expire; only read and written by the wheel thread.
+     */
+    private long tick = 0;
+
+    private TimingWheel(final String name, final long tickMillis, final int bucketCount) {
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = 1;
+        while (size < bucketCount) size <<= 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) buckets[i] = new Bucket();
+        this.mask = size - 1;
+    }
+
+    /**
+     * Create a timing wheel. Its thread starts with the first schedule.
+     *
+     * @param name        - the name of the wheel thread.
+     * @param tickMillis  - the length of one tick, which is the resolution of the delays.
+     * @param bucketCount - the number of buckets, rounded up to a power of two; one turn of the wheel is this many ticks.
+     * @return - the TimingWheel created
+     */
+    public static TimingWheel createTimingWheel(final String name, final long tickMillis, final int bucketCount) {
+        return new TimingWheel(name, tickMillis, bucketCount);
+    }
+
+    /**
+     * Run the task once the delay has passed.
+     *
+     * @param task        - the task to run on the wheel thread.
+     * @param delayMillis - the delay in milliseconds.
+     */
+    public void schedule(final Runnable task, final long delayMillis) {
+        if (!running) throw new IllegalStateException("Timing wheel " + name + " has been stopped.");
+        start();
+        final long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        pending.incrementAndGet();
+        scheduled.add(new Timeout(task, deadline));
+    }
+
+    private void start() {
+        if (started.compareAndSet(false, true)) {
+            worker = new Thread(this::run, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            final long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) break;
+                }
+                continue;
+            }
+            transferScheduled();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferScheduled() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            final Timeout timeout = scheduled.poll();
+            if (timeout == null) return;
+            final long due = Math.max(tick, (timeout.deadline + tickNanos - 1) / tickNanos);
+            timeout.rounds = (due - tick) / buckets.length;
+            buckets[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    private void expire(final Bucket bucket) {
+        Timeout previous = null;
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                previous = timeout;
+            } else {
+                bucket.remove(previous, timeout);
+                pending.decrementAndGet();
+                expired.incrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    LOG.error("Error running delayed task on {}. {}", name, e.getMessage());
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Stop the wheel thread. Tasks not yet run are abandoned.
+     *
+     * @return - the number of tasks abandoned.
+     */
+    public int stop() {
+        running = false;
+        if (worker != null) worker.interrupt();
+        if (debug) LOG.debug("Stopped {} with {} tasks pending.", name, pending.get());
+        return pending.get();
+    }
+
+    /**
+     * @return - the number of tasks scheduled but not yet run.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    public String getSummaryString() {
+        return name + ": pending=" + pending.get() + ", run=" + expired.get() + ", failed=" + failed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "TimingWheel{" +
+                "name='" + name + '\'' +
+                ", tickMillis=" + TimeUnit.NANOSECONDS.toMillis(tickNanos) +
+                ", buckets=" + buckets.length +
+                ", pending=" + pending.get() +
+                '}';
+    }
+
+    private static class Timeout {
+        private final Runnable task;
+        /**
+         * Nanoseconds after the wheel started.
+         */
+        private final long deadline;
+        private long rounds;
+        private Timeout next;
+
+        Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * A singly linked list of timeouts; appended at the tail and unlinked while the bucket is walked.
+     */
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(final Timeout previous, final Timeout timeout) {
+            if (previous == null) {
+                head = timeout.next;
+            } else {
+                previous.next = timeout.next;
+            }
+            if (tail == timeout) tail = previous;
+            timeout.next = null;
+        }
+    }
+}
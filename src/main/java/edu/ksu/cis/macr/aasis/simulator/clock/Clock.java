@@ -3,8 +3,12 @@ package edu.ksu.cis.macr.aasis.simulator.clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.TimeZone;
 
 /**
  * The {@code Clock} singleton provides information about the date and time of the simulated world, based on current time
@@ -126,6 +130,55 @@ public enum Clock {
         if (debug) LOG.debug("Time slice updated to {}.", Clock.getTimeSlicesElapsedSinceStart());
     }
 
+    /**
+     * Write the clock settings and the current time slice to a checkpoint.
+     *
+     * @param out - the checkpoint section for the clock.
+     * @throws IOException - if the state cannot be written.
+     */
+    public static void writeState(final DataOutput out) throws IOException {
+        writeCalendar(out, simulationStartTime);
+        writeCalendar(out, simulationTime);
+        out.writeInt(timeSlicesElapsedSinceStart);
+        out.writeInt(maxTimeSlices);
+        out.writeInt(lengthOfTimesliceInMilliseconds);
+    }
+
+    /**
+     * Restore the clock from a checkpoint written by {@code writeState}.
+     *
+     * @param in - the checkpoint section for the clock.
+     * @throws IOException - if the state cannot be read.
+     */
+    public static void readState(final DataInput in) throws IOException {
+        final GregorianCalendar start = readCalendar(in);
+        final GregorianCalendar time = readCalendar(in);
+        final int timeSlices = in.readInt();
+        final int max = in.readInt();
+        final int length = in.readInt();
+        if (start != null) setSimulationStartTime(start);
+        if (time != null) setSimulationTime(time);
+        setTimeSlicesElapsedSinceStart(timeSlices);
+        setMaxTimeSlices(max);
+        setLengthOfTimesliceInMilliseconds(length);
+        if (debug) LOG.debug("Restored clock at time slice {}.", timeSlices);
+    }
+
+    private static void writeCalendar(final DataOutput out, final GregorianCalendar calendar) throws IOException {
+        out.writeBoolean(calendar != null);
+        if (calendar == null) return;
+        out.writeLong(calendar.getTimeInMillis());
+        out.writeUTF(calendar.getTimeZone().getID());
+    }
+
+    private static GregorianCalendar readCalendar(final DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        final long millis = in.readLong();
+        final GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone(in.readUTF()));
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
     @Override
     public String toString() {
         return String.format("Clock{INSTANCE=%s, simulationStartTime=%s, simulationTime=%s, " +
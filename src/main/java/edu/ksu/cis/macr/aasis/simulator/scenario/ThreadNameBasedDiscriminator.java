@@ -2,9 +2,14 @@ package edu.ksu.cis.macr.aasis.simulator.scenario;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.sift.Discriminator;
+import edu.ksu.cis.macr.aasis.agent.persona.IPersonaExecutor;
+
+import java.util.Map;
 
 /**
  * A class to assist with thread-based logging. See: http://java.dzone.com/articles/siftingappender-logging.
+ * Events logged while a persona runs are keyed by the persona named in the {@code MDC}, so a persona run as a pool
+ * task or on a virtual thread still logs to its own file; other events are keyed by thread name.
  */
 public class ThreadNameBasedDiscriminator implements Discriminator<ILoggingEvent> {
     private static final String KEY = "threadName";
@@ -17,7 +22,9 @@ public class ThreadNameBasedDiscriminator implements Discriminator<ILoggingEvent
 
     @Override
     public String getDiscriminatingValue(ILoggingEvent iLoggingEvent) {
-        return Thread.currentThread().getName();
+        final Map<String, String> mdc = iLoggingEvent.getMDCPropertyMap();
+        final String persona = (mdc == null) ? null : mdc.get(IPersonaExecutor.PERSONA_KEY);
+        return (persona != null) ? persona : Thread.currentThread().getName();
     }
 
     @Override
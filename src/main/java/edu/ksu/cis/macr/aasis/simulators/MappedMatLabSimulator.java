@@ -0,0 +1,164 @@
+package edu.ksu.cis.macr.aasis.simulators;
+
+import edu.ksu.cis.macr.aasis.simulator.clock.Clock;
+import edu.ksu.cis.macr.obaa_pp.actuator.ISetting;
+import edu.ksu.cis.macr.obaa_pp.sensor.IRead;
+import edu.ksu.cis.macr.obaa_pp.sensor.Read;
+import edu.ksu.cis.macr.obaa_pp.sensor.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * The {@code MappedMatLabSimulator} implements the {@code ISimulator} interface with the same offline MatLab data as
+ * the {@code OfflineMatLabSimulator}, read from a {@code MappedSensorData} file instead of a heap array. The first run
+ * against a {@code .mat} file converts it to a {@code .sdat} file beside it; later runs open that file directly, and
+ * time slices are read from disk as they are asked for.
+ */
+public class MappedMatLabSimulator implements ISimulator {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedMatLabSimulator.class);
+    private static MappedSensorData data;
+    private static String fullDataPathAndFile;
+    private static String testCaseName;
+    private boolean debug = false;
+
+
+    public MappedMatLabSimulator() {
+    }
+
+    /**
+     * @return the mapped sensor data, or null if not initialized.
+     */
+    public static MappedSensorData getData() {
+        return MappedMatLabSimulator.data;
+    }
+
+    public static String getFullDataPathAndFile() {
+        return fullDataPathAndFile;
+    }
+
+    public static String getTestCaseName() {
+        return testCaseName;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedMatLabSimulator{" +
+                "data=" + data +
+                ", debug=" + debug +
+                '}';
+    }
+
+    @Override
+    public ArrayList<IRead<?>> getAllReadsAt(long timeSlice) {
+        LOG.info("Getting all sensor readings from mapped data adapter for time slice {}.", timeSlice);
+        ArrayList<IRead<?>> allReads = new ArrayList<IRead<?>>();
+        if (debug && timeSlice < data.getNumTimeSlices()) {
+            final double[] values = new double[data.getNumDataValues()];
+            for (int r = 0; r < data.getNumRows(); r++) {
+                data.getRow(r, (int) timeSlice, values);
+                for (int j = 0; j < values.length; j++) {
+                    LOG.debug("  data[{}][{}] : {}", r, j, values[j]);
+                }
+            }
+        }
+        return allReads;
+    }
+
+    /**
+     * Get the discrete reading for current time slice for given smart meter (maintained by the {@code Clock}).
+     *
+     * @param deviceName - the string name of the smart meter
+     * @return {@code IRead} with the reading
+     */
+    @Override
+    public IRead<?> getRead(String deviceName) {
+        return getReadAt(deviceName, Clock.getTimeSlicesElapsedSinceStart());
+    }
+
+    @Override
+    public IRead<?> getReadAt(String deviceName, long timeSlice) {
+        if (timeSlice < 0) {
+            return null;
+        }
+        if (deviceName.isEmpty()) {
+            return null;
+        }
+        LOG.debug("GetDiscreteReading for {} at time slice {}", deviceName, timeSlice);
+
+        int rowID = RowTranslator.getRowID(deviceName);
+        if (rowID == -1) {
+            LOG.error("Cannot find smart meter {}, please check configurations.", deviceName);
+            System.exit(-1);
+        }
+        if (timeSlice >= data.getNumTimeSlices()) {
+            LOG.error("Time slice {} is past the {} time slices in {}.", timeSlice, data.getNumTimeSlices(),
+                    data.getFile());
+            return null;
+        }
+
+        LOG.debug("GetDiscreteReading {} is at rowID {}", deviceName, rowID);
+        if (debug) {
+            final double[] values = data.getRow(rowID, (int) timeSlice, new double[data.getNumDataValues()]);
+            for (int j = 0; j < values.length; j++) {
+                LOG.debug("  data[{}][{}] : {}", rowID, j, values[j]);
+            }
+        }
+        IRead<SensorType> reading = new Read<>();
+        reading.setSensorReadObject(reading);
+        return reading;
+    }
+
+    /**
+     * Open the mapped data for a {@code .sdat} file, or for a {@code .mat} file, converting it first if it has not
+     * been converted since it last changed.
+     *
+     * @param testCaseName        - the test case name.
+     * @param fullDataPathAndFile - the {@code .mat} or {@code .sdat} file.
+     */
+    @Override
+    public void initialize(String testCaseName, String fullDataPathAndFile) {
+        LOG.info("\tUsing mapped MatLab data adapter: {} for {}", fullDataPathAndFile, testCaseName);
+        MappedMatLabSimulator.fullDataPathAndFile = fullDataPathAndFile;
+        MappedMatLabSimulator.testCaseName = testCaseName;
+        try {
+            File file = new File(fullDataPathAndFile);
+            if (!file.getName().endsWith(MappedSensorData.EXTENSION)) {
+                if (!MappedSensorData.isConverted(file)) {
+                    MappedSensorData.convert(file, MappedSensorData.getDataFileFor(file),
+                            ColumnTranslator.getNumDataValues());
+                }
+                file = MappedSensorData.getDataFileFor(file);
+            }
+            LOG.info("\tFile: {}", file.toString());
+            if (data != null) data.close();
+            data = MappedSensorData.createMappedSensorData(file);
+        } catch (IOException ex) {
+            LOG.error("IOException Error intializing mapped smartmeter adapter. {}", ex.getMessage());
+            System.exit(-1);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return data != null;
+    }
+
+    /**
+     * The mapped data is read-only; like the offline adapter, this adapter does not react to control actions.
+     */
+    @Override
+    public boolean issueControlAction(final String deviceName, final long timeSlice,
+                                      final ISetting<?> setting) {
+        if (debug) LOG.debug("Not implemented in the mapped MatLab adapter.");
+        return false;
+    }
+}
@@ -0,0 +1,298 @@
+package edu.ksu.cis.macr.aasis.simulators;
+
+import com.jmatio.io.MatFileFilter;
+import com.jmatio.io.MatFileReader;
+import com.jmatio.types.MLDouble;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@code MappedSensorData} is the offline sensor data converted once from the MatLab {@code OUTPUT} variable to a
+ * columnar file that is read through memory-mapped buffers. The MatLab variable has one row per smart meter and a block
+ * of {@code ColumnTranslator.getNumDataValues()} columns per time slice. The file keeps the same rows and columns but
+ * stores each time slice's block together, so reading every meter at one time slice touches one contiguous region. Pages
+ * are read from disk only when a time slice is asked for, so heap use and startup time do not depend on how many time
+ * slices the data set holds.
+ */
+public final class MappedSensorData implements Closeable {
+    /**
+     * The extension of a converted data file, written next to the {@code .mat} file it came from.
+     */
+    public static final String EXTENSION = ".sdat";
+    private static final Logger LOG = LoggerFactory.getLogger(MappedSensorData.class);
+    private static final boolean debug = false;
+    private static final int MAGIC = 0x41534444; // "ASDD"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final String VARIABLE = "OUTPUT";
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final int numRows;
+    private final int numDataValues;
+    private final int numTimeSlices;
+    private final int blockBytes;
+    private final int timeSlicesPerSegment;
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+
+    private MappedSensorData(final File file) throws IOException {
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "r");
+        this.channel = randomAccessFile.getChannel();
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            close();
+            throw new IOException("Not a mapped sensor data file: " + file);
+        }
+        this.numRows = header.getInt();
+        this.numDataValues = header.getInt();
+        this.numTimeSlices = header.getInt();
+        this.blockBytes = numRows * numDataValues * Double.BYTES;
+        if (channel.size() < HEADER_BYTES + (long) numTimeSlices * blockBytes) {
+            close();
+            throw new IOException("Mapped sensor data file is shorter than its header says: " + file);
+        }
+        this.timeSlicesPerSegment = Math.max(1, Integer.MAX_VALUE / Math.max(1, blockBytes));
+        this.segments = new AtomicReferenceArray<>(
+                Math.max(1, (numTimeSlices + timeSlicesPerSegment - 1) / timeSlicesPerSegment));
+    }
+
+    /**
+     * Open a converted data file. Nothing but the header is read until a time slice is asked for.
+     *
+     * @param file - the converted file.
+     * @return - the data.
+     * @throws IOException - if the file cannot be opened or is not a converted data file.
+     */
+    public static MappedSensorData createMappedSensorData(final File file) throws IOException {
+        final MappedSensorData data = new MappedSensorData(file);
+        LOG.info("Mapped sensor data {}: {} rows, {} values, {} time slices.", file, data.numRows, data.numDataValues,
+                data.numTimeSlices);
+        return data;
+    }
+
+    /**
+     * Convert the {@code OUTPUT} variable of a MatLab file to a mapped data file. Only that variable is read from the
+     * MatLab file, and the data file is written one time slice at a time.
+     *
+     * @param matFile       - the MatLab file.
+     * @param dataFile      - the data file to write. An existing file is replaced.
+     * @param numDataValues - the number of columns per time slice.
+     * @throws IOException - if the MatLab file cannot be read or the data file cannot be written.
+     */
+    public static void convert(final File matFile, final File dataFile, final int numDataValues) throws IOException {
+        if (numDataValues < 1) {
+            throw new IOException("The number of data values per time slice must be at least one: " + numDataValues);
+        }
+        final long start = System.currentTimeMillis();
+        final MatFileReader matFileReader = new MatFileReader(matFile, new MatFileFilter(new String[]{VARIABLE}));
+        final MLDouble mlDouble = (MLDouble) matFileReader.getMLArray(VARIABLE);
+        if (mlDouble == null) {
+            throw new IOException("No " + VARIABLE + " variable in " + matFile);
+        }
+        final int rows = mlDouble.getM();
+        final int columns = mlDouble.getN();
+        final int timeSlices = columns / numDataValues;
+        if (columns % numDataValues != 0) {
+            LOG.warn("{} has {} columns, not a multiple of {}. The last {} columns are ignored.", matFile, columns,
+                    numDataValues, columns % numDataValues);
+        }
+        final File partFile = new File(dataFile.getPath() + ".part");
+        try (RandomAccessFile out = new RandomAccessFile(partFile, "rw"); FileChannel outChannel = out.getChannel()) {
+            out.setLength(0);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(numDataValues).putInt(timeSlices);
+            header.position(HEADER_BYTES).flip();
+            writeFully(outChannel, header);
+            final ByteBuffer block = ByteBuffer.allocateDirect(rows * numDataValues * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (int t = 0; t < timeSlices; t++) {
+                block.clear();
+                final int firstColumn = t * numDataValues;
+                for (int r = 0; r < rows; r++) {
+                    for (int v = 0; v < numDataValues; v++) {
+                        block.putDouble(mlDouble.getReal(r, firstColumn + v));
+                    }
+                }
+                block.flip();
+                writeFully(outChannel, block);
+            }
+            outChannel.force(false);
+        }
+        if (dataFile.exists() && !dataFile.delete()) {
+            throw new IOException("Could not replace " + dataFile);
+        }
+        if (!partFile.renameTo(dataFile)) {
+            throw new IOException("Could not rename " + partFile + " to " + dataFile);
+        }
+        LOG.info("Converted {} ({} rows, {} time slices) to {} in {} ms.", matFile, rows, timeSlices, dataFile,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @param matFile - a MatLab data file.
+     * @return - the converted data file kept next to it.
+     */
+    public static File getDataFileFor(final File matFile) {
+        final String name = matFile.getName();
+        final int dot = name.lastIndexOf('.');
+        return new File(matFile.getParentFile(), ((dot > 0) ? name.substring(0, dot) : name) + EXTENSION);
+    }
+
+    /**
+     * @param matFile - a MatLab data file.
+     * @return - true if the converted data file next to it exists and is newer than the MatLab file.
+     */
+    public static boolean isConverted(final File matFile) {
+        final File dataFile = getDataFileFor(matFile);
+        return dataFile.isFile() && dataFile.lastModified() >= matFile.lastModified();
+    }
+
+    /**
+     * Get a value, indexed as in the MatLab {@code OUTPUT} variable.
+     *
+     * @param row    - the smart meter's row.
+     * @param column - the column, {@code timeSlice * getNumDataValues() + value}.
+     * @return - the value.
+     */
+    public double get(final int row, final int column) {
+        return get(row, column / numDataValues, column % numDataValues);
+    }
+
+    /**
+     * @param row       - the smart meter's row.
+     * @param timeSlice - the time slice.
+     * @param value     - the data value's column within the time slice.
+     * @return - the value.
+     */
+    public double get(final int row, final int timeSlice, final int value) {
+        checkIndex(row, timeSlice);
+        if (value < 0 || value >= numDataValues) {
+            throw new IndexOutOfBoundsException("value " + value + " of " + numDataValues);
+        }
+        return segment(timeSlice).getDouble(offset(row, timeSlice) + value * Double.BYTES);
+    }
+
+    /**
+     * Copy a smart meter's values for one time slice.
+     *
+     * @param row       - the smart meter's row.
+     * @param timeSlice - the time slice.
+     * @param values    - an array of at least {@code getNumDataValues()} to fill.
+     * @return - the array.
+     */
+    public double[] getRow(final int row, final int timeSlice, final double[] values) {
+        checkIndex(row, timeSlice);
+        final MappedByteBuffer segment = segment(timeSlice);
+        final int offset = offset(row, timeSlice);
+        for (int v = 0; v < numDataValues; v++) {
+            values[v] = segment.getDouble(offset + v * Double.BYTES);
+        }
+        return values;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumDataValues() {
+        return numDataValues;
+    }
+
+    public int getNumTimeSlices() {
+        return numTimeSlices;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedSensorData{" +
+                "file=" + file +
+                ", numRows=" + numRows +
+                ", numDataValues=" + numDataValues +
+                ", numTimeSlices=" + numTimeSlices +
+                '}';
+    }
+
+    private void checkIndex(final int row, final int timeSlice) {
+        if (row < 0 || row >= numRows) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + numRows);
+        }
+        if (timeSlice < 0 || timeSlice >= numTimeSlices) {
+            throw new IndexOutOfBoundsException("time slice " + timeSlice + " of " + numTimeSlices);
+        }
+    }
+
+    /**
+     * @return - the offset of the row's first value at the time slice within the time slice's segment.
+     */
+    private int offset(final int row, final int timeSlice) {
+        return (timeSlice % timeSlicesPerSegment) * blockBytes + row * numDataValues * Double.BYTES;
+    }
+
+    /**
+     * Get the segment holding a time slice, mapping it the first time. Each segment holds as many whole time slices as
+     * fit in one buffer.
+     */
+    private MappedByteBuffer segment(final int timeSlice) {
+        final int index = timeSlice / timeSlicesPerSegment;
+        MappedByteBuffer segment = segments.get(index);
+        if (segment != null) return segment;
+        try {
+            final int first = index * timeSlicesPerSegment;
+            final int count = Math.min(timeSlicesPerSegment, numTimeSlices - first);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + (long) first * blockBytes,
+                    (long) count * blockBytes);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map time slices of " + file, e);
+        }
+        if (debug) LOG.debug("Mapped segment {} of {}.", index, file);
+        return segments.compareAndSet(index, null, segment) ? segment : segments.get(index);
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Convert a MatLab data file from the command line.
+     *
+     * @param args - the MatLab file, then optionally the data file and the number of data values per time slice.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            LOG.info("usage: MappedSensorData matFile [dataFile] [numDataValues]");
+            return;
+        }
+        final File matFile = new File(args[0]);
+        final File dataFile = (args.length > 1) ? new File(args[1]) : getDataFileFor(matFile);
+        final int numDataValues = (args.length > 2) ? Integer.parseInt(args[2]) : ColumnTranslator.getNumDataValues();
+        convert(matFile, dataFile, numDataValues);
+        try (MappedSensorData data = createMappedSensorData(dataFile)) {
+            LOG.info("{}", data);
+        }
+    }
+}
@@ -50,6 +50,7 @@ public enum PhysicalSystemSimulator {
     private static ISimulator adapter = null;
     private static SimulatorView sensorFrame;
     private static long timeSlice;
+    private static boolean useMappedSensorData = false;
 
 
     /**
@@ -141,6 +142,14 @@ public enum PhysicalSystemSimulator {
         printDashedLine();
     }
 
+    /**
+     * @param useMappedSensorData - true to read offline data from a memory-mapped {@code MappedSensorData} file
+     *                            rather than loading it into the heap.
+     */
+    public static void setUseMappedSensorData(final boolean useMappedSensorData) {
+        PhysicalSystemSimulator.useMappedSensorData = useMappedSensorData;
+    }
+
     public static void initialize() {
         LOG.info("INITIALIZING PHYSICAL SYSTEM SIMULATOR ......................................");
         if (RunManager.getUseLiveMatLab() && adapter == null) {
@@ -151,7 +160,7 @@ public enum PhysicalSystemSimulator {
             }
         } else {
             try {
-                adapter = new OfflineMatLabSimulator();
+                adapter = useMappedSensorData ? new MappedMatLabSimulator() : new OfflineMatLabSimulator();
                 adapter.initialize(RunManager.getTestCaseName(), RunManager.getAbsolutePathToSensorDataFile());
             } catch (Exception e) {
                 LOG.error("ERROR: IO exception trying to get new OfflineMatLabSmartMeterSimulator.");
@@ -0,0 +1,153 @@
+package edu.ksu.cis.macr.aasis.agent.cc_message.codec;
+
+import edu.ksu.cis.macr.aasis.agent.cc_message.BaseMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.connect.ConnectMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.connect.ConnectMessageContent;
+import edu.ksu.cis.macr.aasis.agent.cc_message.connect.ConnectPerformative;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.CustomMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.CustomMessageContent;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.EquipmentStatus;
+import edu.ksu.cis.macr.aasis.agent.cc_message.custom.Performative;
+import edu.ksu.cis.macr.aasis.agent.cc_message.participate.ParticipateMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_message.participate.ParticipatePerformative;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round-trips sample messages through each codec and checks decoding recognizes the format, whatever the default codec.
+ */
+public class MessageCodecsTest {
+    private static final IMessageCodec[] CODECS = {BinaryMessageCodec.INSTANCE, JavaSerializationCodec.INSTANCE};
+
+    @After
+    public void restoreDefault() {
+        MessageCodecs.setDefaultCodec(JavaSerializationCodec.INSTANCE);
+    }
+
+    @Test
+    public void eachCodecRoundTripsEverySample() throws Exception {
+        for (IMessageCodec codec : CODECS) {
+            for (Object sample : samples()) {
+                final Object decoded = MessageCodecs.decode(codec.encode(sample));
+                assertNull(codec.getClass().getSimpleName() + " " + sample.getClass().getSimpleName(),
+                        difference("", sample, decoded));
+            }
+        }
+    }
+
+    @Test
+    public void binaryEncodingIsSmallerThanJavaSerialization() throws Exception {
+        for (Object sample : samples()) {
+            final int binary = BinaryMessageCodec.INSTANCE.encode(sample).length;
+            final int java = JavaSerializationCodec.INSTANCE.encode(sample).length;
+            assertTrue(sample.getClass().getSimpleName() + ": " + binary + " >= " + java, binary < java);
+        }
+    }
+
+    @Test
+    public void decodingDoesNotDependOnTheDefaultCodec() throws Exception {
+        final Object sample = samples()[0];
+        final byte[] java = JavaSerializationCodec.INSTANCE.encode(sample);
+        final byte[] binary = BinaryMessageCodec.INSTANCE.encode(sample);
+        for (IMessageCodec codec : CODECS) {
+            MessageCodecs.setDefaultCodec(codec);
+            assertNull(difference("", sample, MessageCodecs.decode(java)));
+            assertNull(difference("", sample, MessageCodecs.decode(binary)));
+        }
+    }
+
+    @Test
+    public void encodingFallsBackToJavaSerialization() throws Exception {
+        assertTrue(MessageCodecs.setDefaultCodec("binary"));
+        final ArrayList<String> unknown = new ArrayList<>(Arrays.asList("not", "a", "message"));
+        assertFalse(BinaryMessageCodec.INSTANCE.canEncode(unknown));
+        final byte[] bytes = MessageCodecs.encode(unknown);
+        assertTrue(JavaSerializationCodec.INSTANCE.isEncodedBy(bytes));
+        assertEquals(unknown, MessageCodecs.decode(bytes));
+    }
+
+    @Test
+    public void unknownCodecNamesAreRejected() {
+        assertFalse(MessageCodecs.setDefaultCodec("xml"));
+        assertEquals(JavaSerializationCodec.INSTANCE, MessageCodecs.getDefaultCodec());
+    }
+
+    private static Object[] samples() {
+        return new Object[]{
+                ConnectMessage.createRemoteConnectMessage("H44", "N43", ConnectPerformative.SENDING_HELLO,
+                        ConnectMessageContent.createConnectMessageContent("H44", "N43", "N43inN43", "N43", "hello")),
+                ParticipateMessage.createRemoteParticipateMessage("N43", "H44", ParticipatePerformative.ASSIGNMENT,
+                        "assignment"),
+                new CustomMessage("H44", "H45", Performative.GOOD, new CustomMessageContent("sample", -7,
+                        EquipmentStatus.OPERATING))
+        };
+    }
+
+    /**
+     * Compare a message or message content with its decoded copy field by field.
+     *
+     * @param path     - where in the message the objects are, for the report.
+     * @param expected - the original.
+     * @param actual   - the decoded copy.
+     * @return - the first field that differs, or null if every field matches.
+     */
+    private static String difference(final String path, final Object expected, final Object actual) {
+        if (expected == null || actual == null) {
+            return (expected == actual) ? null : path + ": " + expected + " != " + actual;
+        }
+        if (expected.getClass() != actual.getClass()) {
+            return path + ": " + expected.getClass().getSimpleName() + " != " + actual.getClass().getSimpleName();
+        }
+        if (expected instanceof BaseMessage) {
+            final BaseMessage<?> e = (BaseMessage<?>) expected;
+            final BaseMessage<?> a = (BaseMessage<?>) actual;
+            return firstOf(
+                    field(path + "performativeType", e.getPerformativeType(), a.getPerformativeType()),
+                    field(path + "remoteSender", e.getRemoteSender(), a.getRemoteSender()),
+                    field(path + "remoteReceiver", e.getRemoteReceiver(), a.getRemoteReceiver()),
+                    field(path + "localSender", e.getLocalSender(), a.getLocalSender()),
+                    field(path + "localReceiver", e.getLocalReceiver(), a.getLocalReceiver()),
+                    difference(path + "content.", e.getContent(), a.getContent()));
+        }
+        if (expected instanceof ConnectMessageContent) {
+            final ConnectMessageContent e = (ConnectMessageContent) expected;
+            final ConnectMessageContent a = (ConnectMessageContent) actual;
+            return firstOf(
+                    field(path + "senderAgentAbbrev", e.getSenderAgentAbbrev(), a.getSenderAgentAbbrev()),
+                    field(path + "receiverAgentAbbrev", e.getReceiverAgentAbbrev(), a.getReceiverAgentAbbrev()),
+                    field(path + "organizationAbbrev", e.getOrganizationAbbrev(), a.getOrganizationAbbrev()),
+                    field(path + "expectedMasterAbbrev", e.getExpectedMasterAbbrev(), a.getExpectedMasterAbbrev()),
+                    field(path + "message", e.getMessage(), a.getMessage()),
+                    field(path + "delay", e.getDelay(), a.getDelay()));
+        }
+        if (expected instanceof CustomMessageContent) {
+            final CustomMessageContent e = (CustomMessageContent) expected;
+            final CustomMessageContent a = (CustomMessageContent) actual;
+            return firstOf(
+                    field(path + "sampleText", e.getSampleText(), a.getSampleText()),
+                    field(path + "sampleValue", e.getSampleValue(), a.getSampleValue()),
+                    field(path + "equipmentStatus", e.getEquipmentStatus(), a.getEquipmentStatus()));
+        }
+        return field(path.isEmpty() ? "value" : path, expected, actual);
+    }
+
+    private static String field(final String name, final Object expected, final Object actual) {
+        return Objects.equals(expected, actual) ? null : name + ": " + expected + " != " + actual;
+    }
+
+    private static String firstOf(final String... differences) {
+        for (String difference : differences) {
+            if (difference != null) return difference;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+package edu.ksu.cis.macr.aasis.agent.cc_p;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a {@code ConnectivityTracker} counts the connections of a hierarchy as pairs taken from the registered
+ * guidelines, and reports the system connected only when every agent has registered and connected.
+ */
+public class ConnectivityTrackerTest {
+    private static final int AGENTS = 7;
+    private static final int FANOUT = 2;
+    private ConnectivityTracker tracker;
+    private final List<Double> thresholds = new ArrayList<>();
+    private int systemConnected = 0;
+
+    @Before
+    public void createTracker() {
+        tracker = ConnectivityTracker.createConnectivityTracker();
+        tracker.addThreshold(0.5);
+        tracker.addConnectivityListener(new IConnectivityListener() {
+            @Override
+            public void thresholdCrossed(final double fraction, final int established, final int expected) {
+                thresholds.add(fraction);
+            }
+
+            @Override
+            public void systemConnected() {
+                systemConnected++;
+            }
+        });
+        tracker.setExpectedAgents(AGENTS);
+    }
+
+    @Test
+    public void bothSidesOfAConnectionCountAsOnePair() {
+        registerTree();
+        assertEquals(AGENTS - 1, tracker.getExpectedCount());
+        assertEquals(AGENTS - 1, tracker.getOutstandingTotal());
+    }
+
+    @Test
+    public void systemIsConnectedWhenTheLastPairIsEstablished() {
+        registerTree();
+        for (int i = 1; i < AGENTS; i++) {
+            assertFalse(tracker.isSystemConnected());
+            tracker.connectionEstablished(name(i), name(parentOf(i)));
+        }
+        assertTrue(tracker.isSystemConnected());
+        assertEquals(1, systemConnected);
+        assertEquals(1, tracker.getComponentCount());
+        assertEquals(Arrays.asList(0.5, 1.0), thresholds);
+    }
+
+    @Test
+    public void systemIsNotConnectedUntilEveryAgentHasRegistered() {
+        for (int i = 0; i < AGENTS - 1; i++) register(i);
+        for (int i = 1; i < AGENTS; i++) tracker.connectionEstablished(name(i), name(parentOf(i)));
+        assertFalse(tracker.isSystemConnected());
+        register(AGENTS - 1);
+        assertTrue(tracker.isSystemConnected());
+    }
+
+    @Test
+    public void clearingConnectionsMakesThemOutstandingAgain() {
+        registerTree();
+        for (int i = 1; i < AGENTS; i++) tracker.connectionEstablished(name(i), name(parentOf(i)));
+        tracker.connectionsCleared();
+        assertFalse(tracker.isSystemConnected());
+        assertEquals(AGENTS - 1, tracker.getOutstandingTotal());
+        assertEquals(FANOUT, tracker.getOutstandingConnections(name(0)));
+    }
+
+    private void registerTree() {
+        for (int i = 0; i < AGENTS; i++) register(i);
+    }
+
+    /**
+     * Registers an agent's guidelines: its parent, then its children, as a capability loads them.
+     */
+    private void register(final int agent) {
+        if (agent > 0) tracker.expectConnections(name(agent), Collections.singletonList(name(parentOf(agent))));
+        final List<String> children = new ArrayList<>();
+        for (int child = agent * FANOUT + 1; child <= agent * FANOUT + FANOUT && child < AGENTS; child++) {
+            children.add(name(child));
+        }
+        tracker.expectConnections(name(agent), children);
+    }
+
+    private static int parentOf(final int agent) {
+        return (agent - 1) / FANOUT;
+    }
+
+    private static String name(final int agent) {
+        return "A" + agent;
+    }
+}
@@ -0,0 +1,59 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.aasis.common.ConnectionGuidelines;
+import edu.ksu.cis.macr.aasis.common.IConnectionGuidelines;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a {@code ConnectHandshake} completes however its guidelines are marked connected, and that the
+ * guidelines tell their connected listeners once.
+ */
+public class ConnectHandshakeTest {
+
+    @Test
+    public void markingTheGuidelinesConnectedCompletesTheHandshake() {
+        final IConnectionGuidelines guidelines = new ConnectionGuidelines("N43", "N43inN43", "synthetic", "N43");
+        final ConnectHandshake handshake = ConnectHandshake.createConnectHandshake(guidelines);
+        assertFalse(handshake.isConnected());
+        guidelines.setConnected(true);
+        assertTrue(handshake.isConnected());
+        assertTrue(handshake.getFuture().isDone());
+    }
+
+    @Test
+    public void completingTheHandshakeMarksTheGuidelinesConnected() {
+        final IConnectionGuidelines guidelines = new ConnectionGuidelines("N43", "N43inN43", "synthetic", "N43");
+        final ConnectHandshake handshake = ConnectHandshake.createConnectHandshake(guidelines);
+        assertTrue(handshake.complete());
+        assertTrue(guidelines.isConnected());
+        assertFalse(handshake.complete());
+    }
+
+    @Test
+    public void guidelinesAlreadyConnectedStartComplete() {
+        final IConnectionGuidelines guidelines = new ConnectionGuidelines("N43", "N43inN43", "synthetic", "N43");
+        guidelines.setConnected(true);
+        assertTrue(ConnectHandshake.createConnectHandshake(guidelines).isConnected());
+    }
+
+    @Test
+    public void connectedListenersAreToldOnce() {
+        final IConnectionGuidelines guidelines = new ConnectionGuidelines("N43", "N43inN43", "synthetic", "N43");
+        final AtomicInteger told = new AtomicInteger();
+        final Runnable removed = told::incrementAndGet;
+        guidelines.addConnectedListener(told::incrementAndGet);
+        guidelines.addConnectedListener(removed);
+        guidelines.removeConnectedListener(removed);
+        guidelines.setConnected(true);
+        guidelines.setConnected(true);
+        assertEquals(1, told.get());
+        guidelines.addConnectedListener(told::incrementAndGet);
+        assertEquals(2, told.get());
+    }
+}
@@ -0,0 +1,182 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.aasis.agent.cc_message.connect.IConnectMessage;
+import edu.ksu.cis.macr.aasis.agent.cc_p.ConnectionModel;
+import edu.ksu.cis.macr.aasis.agent.cc_p.ConnectivityTracker;
+import edu.ksu.cis.macr.aasis.agent.cc_p.StartupTimeline;
+import edu.ksu.cis.macr.aasis.common.ConnectionGuidelines;
+import edu.ksu.cis.macr.aasis.common.Connections;
+import edu.ksu.cis.macr.aasis.common.IConnectionGuidelines;
+import edu.ksu.cis.macr.aasis.common.IConnections;
+import edu.ksu.cis.macr.aasis.config.RunManager;
+import edu.ksu.cis.macr.aasis.messaging.MessagingFocus;
+import edu.ksu.cis.macr.aasis.messaging.MessagingManager;
+import edu.ksu.cis.macr.organization.model.InstanceGoal;
+import edu.ksu.cis.macr.organization.model.identifiers.StringIdentifier;
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Connects synthetic hierarchies, in which each agent has one parent and up to {@code FANOUT} children, through the
+ * {@code ConnectionBootstrap} on the in-process broker, and checks the startup timeline and the
+ * {@code ConnectivityTracker} agree that every agent is connected.
+ */
+public class ConnectionBootstrapTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionBootstrapTest.class);
+    private static final int FANOUT = 5;
+    private static final long TIMEOUT_MILLIS = 60000;
+    private StartupTimeline timeline;
+
+    @BeforeClass
+    public static void useInProcessBroker() {
+        MessagingManager.setInProcessBroker(true);
+        MessagingManager.initialize();
+    }
+
+    @Before
+    public void startTimeline() {
+        ConnectivityTracker.INSTANCE.clear();
+        ConnectionModel.clearConnections();
+        timeline = StartupTimeline.createStartupTimeline(ConnectivityTracker.INSTANCE,
+                RunManager.INITIAL_CONNECTION_THRESHOLD_FRACTION);
+        timeline.start();
+    }
+
+    @After
+    public void stopTimeline() {
+        timeline.stop();
+    }
+
+    @Test
+    public void connectsASmallHierarchy() throws InterruptedException {
+        connect(10);
+    }
+
+    @Test
+    public void connectsALargerHierarchy() throws InterruptedException {
+        connect(200);
+    }
+
+    private void connect(final int agents) throws InterruptedException {
+        ConnectivityTracker.INSTANCE.setExpectedAgents(agents);
+        final List<SyntheticConnectCapability> capabilities = createSyntheticHierarchy(agents);
+        final ConnectionBootstrap bootstrap = ConnectionBootstrap.createConnectionBootstrap(
+                Runtime.getRuntime().availableProcessors(), 5);
+        assertTrue("every persona connected", bootstrap.connectAll(capabilities, TIMEOUT_MILLIS));
+        assertTrue("timeline saw the system connected", timeline.awaitFullyConnected(TIMEOUT_MILLIS,
+                TimeUnit.MILLISECONDS));
+        assertTrue(ConnectivityTracker.INSTANCE.isSystemConnected());
+        assertEquals(agents - 1, ConnectivityTracker.INSTANCE.getExpectedCount());
+        assertEquals(agents - 1, ConnectionModel.getCountConnections());
+        LOG.info("{} agents: {}", agents, timeline.getSummaryString());
+    }
+
+    /**
+     * Builds a tree of agents named A0, A1, ... with A0 at the top, and declares the queues between each parent and child.
+     */
+    private static List<SyntheticConnectCapability> createSyntheticHierarchy(final int agents) {
+        final String run = Long.toString(System.nanoTime(), 36);
+        final List<List<IConnectionGuidelines>> parents = new ArrayList<>();
+        final List<List<IConnectionGuidelines>> children = new ArrayList<>();
+        for (int i = 0; i < agents; i++) {
+            parents.add(new ArrayList<>());
+            children.add(new ArrayList<>());
+        }
+        for (int i = 1; i < agents; i++) {
+            final int p = (i - 1) / FANOUT;
+            final String parent = "A" + p + "_" + run;
+            final String child = "A" + i + "_" + run;
+            parents.get(i).add(new ConnectionGuidelines(parent, "O" + p, "synthetic", parent));
+            children.get(p).add(new ConnectionGuidelines(child, "O" + p, "synthetic", parent));
+            MessagingManager.declareAndBindConsumerQueue(MessagingFocus.GENERAL,
+                    HierarchicalConnectCapability.buildQueueLinkFromSenderAndReceiver(parent, child));
+            MessagingManager.declareAndBindConsumerQueue(MessagingFocus.GENERAL,
+                    HierarchicalConnectCapability.buildQueueLinkFromSenderAndReceiver(child, parent));
+        }
+        final List<SyntheticConnectCapability> capabilities = new ArrayList<>(agents);
+        for (int i = 0; i < agents; i++) {
+            capabilities.add(new SyntheticConnectCapability(createSyntheticPersona("A" + i + "_" + run),
+                    Connections.createConnections(parents.get(i), "parent"),
+                    Connections.createConnections(children.get(i), "child")));
+        }
+        return capabilities;
+    }
+
+    /**
+     * A persona that only has a name, enough to own a connect capability.
+     */
+    private static IPersona createSyntheticPersona(final String name) {
+        final UniqueIdentifier id = StringIdentifier.getIdentifier(name);
+        return (IPersona) Proxy.newProxyInstance(IPersona.class.getClassLoader(), new Class<?>[]{IPersona.class},
+                (proxy, method, methodArgs) -> {
+                    switch (method.getName()) {
+                        case "getUniqueIdentifier":
+                            return id;
+                        case "getIdentifierString":
+                        case "toString":
+                            return name;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == methodArgs[0];
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(final Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        return null;
+    }
+
+    /**
+     * A connect capability that sends its hellos through the {@code MessagingManager} and receives them with the base
+     * {@code remoteRECEIVE}.
+     */
+    private static class SyntheticConnectCapability extends HierarchicalConnectCapability {
+
+        SyntheticConnectCapability(final IPersona owner, final IConnections parentConnections,
+                                   final IConnections childConnections) {
+            super(IHierarchicalConnectConnectCapability.class, owner, null);
+            setParentConnections(parentConnections);
+            setChildConnections(childConnections);
+        }
+
+        @Override
+        protected void sendREMOTE(final IConnectMessage message) {
+            try {
+                publishConnectMessage(MessagingFocus.GENERAL, message);
+            } catch (IOException e) {
+                LOG.error("ERROR: could not send {}. {}", message, e.getMessage());
+            }
+        }
+
+        @Override
+        public void init(final InstanceGoal<?> instanceGoal) {
+        }
+
+        @Override
+        public String toString() {
+            return owner.getIdentifierString();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import edu.ksu.cis.macr.organization.model.identifiers.StringIdentifier;
+import edu.ksu.cis.macr.organization.model.identifiers.UniqueIdentifier;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs organizations of synthetic persona through turns on one {@code ForkJoinPersonaExecutor}, each organization's
+ * scheduler party arriving from the test thread.
+ */
+public class ForkJoinPersonaExecutorTest {
+    private static final int ORGANIZATIONS = 50;
+    private static final int PERSONA = 5;
+    private static final int TURNS = 20;
+    private static final int PARALLELISM = 4;
+
+    @Test
+    public void runsEveryPersonaOncePerTurnOnBoundedThreads() throws InterruptedException {
+        final int threadsBefore = Thread.activeCount();
+        final ForkJoinPersonaExecutor executor = ForkJoinPersonaExecutor.createForkJoinPersonaExecutor(PARALLELISM);
+        final AtomicLong executed = new AtomicLong();
+        final Phaser[] schedulers = new Phaser[ORGANIZATIONS];
+        for (int o = 0; o < ORGANIZATIONS; o++) {
+            schedulers[o] = new Phaser(1);
+            final IOrganizationPersonaExecutor view =
+                    executor.forTurnBarrier(TurnBarrier.createTurnBarrier(schedulers[o], 0));
+            for (int p = 0; p < PERSONA; p++) {
+                view.start(syntheticPersona("P" + o + "_" + p, executed));
+            }
+        }
+        for (int t = 0; t < TURNS; t++) {
+            for (Phaser scheduler : schedulers) scheduler.arrive();
+            for (Phaser scheduler : schedulers) scheduler.awaitAdvanceInterruptibly(t);
+        }
+        // a persona started while its organization's first turn ran joins the next one, and the persona of the turn
+        // started by the last advance may still be running
+        assertTrue(executed.get() >= (long) ORGANIZATIONS * PERSONA * (TURNS - 1));
+        assertTrue(executed.get() <= (long) ORGANIZATIONS * PERSONA * (TURNS + 1));
+        assertEquals(ORGANIZATIONS * PERSONA, executor.getActiveCount());
+        assertTrue(Thread.activeCount() - threadsBefore <= PARALLELISM + 1);
+        executor.shutdown();
+        for (Phaser scheduler : schedulers) scheduler.arriveAndDeregister();
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    public void stoppedPersonaAreNotRunAgain() throws InterruptedException {
+        final ForkJoinPersonaExecutor executor = ForkJoinPersonaExecutor.createForkJoinPersonaExecutor(PARALLELISM);
+        final AtomicLong executed = new AtomicLong();
+        final Phaser scheduler = new Phaser(1);
+        final IOrganizationPersonaExecutor view = executor.forTurnBarrier(TurnBarrier.createTurnBarrier(scheduler, 0));
+        final IPersona persona = syntheticPersona("P", executed);
+        view.start(persona);
+        scheduler.arrive();
+        scheduler.awaitAdvanceInterruptibly(0);
+        view.stop(persona);
+        // the driver leaves the barrier once it has nothing to run, so the scheduler advances alone
+        scheduler.arrive();
+        scheduler.awaitAdvanceInterruptibly(1);
+        scheduler.arrive();
+        scheduler.awaitAdvanceInterruptibly(2);
+        assertTrue(executed.get() <= 2);
+        assertEquals(1, scheduler.getRegisteredParties());
+        executor.shutdown();
+    }
+
+    private static IPersona syntheticPersona(final String name, final AtomicLong executed) {
+        final UniqueIdentifier id = StringIdentifier.getIdentifier(name);
+        return (IPersona) Proxy.newProxyInstance(IPersona.class.getClassLoader(),
+                new Class<?>[]{IPersona.class}, (proxy, method, methodArgs) -> {
+                    switch (method.getName()) {
+                        case "getUniqueIdentifier":
+                            return id;
+                        case "execute":
+                            executed.incrementAndGet();
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == methodArgs[0];
+                        case "toString":
+                            return name;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,115 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a {@code HistoryLog} replays its records from heap and from spilled segment files, with each codec, and
+ * that the spilled files can be read back by a log that did not write them.
+ */
+public class HistoryLogTest {
+    private static final int RECORDS = 200;
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("history-test").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        final File[] files = directory.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void compactRecordsReplayFromHeapAndSpilledSegments() {
+        final HistoryLog<Entry> log = record(HistoryLog.createCompactCodec(Entry.class));
+        assertReplayed(log.replay(), 0, RECORDS - 1);
+        assertTrue("segments were spilled", directory.list().length > 1);
+    }
+
+    @Test
+    public void replayOfAWindowReturnsOnlyItsTimeSlices() {
+        final HistoryLog<Entry> log = record(HistoryLog.createCompactCodec(Entry.class));
+        assertReplayed(log.replay(50, 59), 50, 59);
+    }
+
+    @Test
+    public void compactSegmentsAreReadableByAnotherLog() throws IOException {
+        final HistoryLog<Entry> log = record(HistoryLog.createCompactCodec(Entry.class));
+        log.close();
+        final int spilled = directory.list().length;
+        final HistoryLog<Entry> reopened = HistoryLog.openHistoryLog(directory,
+                HistoryLog.createCompactCodec(Entry.class));
+        final List<Entry> entries = drain(reopened.replay());
+        assertEquals(reopened.getRecordedCount(), entries.size());
+        assertTrue("all spilled records were read", entries.size() > spilled);
+        for (int i = 0; i < entries.size(); i++) assertEquals(i, entries.get(i).number);
+    }
+
+    @Test
+    public void serializedSegmentsAreReadableByAnotherLog() throws IOException {
+        record(HistoryLog.createSerializationCodec(Entry.class)).close();
+        final HistoryLog<Entry> reopened = HistoryLog.openHistoryLog(directory,
+                HistoryLog.createSerializationCodec(Entry.class));
+        final List<Entry> entries = drain(reopened.replay());
+        assertTrue(entries.size() > 0);
+        for (int i = 0; i < entries.size(); i++) assertEquals(i, entries.get(i).number);
+    }
+
+    @Test
+    public void deleteFilesRemovesSpilledSegments() {
+        final HistoryLog<Entry> log = record(HistoryLog.createCompactCodec(Entry.class));
+        log.deleteFiles();
+        final String[] left = directory.list();
+        assertTrue("segment files were deleted", left == null || left.length == 0);
+    }
+
+    private HistoryLog<Entry> record(final HistoryLog.ICodec<Entry> codec) {
+        final HistoryLog<Entry> log = HistoryLog.createHistoryLog(directory, 1024, 1, codec);
+        for (int i = 0; i < RECORDS; i++) log.append(i, new Entry(i, "entry " + i));
+        return log;
+    }
+
+    private static List<Entry> drain(final Iterator<HistoryLog.Record<Entry>> records) {
+        final List<Entry> entries = new ArrayList<>();
+        while (records.hasNext()) {
+            final HistoryLog.Record<Entry> record = records.next();
+            assertEquals(record.getTimeSlice(), record.getPayload().number);
+            entries.add(record.getPayload());
+        }
+        return entries;
+    }
+
+    private static void assertReplayed(final Iterator<HistoryLog.Record<Entry>> records, final int from,
+                                       final int to) {
+        final List<Entry> entries = drain(records);
+        assertEquals(to - from + 1, entries.size());
+        for (int i = 0; i < entries.size(); i++) assertEquals(from + i, entries.get(i).number);
+    }
+
+    private static final class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int number;
+        private final String text;
+
+        Entry(final int number, final String text) {
+            this.number = number;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.Serializable;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the verdicts of the {@code SerializabilityChecker} in each mode.
+ */
+public class SerializabilityCheckerTest {
+
+    @After
+    public void restoreMode() {
+        SerializabilityChecker.setMode(SerializabilityChecker.Mode.CACHED);
+    }
+
+    @Test
+    public void nullContentIsSerializableInEveryMode() {
+        for (SerializabilityChecker.Mode mode : SerializabilityChecker.Mode.values()) {
+            SerializabilityChecker.setMode(mode);
+            assertTrue(mode.name(), SerializabilityChecker.check(null));
+        }
+        assertTrue(SerializabilityChecker.register(null));
+    }
+
+    @Test
+    public void cachedModeAcceptsSerializableContent() {
+        SerializabilityChecker.setMode(SerializabilityChecker.Mode.CACHED);
+        assertTrue(SerializabilityChecker.check("a plain string"));
+        assertTrue(SerializabilityChecker.check(4.2));
+        assertTrue(SerializabilityChecker.check(new Holder(null)));
+    }
+
+    @Test
+    public void cachedModeRejectsClassesThatAreNotSerializable() {
+        SerializabilityChecker.setMode(SerializabilityChecker.Mode.CACHED);
+        assertFalse(SerializabilityChecker.check(new Object()));
+    }
+
+    @Test
+    public void cachedModeKeepsTheVerdictOfTheFirstInstance() {
+        SerializabilityChecker.setMode(SerializabilityChecker.Mode.CACHED);
+        assertTrue(SerializabilityChecker.register(new Wrapper(null)));
+        // the field is not serializable, but the class was decided by the first instance
+        assertTrue(SerializabilityChecker.check(new Wrapper(new Object())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void strictModeThrowsForContentThatCannotBeWritten() {
+        SerializabilityChecker.setMode(SerializabilityChecker.Mode.STRICT);
+        SerializabilityChecker.check(new Holder(new Object()));
+    }
+
+    @Test
+    public void offModeAcceptsAnything() {
+        SerializabilityChecker.setMode(SerializabilityChecker.Mode.OFF);
+        assertTrue(SerializabilityChecker.check(new Object()));
+    }
+
+    @Test
+    public void modesAreSelectedByName() {
+        assertTrue(SerializabilityChecker.setMode(" strict "));
+        assertTrue(SerializabilityChecker.getMode() == SerializabilityChecker.Mode.STRICT);
+        assertFalse(SerializabilityChecker.setMode("sometimes"));
+    }
+
+    private static class Holder implements Serializable {
+        private final Object value;
+
+        Holder(final Object value) {
+            this.value = value;
+        }
+    }
+
+    private static class Wrapper implements Serializable {
+        private final Object value;
+
+        Wrapper(final Object value) {
+            this.value = value;
+        }
+    }
+}
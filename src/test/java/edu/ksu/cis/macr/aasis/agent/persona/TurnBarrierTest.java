@@ -0,0 +1,129 @@
+package edu.ksu.cis.macr.aasis.agent.persona;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs parties through turns on a flat turn barrier and on trees, arriving on the thread each party registered on and
+ * from threads that did not register, and checks every turn is taken by every party and the straggler is found.
+ */
+public class TurnBarrierTest {
+    private static final int PARTIES = 200;
+    private static final int TURNS = 20;
+    private static final int FANOUT = 8;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Test
+    public void flatBarrierRunsEveryTurn() throws InterruptedException {
+        runTurns(0, -1);
+    }
+
+    @Test
+    public void treeRunsEveryTurn() throws InterruptedException {
+        final TurnBarrier barrier = runTurns(FANOUT, -1);
+        assertTrue(barrier.getSummaryString(), barrier.getSummaryString().contains("tiers=1"));
+    }
+
+    @Test
+    public void treeFindsTheStraggler() throws InterruptedException {
+        final TurnBarrier barrier = runTurns(FANOUT, PARTIES / 2);
+        final String slowest = barrier.getSlowestCounts().entrySet().stream()
+                .max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+        assertEquals("party-" + PARTIES / 2, slowest);
+    }
+
+    @Test
+    public void treeAcceptsArrivalsFromThreadsThatDidNotRegister() throws InterruptedException {
+        final Phaser root = new Phaser(1);
+        final TurnBarrier barrier = TurnBarrier.createTurnBarrier(root, FANOUT);
+        for (int i = 0; i < PARTIES; i++) barrier.register();
+        final AtomicInteger taken = new AtomicInteger();
+        final Thread[] threads = new Thread[PARTIES];
+        for (int i = 0; i < PARTIES; i++) {
+            threads[i] = new Thread(() -> {
+                for (int t = 0; t < TURNS; t++) {
+                    taken.incrementAndGet();
+                    barrier.arriveAndAwaitAdvance();
+                }
+                barrier.arriveAndDeregister();
+            }, "arriving-" + i);
+        }
+        for (Thread thread : threads) thread.start();
+        root.arriveAndDeregister();
+        join(threads);
+        assertEquals(PARTIES * TURNS, taken.get());
+        assertEquals(0, barrier.getRegisteredParties());
+    }
+
+    @Test
+    public void treeAcceptsHandlesUsedFromOtherThreads() throws InterruptedException {
+        final Phaser root = new Phaser(1);
+        final TurnBarrier barrier = TurnBarrier.createTurnBarrier(root, FANOUT);
+        final TurnBarrier.Party[] parties = new TurnBarrier.Party[PARTIES];
+        for (int i = 0; i < PARTIES; i++) parties[i] = barrier.register();
+        final Thread[] threads = new Thread[PARTIES];
+        for (int i = 0; i < PARTIES; i++) {
+            final TurnBarrier.Party party = parties[i];
+            threads[i] = new Thread(() -> {
+                for (int t = 0; t < TURNS; t++) party.arriveAndAwaitAdvance();
+                party.arriveAndDeregister();
+            }, "handle-" + i);
+        }
+        for (Thread thread : threads) thread.start();
+        root.arriveAndDeregister();
+        join(threads);
+        assertEquals(0, barrier.getRegisteredParties());
+    }
+
+    /**
+     * Each party registers on its own thread, waits for all to register, and takes its turns; one may be made slow.
+     */
+    private static TurnBarrier runTurns(final int fanout, final int slowParty) throws InterruptedException {
+        final Phaser root = new Phaser(1);
+        final TurnBarrier barrier = TurnBarrier.createTurnBarrier(root, fanout);
+        final CountDownLatch registered = new CountDownLatch(PARTIES);
+        final AtomicInteger taken = new AtomicInteger();
+        final Thread[] threads = new Thread[PARTIES];
+        for (int i = 0; i < PARTIES; i++) {
+            final boolean slow = (i == slowParty);
+            threads[i] = new Thread(() -> {
+                barrier.register();
+                registered.countDown();
+                try {
+                    registered.await();
+                    for (int t = 0; t < TURNS; t++) {
+                        if (slow) Thread.sleep(2);
+                        taken.incrementAndGet();
+                        barrier.arriveAndAwaitAdvance();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                barrier.arriveAndDeregister();
+            }, "party-" + i);
+        }
+        for (Thread thread : threads) thread.start();
+        assertTrue(registered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(PARTIES + 1, barrier.getRegisteredParties()); // and the root's own party
+        root.arriveAndDeregister();
+        join(threads);
+        assertEquals(PARTIES * TURNS, taken.get());
+        assertEquals(0, barrier.getRegisteredParties());
+        return barrier;
+    }
+
+    private static void join(final Thread[] threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertTrue(thread.getName() + " finished its turns", !thread.isAlive());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that the {@code InProcessBroker} routes by exchange type and applies the queue's message time to live to
+ * messages pushed to a consumer as well as to messages waiting on the queue.
+ */
+public class InProcessBrokerTest {
+    private static final byte[] BODY = {1, 2, 3};
+
+    @Before
+    public void reset() {
+        InProcessBroker.reset();
+    }
+
+    @Test
+    public void directExchangeRoutesOnlyTheSameKey() {
+        InProcessBroker.exchangeDeclare("d", InProcessBroker.DIRECT);
+        declareAndBind("q1", "d", "a.*", 10000);
+        declareAndBind("q2", "d", "a.b", 10000);
+        assertEquals(1, InProcessBroker.basicPublish("d", "a.b", BODY));
+        assertNull(InProcessBroker.basicGet("q1"));
+        assertArrayEquals(BODY, InProcessBroker.basicGet("q2"));
+    }
+
+    @Test
+    public void fanoutExchangeRoutesToEveryQueue() {
+        InProcessBroker.exchangeDeclare("f", InProcessBroker.FANOUT);
+        declareAndBind("q1", "f", "x", 10000);
+        declareAndBind("q2", "f", "y", 10000);
+        assertEquals(2, InProcessBroker.basicPublish("f", "z", BODY));
+        assertArrayEquals(BODY, InProcessBroker.basicGet("q1"));
+        assertArrayEquals(BODY, InProcessBroker.basicGet("q2"));
+    }
+
+    @Test
+    public void topicExchangeMatchesWildcards() {
+        InProcessBroker.exchangeDeclare("t");
+        declareAndBind("q1", "t", "a.*", 10000);
+        declareAndBind("q2", "t", "b.#", 10000);
+        assertEquals(1, InProcessBroker.basicPublish("t", "a.b", BODY));
+        assertArrayEquals(BODY, InProcessBroker.basicGet("q1"));
+        assertNull(InProcessBroker.basicGet("q2"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void redeclaringWithAnotherTypeFails() {
+        InProcessBroker.exchangeDeclare("e", InProcessBroker.DIRECT);
+        InProcessBroker.exchangeDeclare("e", InProcessBroker.FANOUT);
+    }
+
+    @Test
+    public void messagesPushedToAConsumerExpire() throws InterruptedException {
+        InProcessBroker.exchangeDeclare("t");
+        declareAndBind("q", "t", "q", 20);
+        final MessageInbox inbox = MessageInbox.createMessageInbox("q");
+        InProcessBroker.basicConsume("q", inbox);
+        InProcessBroker.basicPublish("t", "q", BODY);
+        Thread.sleep(60);
+        assertNull(inbox.poll());
+        assertEquals(1, inbox.getExpiredCount());
+    }
+
+    @Test
+    public void messagesQueuedBeforeAConsumerKeepTheirExpiry() throws InterruptedException {
+        InProcessBroker.exchangeDeclare("t");
+        declareAndBind("q", "t", "q", 20);
+        InProcessBroker.basicPublish("t", "q", BODY);
+        final MessageInbox inbox = MessageInbox.createMessageInbox("q");
+        InProcessBroker.basicConsume("q", inbox);
+        Thread.sleep(60);
+        assertNull(inbox.poll());
+    }
+
+    @Test
+    public void unexpiredMessagesReachTheConsumer() {
+        InProcessBroker.exchangeDeclare("t");
+        declareAndBind("q", "t", "q", 10000);
+        final MessageInbox inbox = MessageInbox.createMessageInbox("q");
+        InProcessBroker.basicConsume("q", inbox);
+        InProcessBroker.basicPublish("t", "q", BODY);
+        assertArrayEquals(BODY, inbox.poll());
+    }
+
+    private static void declareAndBind(final String queue, final String exchange, final String key, final long ttlMillis) {
+        InProcessBroker.queueDeclare(queue, ttlMillis);
+        InProcessBroker.queueBind(queue, exchange, key);
+    }
+}
@@ -0,0 +1,45 @@
+package edu.ksu.cis.macr.aasis.messaging;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that a {@code MessageInbox} with a capacity keeps the newest messages and counts the ones it drops.
+ */
+public class MessageInboxTest {
+
+    @Test
+    public void fullInboxDropsTheOldest() {
+        final MessageInbox inbox = MessageInbox.createMessageInbox("q", 2);
+        for (byte i = 1; i <= 4; i++) inbox.deliver(new byte[]{i});
+        assertEquals(2, inbox.getDroppedCount());
+        assertArrayEquals(new byte[]{3}, inbox.poll());
+        assertArrayEquals(new byte[]{4}, inbox.poll());
+        assertNull(inbox.poll());
+    }
+
+    @Test
+    public void pollingMakesRoom() {
+        final MessageInbox inbox = MessageInbox.createMessageInbox("q", 2);
+        inbox.deliver(new byte[]{1});
+        inbox.deliver(new byte[]{2});
+        inbox.poll();
+        inbox.deliver(new byte[]{3});
+        assertEquals(0, inbox.getDroppedCount());
+        assertArrayEquals(new byte[]{2}, inbox.poll());
+        assertArrayEquals(new byte[]{3}, inbox.poll());
+    }
+
+    @Test
+    public void unboundedInboxKeepsEverything() {
+        final MessageInbox inbox = MessageInbox.createMessageInbox("q");
+        for (int i = 0; i < 1000; i++) inbox.deliver(new byte[]{1});
+        assertEquals(0, inbox.getDroppedCount());
+        int count = 0;
+        while (inbox.poll() != null) count++;
+        assertEquals(1000, count);
+    }
+}